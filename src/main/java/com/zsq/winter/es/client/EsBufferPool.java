@@ -0,0 +1,188 @@
+package com.zsq.winter.es.client;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定大小的字节缓冲池
+ * <p>
+ * 用于批量请求体的编码与发送，缓冲区在请求完成后归还复用，避免每个请求分配与请求体等大的临时数组。
+ * 缓冲池持有的缓冲区（空闲与被请求占用之和）最多 maxBuffers 个，即总内存不超过 bufferBytes × maxBuffers；
+ * 达到上限时取用失败返回 null，由调用方改用高级客户端的默认编码，不会阻塞。
+ * 归还的缓冲区全部保留复用，不会被丢弃。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+public class EsBufferPool {
+
+    private final int bufferBytes;
+
+    private final int maxBuffers;
+
+    private final boolean direct;
+
+    private final Queue<ByteBuffer> idle = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     * 已分配且仍由缓冲池持有的缓冲区数
+     */
+    private final AtomicInteger ownedCount = new AtomicInteger();
+
+    private final LongAdder acquiredCount = new LongAdder();
+
+    private final LongAdder allocatedCount = new LongAdder();
+
+    private final LongAdder exhaustedCount = new LongAdder();
+
+    private final LongAdder fallbackCount = new LongAdder();
+
+    /**
+     * @param bufferBytes 单个缓冲区字节数
+     * @param maxBuffers  最多持有的缓冲区数（空闲与占用之和）
+     * @param direct      是否使用堆外内存
+     */
+    public EsBufferPool(int bufferBytes, int maxBuffers, boolean direct) {
+        this.bufferBytes = Math.max(1024, bufferBytes);
+        this.maxBuffers = Math.max(1, maxBuffers);
+        this.direct = direct;
+    }
+
+    /**
+     * 估算剩余容量能否容纳指定字节数，用于编码前快速判断是否需要回退
+     */
+    boolean hasCapacity(long bytes) {
+        long available = idleCount.get() + (long) (maxBuffers - ownedCount.get());
+        return available * bufferBytes >= bytes;
+    }
+
+    /**
+     * 取出一个已清空的缓冲区
+     *
+     * @return 缓冲区，缓冲池已达上限时返回 null
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = idle.poll();
+        if (buffer != null) {
+            idleCount.decrementAndGet();
+            acquiredCount.increment();
+            buffer.clear();
+            return buffer;
+        }
+        int owned;
+        do {
+            owned = ownedCount.get();
+            if (owned >= maxBuffers) {
+                exhaustedCount.increment();
+                return null;
+            }
+        } while (!ownedCount.compareAndSet(owned, owned + 1));
+        acquiredCount.increment();
+        allocatedCount.increment();
+        return direct ? ByteBuffer.allocateDirect(bufferBytes) : ByteBuffer.allocate(bufferBytes);
+    }
+
+    /**
+     * 归还缓冲区，调用方之后不能再使用
+     */
+    void release(ByteBuffer buffer) {
+        idle.offer(buffer);
+        idleCount.incrementAndGet();
+    }
+
+    /**
+     * 记录一次因容量不足改用默认编码的请求
+     */
+    void onFallback() {
+        fallbackCount.increment();
+    }
+
+    /**
+     * 单个缓冲区字节数
+     */
+    public int getBufferBytes() {
+        return bufferBytes;
+    }
+
+    /**
+     * 最多持有的缓冲区数
+     */
+    public int getMaxBuffers() {
+        return maxBuffers;
+    }
+
+    /**
+     * 总内存上限（字节）
+     */
+    public long getMaxBytes() {
+        return (long) maxBuffers * bufferBytes;
+    }
+
+    /**
+     * 是否使用堆外内存
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * 当前空闲的缓冲区数
+     */
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    /**
+     * 当前被请求占用的缓冲区数
+     */
+    public int getInUseCount() {
+        return ownedCount.get() - idleCount.get();
+    }
+
+    /**
+     * 当前持有的字节数（空闲与占用之和）
+     */
+    public long getPooledBytes() {
+        return (long) ownedCount.get() * bufferBytes;
+    }
+
+    /**
+     * 累计成功取用次数
+     */
+    public long getAcquiredCount() {
+        return acquiredCount.sum();
+    }
+
+    /**
+     * 累计新分配的缓冲区数，取用次数与它的差即复用次数
+     */
+    public long getAllocatedCount() {
+        return allocatedCount.sum();
+    }
+
+    /**
+     * 累计新分配的字节数
+     */
+    public long getAllocatedBytes() {
+        return allocatedCount.sum() * bufferBytes;
+    }
+
+    /**
+     * 因缓冲池已达上限取用失败的次数
+     */
+    public long getExhaustedCount() {
+        return exhaustedCount.sum();
+    }
+
+    /**
+     * 因容量不足改用高级客户端默认编码发送的批量请求数
+     */
+    public long getFallbackCount() {
+        return fallbackCount.sum();
+    }
+}
@@ -0,0 +1,248 @@
+package com.zsq.winter.es.client;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.seqno.SequenceNumbers;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 批量请求体编码
+ * <p>
+ * 与高级客户端的 bulk 请求格式一致（URL 参数与每个条目的元数据行相同），区别在于：
+ * 元数据行与更新内容直接编码到池化缓冲区；JSON 格式且不含换行的文档内容原样写入，不再解析后重新序列化；
+ * 请求体以 {@link EsPooledEntity} 发送，不合并成一个数组。
+ * 文档内容包含换行或为其他格式时转为单行 JSON。缓冲池容量不足时改用高级客户端的默认编码发送。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+public final class EsBulkBodyWriter {
+
+    private static final byte NEWLINE = '\n';
+
+    private EsBulkBodyWriter() {
+    }
+
+    /**
+     * 发送批量请求，请求体由缓冲池中的缓冲区承载，请求结束后归还；缓冲池容量不足时改用高级客户端发送
+     * 错误状态转换为 {@link ElasticsearchStatusException}，与高级客户端的行为一致
+     *
+     * @param client        客户端
+     * @param bulkRequest   批量请求
+     * @param options       请求选项
+     * @param pool          缓冲池
+     * @return 批量响应
+     */
+    public static BulkResponse bulk(RestHighLevelClient client, BulkRequest bulkRequest, RequestOptions options,
+                                    EsBufferPool pool) throws IOException {
+        EsPooledEntity entity = pool.hasCapacity(bulkRequest.estimatedSizeInBytes()) ? write(bulkRequest, pool) : null;
+        if (entity == null) {
+            pool.onFallback();
+            return client.bulk(bulkRequest, options);
+        }
+        try {
+            Request request = new Request("POST", "/_bulk");
+            addParameters(request, bulkRequest);
+            request.setEntity(entity);
+            request.setOptions(options);
+            Response response;
+            try {
+                response = client.getLowLevelClient().performRequest(request);
+            } catch (ResponseException e) {
+                throw toStatusException(e);
+            }
+            try (XContentParser parser = createParser(response.getEntity())) {
+                return BulkResponse.fromXContent(parser);
+            }
+        } finally {
+            entity.release();
+        }
+    }
+
+    /**
+     * 将批量请求编码为池化请求体
+     *
+     * @param bulkRequest 批量请求
+     * @param pool        缓冲池
+     * @return 已结束写入的请求体，使用后需调用 release；缓冲池容量不足时返回 null
+     */
+    static EsPooledEntity write(BulkRequest bulkRequest, EsBufferPool pool) throws IOException {
+        EsPooledEntity entity = new EsPooledEntity(pool, ContentType.APPLICATION_JSON);
+        try {
+            OutputStream out = entity.getOutputStream();
+            for (DocWriteRequest<?> action : bulkRequest.requests()) {
+                writeMetadata(action, out);
+                out.write(NEWLINE);
+                if (action instanceof IndexRequest) {
+                    IndexRequest indexRequest = (IndexRequest) action;
+                    writeSource(indexRequest.source(), indexRequest.getContentType(), out);
+                    out.write(NEWLINE);
+                } else if (action instanceof UpdateRequest) {
+                    try (XContentBuilder builder = new XContentBuilder(XContentType.JSON.xContent(), out)) {
+                        ((UpdateRequest) action).toXContent(builder, ToXContent.EMPTY_PARAMS);
+                    }
+                    out.write(NEWLINE);
+                }
+            }
+            entity.seal();
+            return entity;
+        } catch (EsPooledEntity.PoolExhaustedException e) {
+            // 其他请求同时占用了缓冲区，估算时的容量已不够
+            entity.release();
+            return null;
+        } catch (IOException | RuntimeException e) {
+            entity.release();
+            throw e;
+        }
+    }
+
+    private static void addParameters(Request request, BulkRequest bulkRequest) {
+        if (bulkRequest.timeout() != null) {
+            request.addParameter("timeout", bulkRequest.timeout().getStringRep());
+        }
+        if (bulkRequest.getRefreshPolicy() != WriteRequest.RefreshPolicy.NONE) {
+            request.addParameter("refresh", bulkRequest.getRefreshPolicy().getValue());
+        }
+        if (Strings.hasLength(bulkRequest.pipeline())) {
+            request.addParameter("pipeline", bulkRequest.pipeline());
+        }
+        if (Strings.hasLength(bulkRequest.routing())) {
+            request.addParameter("routing", bulkRequest.routing());
+        }
+    }
+
+    private static void writeMetadata(DocWriteRequest<?> action, OutputStream out) throws IOException {
+        try (XContentBuilder metadata = new XContentBuilder(XContentType.JSON.xContent(), out)) {
+            metadata.startObject();
+            metadata.startObject(action.opType().getLowercase());
+            if (Strings.hasLength(action.index())) {
+                metadata.field("_index", action.index());
+            }
+            if (Strings.hasLength(action.type()) && !MapperService.SINGLE_MAPPING_NAME.equals(action.type())) {
+                metadata.field("_type", action.type());
+            }
+            if (Strings.hasLength(action.id())) {
+                metadata.field("_id", action.id());
+            }
+            if (Strings.hasLength(action.routing())) {
+                metadata.field("routing", action.routing());
+            }
+            if (action.version() != Versions.MATCH_ANY) {
+                metadata.field("version", action.version());
+            }
+            if (action.versionType() == VersionType.EXTERNAL) {
+                metadata.field("version_type", "external");
+            } else if (action.versionType() == VersionType.EXTERNAL_GTE) {
+                metadata.field("version_type", "external_gte");
+            }
+            if (action.ifSeqNo() != SequenceNumbers.UNASSIGNED_SEQ_NO) {
+                metadata.field("if_seq_no", action.ifSeqNo());
+                metadata.field("if_primary_term", action.ifPrimaryTerm());
+            }
+            if (action instanceof IndexRequest) {
+                IndexRequest indexRequest = (IndexRequest) action;
+                if (Strings.hasLength(indexRequest.getPipeline())) {
+                    metadata.field("pipeline", indexRequest.getPipeline());
+                }
+            } else if (action instanceof UpdateRequest) {
+                UpdateRequest updateRequest = (UpdateRequest) action;
+                if (updateRequest.retryOnConflict() > 0) {
+                    metadata.field("retry_on_conflict", updateRequest.retryOnConflict());
+                }
+                if (updateRequest.fetchSource() != null) {
+                    metadata.field("_source", updateRequest.fetchSource());
+                }
+            }
+            metadata.endObject();
+            metadata.endObject();
+        }
+    }
+
+    /**
+     * 写入文档内容，单行 JSON 原样写入，其余转为单行 JSON
+     */
+    private static void writeSource(BytesReference source, XContentType contentType, OutputStream out) throws IOException {
+        if (contentType == XContentType.JSON && !containsNewline(source)) {
+            source.writeTo(out);
+            return;
+        }
+        try (XContentParser parser = XContentHelper.createParser(NamedXContentRegistry.EMPTY,
+                DeprecationHandler.THROW_UNSUPPORTED_OPERATION, source, contentType);
+             XContentBuilder builder = new XContentBuilder(XContentType.JSON.xContent(), out)) {
+            builder.copyCurrentStructure(parser);
+        }
+    }
+
+    private static boolean containsNewline(BytesReference source) throws IOException {
+        BytesRefIterator iterator = source.iterator();
+        BytesRef ref;
+        while ((ref = iterator.next()) != null) {
+            for (int i = ref.offset; i < ref.offset + ref.length; i++) {
+                if (ref.bytes[i] == NEWLINE) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static XContentParser createParser(HttpEntity entity) throws IOException {
+        if (entity == null) {
+            throw new IllegalStateException("Response body expected but not returned");
+        }
+        InputStream content = entity.getContent();
+        return XContentType.JSON.xContent().createParser(NamedXContentRegistry.EMPTY,
+                DeprecationHandler.THROW_UNSUPPORTED_OPERATION, content);
+    }
+
+    /**
+     * 按高级客户端的方式把错误响应转换为带状态码的异常，调用方据此识别 429 等状态
+     */
+    private static ElasticsearchStatusException toStatusException(ResponseException e) {
+        Response response = e.getResponse();
+        RestStatus status = RestStatus.fromCode(response.getStatusLine().getStatusCode());
+        if (response.getEntity() == null) {
+            return new ElasticsearchStatusException(e.getMessage(), status, e);
+        }
+        try (XContentParser parser = createParser(response.getEntity())) {
+            ElasticsearchStatusException exception = BytesRestResponse.errorFromXContent(parser);
+            exception.addSuppressed(e);
+            return exception;
+        } catch (Exception parseFailure) {
+            ElasticsearchStatusException exception = new ElasticsearchStatusException("Unable to parse response body", status, e);
+            exception.addSuppressed(parseFailure);
+            return exception;
+        }
+    }
+}
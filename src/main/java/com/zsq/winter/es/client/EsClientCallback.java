@@ -0,0 +1,25 @@
+package com.zsq.winter.es.client;
+
+import org.elasticsearch.client.RestHighLevelClient;
+
+import java.io.IOException;
+
+/**
+ * 客户端回调
+ * 由 {@link com.zsq.winter.es.service.EsTemplate} 选定目标集群后，使用该集群的客户端执行请求
+ *
+ * @param <T> 返回值类型
+ * @author dadandiaoming
+ */
+@FunctionalInterface
+public interface EsClientCallback<T> {
+
+    /**
+     * 使用指定客户端执行请求
+     *
+     * @param client 目标集群客户端
+     * @return 执行结果
+     * @throws IOException 请求异常
+     */
+    T doWithClient(RestHighLevelClient client) throws IOException;
+}
@@ -0,0 +1,250 @@
+package com.zsq.winter.es.client;
+
+import com.zsq.winter.es.entity.EsConfigProperties;
+import com.zsq.winter.es.util.EsExecutors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.ObjectUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 集群组
+ * 写请求扇出到全部成员（主集群同步，其余成员可异步镜像），读请求按策略路由到健康成员并在失败时切换
+ *
+ * @author dadandiaoming
+ */
+@Slf4j
+public class EsClusterGroup {
+
+    /**
+     * 平均延迟的平滑系数
+     */
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final EsConfigProperties.EsClusterGroupConfig config;
+
+    /**
+     * 成员状态，按配置顺序保存
+     */
+    private final Map<String, MemberState> memberStates = new LinkedHashMap<>();
+
+    private final AtomicInteger roundRobin = new AtomicInteger();
+
+    /**
+     * 异步镜像写线程池，每个成员一个单线程的有序队列，保证同一成员上的写入与主集群顺序一致；队列长度即积压上限
+     */
+    private final Map<String, ThreadPoolExecutor> mirrorExecutors = new LinkedHashMap<>();
+
+    private final AtomicLong mirrorDropped = new AtomicLong();
+
+    private final AtomicLong mirrorFailed = new AtomicLong();
+
+    public EsClusterGroup(EsConfigProperties.EsClusterGroupConfig config) {
+        if (ObjectUtils.isEmpty(config.getMembers())) {
+            throw new RuntimeException("No members found in configuration for cluster group: " + config.getGroupName());
+        }
+        this.config = config;
+        config.getMembers().forEach(member -> memberStates.put(member, new MemberState()));
+
+        // 多个线程消费同一队列时，同一文档的先后两次写入可能在镜像上乱序执行，因此每个成员只用一个工作线程；
+        // 有界队列保证积压上限，JDK 21 上工作线程为虚拟线程
+        List<String> members = config.getMembers();
+        for (String member : members.subList(1, members.size())) {
+            mirrorExecutors.put(member, new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, config.getMirrorBacklog())),
+                    EsExecutors.threadFactory("es-mirror-" + config.getGroupName() + "-" + member)));
+        }
+    }
+
+    /**
+     * 获取组名
+     */
+    public String getGroupName() {
+        return config.getGroupName();
+    }
+
+    /**
+     * 获取主集群名称
+     */
+    public String getPrimary() {
+        return config.getMembers().get(0);
+    }
+
+    /**
+     * 获取全部成员
+     */
+    public List<String> getMembers() {
+        return new ArrayList<>(config.getMembers());
+    }
+
+    /**
+     * 是否异步镜像写
+     */
+    public boolean isAsyncMirror() {
+        return Boolean.TRUE.equals(config.getAsyncMirror());
+    }
+
+    /**
+     * 按读路由策略给出成员尝试顺序：健康成员在前，不健康成员追加在末尾作为兜底
+     */
+    public List<String> readOrder() {
+        long now = System.currentTimeMillis();
+        List<String> healthy = new ArrayList<>();
+        List<String> unhealthy = new ArrayList<>();
+        for (Map.Entry<String, MemberState> entry : memberStates.entrySet()) {
+            if (entry.getValue().unhealthyUntil > now) {
+                unhealthy.add(entry.getKey());
+            } else {
+                healthy.add(entry.getKey());
+            }
+        }
+
+        switch (config.getReadStrategy()) {
+            case LEAST_LOADED:
+                healthy.sort(Comparator.comparingDouble(member -> memberStates.get(member).load()));
+                break;
+            case ROUND_ROBIN:
+                if (healthy.size() > 1) {
+                    int offset = Math.floorMod(roundRobin.getAndIncrement(), healthy.size());
+                    List<String> rotated = new ArrayList<>(healthy.subList(offset, healthy.size()));
+                    rotated.addAll(healthy.subList(0, offset));
+                    healthy = rotated;
+                }
+                break;
+            default:
+                break;
+        }
+        healthy.addAll(unhealthy);
+        return healthy;
+    }
+
+    /**
+     * 请求开始，增加成员进行中请求数
+     */
+    public void onRequestStart(String member) {
+        memberStates.get(member).inFlight.incrementAndGet();
+    }
+
+    /**
+     * 请求成功，记录延迟并恢复成员健康状态
+     */
+    public void onRequestSuccess(String member, long latencyMillis) {
+        MemberState state = memberStates.get(member);
+        state.inFlight.decrementAndGet();
+        state.unhealthyUntil = 0;
+        state.recordLatency(latencyMillis);
+    }
+
+    /**
+     * 请求失败，在冷却期内将成员标记为不健康
+     */
+    public void onRequestFailure(String member) {
+        MemberState state = memberStates.get(member);
+        state.inFlight.decrementAndGet();
+        state.unhealthyUntil = System.currentTimeMillis() + config.getFailureCooldownMs();
+    }
+
+    /**
+     * 提交异步镜像写，积压已满时丢弃并计数
+     *
+     * @return 是否已进入镜像队列
+     */
+    public boolean submitMirror(String member, EsClientCallback<?> callback, EsRestClient esRestClient) {
+        try {
+            mirrorExecutors.get(member).execute(() -> {
+                try {
+                    callback.doWithClient(esRestClient.getClient(member));
+                } catch (Exception e) {
+                    onMirrorFailure(member, e);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            mirrorDropped.incrementAndGet();
+            log.error("Mirror backlog of group: {} is full, dropped write to cluster: {}", getGroupName(), member);
+            return false;
+        }
+    }
+
+    /**
+     * 记录失败的镜像写，主集群已写入成功，因此只计数并记录日志
+     */
+    public void onMirrorFailure(String member, Exception e) {
+        mirrorFailed.incrementAndGet();
+        log.error("Failed to mirror write to cluster: {} of group: {}", member, getGroupName(), e);
+    }
+
+    /**
+     * 当前异步镜像写积压数量（全部成员之和）
+     */
+    public int getMirrorBacklog() {
+        return mirrorExecutors.values().stream().mapToInt(executor -> executor.getQueue().size()).sum();
+    }
+
+    /**
+     * 因积压已满被丢弃的镜像写数量
+     */
+    public long getMirrorDropped() {
+        return mirrorDropped.get();
+    }
+
+    /**
+     * 执行失败的镜像写数量
+     */
+    public long getMirrorFailed() {
+        return mirrorFailed.get();
+    }
+
+    /**
+     * 关闭镜像写线程池，等待积压写入完成
+     */
+    public void shutdown(long timeoutMillis) {
+        mirrorExecutors.values().forEach(ThreadPoolExecutor::shutdown);
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try {
+            for (Map.Entry<String, ThreadPoolExecutor> entry : mirrorExecutors.entrySet()) {
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                if (!entry.getValue().awaitTermination(remaining, TimeUnit.MILLISECONDS)) {
+                    log.warn("Cluster group: {} shut down with {} pending mirror writes to cluster: {}", getGroupName(),
+                            entry.getValue().shutdownNow().size(), entry.getKey());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            mirrorExecutors.values().forEach(ThreadPoolExecutor::shutdownNow);
+        }
+    }
+
+    /**
+     * 成员运行时状态
+     */
+    private static class MemberState {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private volatile double ewmaLatency = 0;
+
+        private volatile long unhealthyUntil = 0;
+
+        private void recordLatency(long latencyMillis) {
+            ewmaLatency = ewmaLatency == 0 ? latencyMillis : EWMA_ALPHA * latencyMillis + (1 - EWMA_ALPHA) * ewmaLatency;
+        }
+
+        /**
+         * 负载估算：进行中请求数加权平均延迟
+         */
+        private double load() {
+            return (inFlight.get() + 1) * (ewmaLatency + 1);
+        }
+    }
+}
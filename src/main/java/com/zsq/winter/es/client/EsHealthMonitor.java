@@ -0,0 +1,176 @@
+package com.zsq.winter.es.client;
+
+import com.zsq.winter.es.entity.EsClusterHealth;
+import com.zsq.winter.es.util.EsExecutors;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集群健康检查
+ * <p>
+ * 后台定期以异步请求查询各集群的 _cluster/health 并缓存结果，读取健康状态不会产生请求；
+ * 同一集群上一次检查未完成时跳过本轮，避免集群变慢时检查请求堆积。懒加载且尚未创建客户端的集群不检查。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+@Slf4j
+public class EsHealthMonitor {
+
+    private final EsRestClient esRestClient;
+
+    private final long intervalMillis;
+
+    private final Map<String, EsClusterHealth> healthMap = new ConcurrentHashMap<>();
+
+    private final Set<String> checking = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService scheduler;
+
+    EsHealthMonitor(EsRestClient esRestClient, long intervalMillis) {
+        this.esRestClient = esRestClient;
+        this.intervalMillis = intervalMillis;
+    }
+
+    void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(EsExecutors.threadFactory("es-health"));
+        scheduler.scheduleWithFixedDelay(this::checkAll, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void checkAll() {
+        for (String clusterName : esRestClient.getClusterNames()) {
+            if (esRestClient.isClientInitialized(clusterName) && checking.add(clusterName)) {
+                try {
+                    check(clusterName);
+                } catch (Exception e) {
+                    checking.remove(clusterName);
+                    update(clusterName, unreachable(clusterName, 0, e));
+                }
+            }
+        }
+    }
+
+    private void check(String clusterName) {
+        RestHighLevelClient client = esRestClient.getClient(clusterName);
+        Request request = new Request("GET", "/_cluster/health");
+        long start = System.currentTimeMillis();
+        client.getLowLevelClient().performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                long latency = System.currentTimeMillis() - start;
+                try {
+                    byte[] body = EntityUtils.toByteArray(response.getEntity());
+                    Map<String, Object> map = XContentHelper.convertToMap(new BytesArray(body), false, XContentType.JSON).v2();
+                    update(clusterName, new EsClusterHealth()
+                            .setClusterName(clusterName)
+                            .setConnected(true)
+                            .setStatus(String.valueOf(map.get("status")))
+                            .setNumberOfNodes(intValue(map.get("number_of_nodes")))
+                            .setActiveShards(intValue(map.get("active_shards")))
+                            .setUnassignedShards(intValue(map.get("unassigned_shards")))
+                            .setLatencyMillis(latency)
+                            .setCheckedAt(System.currentTimeMillis()));
+                } catch (Exception e) {
+                    update(clusterName, unreachable(clusterName, latency, e));
+                } finally {
+                    checking.remove(clusterName);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+                long latency = System.currentTimeMillis() - start;
+                try {
+                    int status = exception instanceof ResponseException
+                            ? ((ResponseException) exception).getResponse().getStatusLine().getStatusCode() : 0;
+                    if (status > 0 && status < 500) {
+                        // 收到 4xx 说明集群可以连接，只是无权查看集群健康；5xx（如 503 master_not_discovered）视为不可用
+                        update(clusterName, new EsClusterHealth()
+                                .setClusterName(clusterName)
+                                .setConnected(true)
+                                .setStatus(EsClusterHealth.UNKNOWN)
+                                .setLatencyMillis(latency)
+                                .setCheckedAt(System.currentTimeMillis())
+                                .setError("HTTP " + status));
+                    } else {
+                        update(clusterName, unreachable(clusterName, latency, exception));
+                    }
+                } finally {
+                    checking.remove(clusterName);
+                }
+            }
+        });
+    }
+
+    private void update(String clusterName, EsClusterHealth health) {
+        EsClusterHealth previous = healthMap.put(clusterName, health);
+        String previousStatus = previous == null ? null : previous.getStatus();
+        if (!health.getStatus().equals(previousStatus)) {
+            if (health.isConnected()) {
+                log.info("Cluster: {} health changed from {} to {}", clusterName, previousStatus, health.getStatus());
+            } else {
+                log.warn("Cluster: {} health changed from {} to {}: {}", clusterName, previousStatus, health.getStatus(), health.getError());
+            }
+        }
+    }
+
+    private static EsClusterHealth unreachable(String clusterName, long latency, Exception e) {
+        return new EsClusterHealth()
+                .setClusterName(clusterName)
+                .setConnected(false)
+                .setStatus(EsClusterHealth.UNREACHABLE)
+                .setLatencyMillis(latency)
+                .setCheckedAt(System.currentTimeMillis())
+                .setError(e.toString());
+    }
+
+    private static int intValue(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    /**
+     * 获取集群最近一次的健康状态
+     *
+     * @param clusterName 集群名称
+     * @return 健康状态，尚未检查时返回 null
+     */
+    public EsClusterHealth getHealth(String clusterName) {
+        return healthMap.get(clusterName);
+    }
+
+    /**
+     * 获取全部集群最近一次的健康状态
+     */
+    public Map<String, EsClusterHealth> getHealthMap() {
+        return Collections.unmodifiableMap(healthMap);
+    }
+
+    /**
+     * 检查间隔（毫秒）
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+}
@@ -0,0 +1,219 @@
+package com.zsq.winter.es.client;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 由池化缓冲区组成的请求体
+ * <p>
+ * 通过 {@link #getOutputStream()} 写入内容，{@link #seal()} 后由异步客户端通过 {@link HttpAsyncContentProducer}
+ * 直接把各缓冲区写入连接，不再合并成一个数组。客户端在重试前会调用 {@link #close()}，因此 close 只重置发送位置；
+ * 请求结束后由调用方调用 {@link #release()} 把缓冲区归还缓冲池。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+public class EsPooledEntity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+
+    private final EsBufferPool pool;
+
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+
+    private long length;
+
+    private boolean sealed;
+
+    private boolean released;
+
+    /**
+     * 正在发送的缓冲区下标
+     */
+    private int producingIndex;
+
+    /**
+     * 正在发送的缓冲区视图，保留原缓冲区的位置以便重试时重新发送
+     */
+    private ByteBuffer producing;
+
+    EsPooledEntity(EsBufferPool pool, ContentType contentType) {
+        this.pool = pool;
+        setContentType(contentType.toString());
+    }
+
+    /**
+     * 获取写入内容的输出流，close 不会结束写入
+     */
+    OutputStream getOutputStream() {
+        return new PooledOutputStream();
+    }
+
+    /**
+     * 结束写入，之后内容只读
+     */
+    void seal() {
+        if (!sealed) {
+            buffers.forEach(ByteBuffer::flip);
+            sealed = true;
+        }
+    }
+
+    /**
+     * 归还缓冲区，请求结束后调用，可重复调用
+     */
+    public synchronized void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        producing = null;
+        buffers.forEach(pool::release);
+        buffers.clear();
+    }
+
+    @Override
+    public synchronized void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+        if (released) {
+            throw new IOException("Request entity already released");
+        }
+        while (producingIndex < buffers.size()) {
+            if (producing == null) {
+                producing = buffers.get(producingIndex).duplicate();
+            }
+            encoder.write(producing);
+            if (producing.hasRemaining()) {
+                // 连接暂时不可写，等待下一次回调
+                return;
+            }
+            producing = null;
+            producingIndex++;
+        }
+        encoder.complete();
+    }
+
+    @Override
+    public synchronized void close() {
+        producingIndex = 0;
+        producing = null;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public InputStream getContent() {
+        return new BuffersInputStream();
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        InputStream content = getContent();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = content.read(chunk)) > 0) {
+            outputStream.write(chunk, 0, read);
+        }
+        outputStream.flush();
+    }
+
+    /**
+     * 缓冲池已达上限，调用方应释放已写入的内容并改用其他方式发送
+     */
+    static class PoolExhaustedException extends IOException {
+
+        PoolExhaustedException() {
+            super("Buffer pool exhausted");
+        }
+    }
+
+    private class PooledOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            current().put((byte) b);
+            length++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                ByteBuffer buffer = current();
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+                length += n;
+            }
+        }
+
+        @Override
+        public void close() {
+            // XContentBuilder 关闭时会关闭目标流，写入由 seal 结束
+        }
+
+        private ByteBuffer current() throws IOException {
+            if (sealed || released) {
+                throw new IllegalStateException("Request entity is no longer writable");
+            }
+            ByteBuffer buffer = buffers.isEmpty() ? null : buffers.get(buffers.size() - 1);
+            if (buffer == null || !buffer.hasRemaining()) {
+                buffer = pool.acquire();
+                if (buffer == null) {
+                    throw new PoolExhaustedException();
+                }
+                buffers.add(buffer);
+            }
+            return buffer;
+        }
+    }
+
+    private class BuffersInputStream extends InputStream {
+
+        private int index;
+
+        private ByteBuffer current;
+
+        @Override
+        public int read() {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            while (current == null || !current.hasRemaining()) {
+                if (index >= buffers.size()) {
+                    return -1;
+                }
+                current = buffers.get(index++).duplicate();
+            }
+            int n = Math.min(len, current.remaining());
+            current.get(b, off, n);
+            return n;
+        }
+    }
+}
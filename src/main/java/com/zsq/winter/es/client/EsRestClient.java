@@ -1,12 +1,20 @@
 package com.zsq.winter.es.client;
 
 import com.zsq.winter.es.entity.EsConfigProperties;
+import com.zsq.winter.es.entity.EsClusterHealth;
+import com.zsq.winter.es.spool.EsWriteSpool;
+import com.zsq.winter.es.util.EsExecutors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.HttpHost;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.elasticsearch.client.HttpAsyncResponseConsumerFactory;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.RestHighLevelClient;
@@ -16,9 +24,17 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Elasticsearch 客户端初始化类
@@ -32,7 +48,47 @@ public class EsRestClient {
     /**
      * 客户端映射表
      */
-    private final Map<String, RestHighLevelClient> clientMap = new HashMap<>();
+    private final Map<String, RestHighLevelClient> clientMap = new ConcurrentHashMap<>();
+
+    /**
+     * 懒加载集群配置表，客户端在首次 {@link #getClient(String)} 时创建
+     */
+    private final Map<String, EsConfigProperties.EsClusterConfig> lazyConfigMap = new LinkedHashMap<>();
+
+    /**
+     * 全部集群名称（按配置顺序）
+     */
+    private final Set<String> clusterNames = new LinkedHashSet<>();
+
+    /**
+     * 集群组映射表
+     */
+    private final Map<String, EsClusterGroup> groupMap = new LinkedHashMap<>();
+
+    /**
+     * 按集群缓存的默认请求选项
+     */
+    private final Map<String, RequestOptions> requestOptionsMap = new ConcurrentHashMap<>();
+
+    /**
+     * 后台健康检查，未启用时为 null
+     */
+    private volatile EsHealthMonitor healthMonitor;
+
+    /**
+     * 懒加载客户端创建锁，每个集群一把，创建一个集群的客户端不阻塞其他集群的首次访问
+     */
+    private final Map<String, ReentrantLock> lazyInitLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 写入暂存映射表，仅包含启用暂存的集群
+     */
+    private final Map<String, EsWriteSpool> spoolMap = new LinkedHashMap<>();
+
+    /**
+     * 是否已销毁，销毁后不再创建懒加载客户端
+     */
+    private volatile boolean closed = false;
 
     private final EsConfigProperties esConfigProperties;
 
@@ -45,6 +101,7 @@ public class EsRestClient {
 
     /**
      * 初始化客户端连接
+     * 懒加载集群仅登记配置；其余集群按 initThreads 并行创建，并按需预热
      */
     @PostConstruct
     public void initialize() {
@@ -54,27 +111,187 @@ public class EsRestClient {
             return;
         }
 
+        List<EsConfigProperties.EsClusterConfig> eagerConfigs = new ArrayList<>();
         for (EsConfigProperties.EsClusterConfig esConfig : esConfigs) {
-            try {
-                log.info("Initializing Elasticsearch client for cluster: {}, hosts: {}",
-                        esConfig.getClusterName(), esConfig.getHosts());
-                RestHighLevelClient client = createRestClient(esConfig);
-                if (!ObjectUtils.isEmpty(client)) {
-                    clientMap.put(esConfig.getClusterName(), client);
-                    log.info("Successfully initialized client for cluster: {}", esConfig.getClusterName());
+            clusterNames.add(esConfig.getClusterName());
+            if (Boolean.TRUE.equals(esConfig.getLazy())) {
+                lazyConfigMap.put(esConfig.getClusterName(), esConfig);
+                log.info("Elasticsearch client for cluster: {} will be initialized lazily", esConfig.getClusterName());
+            } else {
+                eagerConfigs.add(esConfig);
+            }
+        }
+        initializeGroups();
+        initializeSpools(esConfigs);
+
+        initializeEagerClusters(eagerConfigs);
+        startHealthMonitor();
+    }
+
+    /**
+     * 按 initThreads 并行创建非懒加载集群的客户端
+     */
+    private void initializeEagerClusters(List<EsConfigProperties.EsClusterConfig> eagerConfigs) {
+        int initThreads = ObjectUtils.isEmpty(esConfigProperties.getInitThreads()) ? 1 : esConfigProperties.getInitThreads();
+        int threads = Math.min(initThreads, eagerConfigs.size());
+        if (threads <= 1) {
+            eagerConfigs.forEach(this::initializeCluster);
+            return;
+        }
+
+        ExecutorService executor = EsExecutors.newTaskExecutor("es-client-init", threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(eagerConfigs.size());
+            for (EsConfigProperties.EsClusterConfig esConfig : eagerConfigs) {
+                futures.add(executor.submit(() -> initializeCluster(esConfig)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while initializing Elasticsearch clients", e);
+        } catch (Exception e) {
+            log.error("Failed to initialize Elasticsearch clients", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 启动后台健康检查
+     */
+    private void startHealthMonitor() {
+        Long interval = esConfigProperties.getHealthCheckIntervalMs();
+        if (ObjectUtils.isEmpty(interval) || interval <= 0) {
+            return;
+        }
+        healthMonitor = new EsHealthMonitor(this, interval);
+        healthMonitor.start();
+        log.info("Started Elasticsearch health monitor with interval: {} ms", interval);
+    }
+
+    /**
+     * 初始化集群组，成员必须是已配置的集群
+     */
+    private void initializeGroups() {
+        List<EsConfigProperties.EsClusterGroupConfig> groupConfigs = esConfigProperties.getClusterGroups();
+        if (ObjectUtils.isEmpty(groupConfigs)) {
+            return;
+        }
+        for (EsConfigProperties.EsClusterGroupConfig groupConfig : groupConfigs) {
+            if (clusterNames.contains(groupConfig.getGroupName())) {
+                throw new RuntimeException("Cluster group name conflicts with cluster name: " + groupConfig.getGroupName());
+            }
+            for (String member : groupConfig.getMembers()) {
+                if (!clusterNames.contains(member)) {
+                    throw new RuntimeException("Unknown member cluster: " + member + " in cluster group: " + groupConfig.getGroupName());
                 }
+            }
+            groupMap.put(groupConfig.getGroupName(), new EsClusterGroup(groupConfig));
+            log.info("Initialized cluster group: {}, members: {}, read strategy: {}",
+                    groupConfig.getGroupName(), groupConfig.getMembers(), groupConfig.getReadStrategy());
+        }
+    }
+
+    /**
+     * 初始化启用了写入暂存的集群的暂存
+     */
+    private void initializeSpools(List<EsConfigProperties.EsClusterConfig> esConfigs) {
+        for (EsConfigProperties.EsClusterConfig esConfig : esConfigs) {
+            if (ObjectUtils.isEmpty(esConfig.getSpool()) || !Boolean.TRUE.equals(esConfig.getSpool().getEnabled())) {
+                continue;
+            }
+            try {
+                EsWriteSpool spool = new EsWriteSpool(esConfig.getClusterName(), esConfig.getSpool(), this);
+                spool.open();
+                spoolMap.put(esConfig.getClusterName(), spool);
+                log.info("Initialized write spool for cluster: {}, directory: {}",
+                        esConfig.getClusterName(), esConfig.getSpool().getDirectory());
             } catch (Exception e) {
-                log.error("Failed to initialize client for cluster: {}, hosts: {}",
-                        esConfig.getClusterName(), esConfig.getHosts(), e);
+                log.error("Failed to initialize write spool for cluster: {}", esConfig.getClusterName(), e);
             }
         }
     }
 
+    /**
+     * 创建单个集群的客户端，并在开启预热时执行预热
+     */
+    private void initializeCluster(EsConfigProperties.EsClusterConfig esConfig) {
+        try {
+            log.info("Initializing Elasticsearch client for cluster: {}, hosts: {}",
+                    esConfig.getClusterName(), esConfig.getHosts());
+            RestHighLevelClient client = createRestClient(esConfig);
+            if (!ObjectUtils.isEmpty(client)) {
+                clientMap.put(esConfig.getClusterName(), client);
+                log.info("Successfully initialized client for cluster: {}", esConfig.getClusterName());
+                if (Boolean.TRUE.equals(esConfig.getWarmUp())) {
+                    warmUp(esConfig, client);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to initialize client for cluster: {}, hosts: {}",
+                    esConfig.getClusterName(), esConfig.getHosts(), e);
+        }
+    }
+
+    /**
+     * 预热客户端：先 ping 集群，再并发发送轻量请求，让连接池提前为每个节点建立连接，
+     * 避免首个业务请求承担建连开销
+     */
+    private void warmUp(EsConfigProperties.EsClusterConfig esConfig, RestHighLevelClient client) {
+        long start = System.currentTimeMillis();
+        try {
+            if (!client.ping(RequestOptions.DEFAULT)) {
+                log.warn("Warm-up ping failed for cluster: {}", esConfig.getClusterName());
+                return;
+            }
+
+            RestClient lowLevelClient = client.getLowLevelClient();
+            int perNode = ObjectUtils.isEmpty(esConfig.getWarmUpConnections()) ? 0 : esConfig.getWarmUpConnections();
+            int connections = perNode * lowLevelClient.getNodes().size();
+            CountDownLatch latch = new CountDownLatch(connections);
+            ResponseListener listener = new ResponseListener() {
+                @Override
+                public void onSuccess(Response response) {
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFailure(Exception exception) {
+                    latch.countDown();
+                }
+            };
+            // 并发请求会迫使连接池为同一节点打开多条连接
+            for (int i = 0; i < connections; i++) {
+                lowLevelClient.performRequestAsync(new Request("HEAD", "/"), listener);
+            }
+            if (!latch.await(esConfig.getConnectTimeout() + esConfig.getSocketTimeout(), TimeUnit.MILLISECONDS)) {
+                log.warn("Warm-up of cluster: {} did not finish in time", esConfig.getClusterName());
+                return;
+            }
+            log.info("Warmed up cluster: {} with {} connections in {} ms",
+                    esConfig.getClusterName(), connections, System.currentTimeMillis() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Warm-up of cluster: {} was interrupted", esConfig.getClusterName());
+        } catch (Exception e) {
+            log.warn("Failed to warm up cluster: {}", esConfig.getClusterName(), e);
+        }
+    }
+
     /**
      * 销毁客户端连接
      */
     @PreDestroy
     public void destroy() {
+        closed = true;
+        if (healthMonitor != null) {
+            healthMonitor.stop();
+        }
+        // 先等待镜像写积压完成，再关闭客户端
+        groupMap.values().forEach(group -> group.shutdown(5000L));
+        spoolMap.values().forEach(EsWriteSpool::close);
         clientMap.values().forEach(client -> {
             try {
                 client.close();
@@ -138,26 +355,145 @@ public class EsRestClient {
      */
     public RestHighLevelClient getClient(String clusterName) {
         RestHighLevelClient client = clientMap.get(clusterName);
-        if (ObjectUtils.isEmpty(client)) {
+        if (!ObjectUtils.isEmpty(client)) {
+            return client;
+        }
+        EsConfigProperties.EsClusterConfig lazyConfig = ObjectUtils.isEmpty(clusterName) ? null : lazyConfigMap.get(clusterName);
+        if (ObjectUtils.isEmpty(lazyConfig)) {
             throw new RuntimeException("Elasticsearch client not found for cluster: " + clusterName);
         }
-        return client;
+        // 保证并发首次访问时只创建一个客户端；使用 ReentrantLock 而非 synchronized，避免虚拟线程被固定
+        ReentrantLock lazyInitLock = lazyInitLocks.computeIfAbsent(clusterName, key -> new ReentrantLock());
+        lazyInitLock.lock();
+        try {
+            client = clientMap.get(clusterName);
+            if (ObjectUtils.isEmpty(client)) {
+                if (closed) {
+                    throw new RuntimeException("Elasticsearch clients have been closed, cluster: " + clusterName);
+                }
+                log.info("Lazily initializing Elasticsearch client for cluster: {}, hosts: {}",
+                        clusterName, lazyConfig.getHosts());
+                client = createRestClient(lazyConfig);
+                clientMap.put(clusterName, client);
+            }
+            return client;
+        } finally {
+            lazyInitLock.unlock();
+        }
     }
 
     /**
-     * 获取所有集群名称
+     * 获取所有集群名称（包含尚未创建客户端的懒加载集群）
      */
     public List<String> getClusterNames() {
-        return new ArrayList<>(clientMap.keySet());
+        Set<String> names = new LinkedHashSet<>(clusterNames);
+        names.addAll(clientMap.keySet());
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * 获取集群组，名称不是集群组时返回 null
+     */
+    public EsClusterGroup getClusterGroup(String name) {
+        return ObjectUtils.isEmpty(name) ? null : groupMap.get(name);
+    }
+
+    /**
+     * 解析实际集群名称：集群组返回其主集群，普通集群原样返回
+     */
+    public String resolvePrimary(String name) {
+        EsClusterGroup group = getClusterGroup(name);
+        return ObjectUtils.isEmpty(group) ? name : group.getPrimary();
+    }
+
+    /**
+     * 获取集群配置
+     */
+    public EsConfigProperties.EsClusterConfig getClusterConfig(String clusterName) {
+        return esConfigProperties.getEsConfigs().stream()
+                .filter(esConfig -> esConfig.getClusterName().equals(clusterName))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Elasticsearch cluster config not found for cluster: " + clusterName));
+    }
+
+    /**
+     * 获取集群最近一次后台健康检查的结果
+     *
+     * @param clusterName 集群名称
+     * @return 健康状态，未启用健康检查或尚未检查时返回 null
+     */
+    public EsClusterHealth getClusterHealth(String clusterName) {
+        EsHealthMonitor monitor = healthMonitor;
+        return monitor == null ? null : monitor.getHealth(clusterName);
+    }
+
+    /**
+     * 获取后台健康检查，未启用时返回 null
+     */
+    public EsHealthMonitor getHealthMonitor() {
+        return healthMonitor;
+    }
+
+    /**
+     * 获取集群的默认请求选项，按集群配置的响应缓冲上限创建响应消费者
+     */
+    public RequestOptions getRequestOptions(String clusterName) {
+        return requestOptionsMap.computeIfAbsent(clusterName, name -> {
+            Integer limit = getClusterConfig(name).getResponseBufferLimitBytes();
+            RequestOptions.Builder builder = RequestOptions.DEFAULT.toBuilder();
+            if (!ObjectUtils.isEmpty(limit) && limit > 0) {
+                builder.setHttpAsyncResponseConsumerFactory(
+                        new HttpAsyncResponseConsumerFactory.HeapBufferedResponseConsumerFactory(limit));
+            }
+            return builder.build();
+        });
+    }
+
+    /**
+     * 获取集群的写入暂存，未启用暂存时返回 null
+     */
+    public EsWriteSpool getSpool(String clusterName) {
+        return ObjectUtils.isEmpty(clusterName) ? null : spoolMap.get(clusterName);
+    }
+
+    /**
+     * 获取所有写入暂存
+     */
+    public List<EsWriteSpool> getSpools() {
+        return new ArrayList<>(spoolMap.values());
+    }
+
+    /**
+     * 获取所有集群组名称
+     */
+    public List<String> getClusterGroupNames() {
+        return new ArrayList<>(groupMap.keySet());
+    }
+
+    /**
+     * 集群客户端是否已创建
+     */
+    public boolean isClientInitialized(String clusterName) {
+        return clientMap.containsKey(clusterName);
     }
 
     /**
      * 检查集群连接状态
+     * 启用后台健康检查时直接返回缓存的结果，不发送请求；尚未检查过的集群同步 ping 一次
      */
     public boolean isClusterConnected(String clusterName) {
+        EsClusterGroup group = getClusterGroup(clusterName);
+        if (!ObjectUtils.isEmpty(group)) {
+            // 集群组只要有一个成员可用即视为连接正常
+            return group.getMembers().stream().anyMatch(this::isClusterConnected);
+        }
+        EsClusterHealth health = getClusterHealth(clusterName);
+        if (health != null) {
+            return health.isConnected();
+        }
         try {
             RestHighLevelClient client = getClient(clusterName);
-            return client.ping(org.elasticsearch.client.RequestOptions.DEFAULT);
+            return client.ping(RequestOptions.DEFAULT);
         } catch (Exception e) {
             log.error("Failed to ping cluster: {}", clusterName, e);
             return false;
@@ -0,0 +1,241 @@
+package com.zsq.winter.es.client;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流式响应消费者
+ * <p>
+ * 网络线程收到的响应体分块放入队列，由调用线程通过 {@link #getContent()} 边读边解析，不在堆内缓冲完整响应。
+ * 未读取的字节超过高水位时暂停读取连接（{@link IOControl#suspendInput()}），
+ * 降到低水位（高水位的一半）后恢复，因此内存占用与响应大小无关。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+public class EsStreamingResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+
+    /**
+     * 默认高水位 1MB
+     */
+    public static final int DEFAULT_HIGH_WATERMARK = 1024 * 1024;
+
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * 响应结束标记，按引用比较
+     */
+    private static final byte[] EOF = new byte[0];
+
+    private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+
+    private final AtomicLong bufferedBytes = new AtomicLong();
+
+    private final AtomicBoolean suspended = new AtomicBoolean(false);
+
+    private final CountDownLatch responseReceived = new CountDownLatch(1);
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    private final long highWatermark;
+
+    private final long lowWatermark;
+
+    private volatile HttpResponse response;
+
+    private volatile IOControl ioControl;
+
+    private volatile Exception abortException;
+
+    public EsStreamingResponseConsumer(int highWatermark) {
+        this.highWatermark = Math.max(READ_BUFFER_SIZE, highWatermark);
+        this.lowWatermark = this.highWatermark / 2;
+    }
+
+    @Override
+    protected void onResponseReceived(HttpResponse response) {
+        this.response = response;
+        responseReceived.countDown();
+    }
+
+    @Override
+    protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) {
+        // 响应体由 onContentReceived 分块处理
+    }
+
+    @Override
+    protected void onContentReceived(ContentDecoder decoder, IOControl ioControl) throws IOException {
+        this.ioControl = ioControl;
+        int read;
+        while (!suspended.get() && (read = decoder.read(readBuffer)) > 0) {
+            readBuffer.flip();
+            byte[] chunk = new byte[read];
+            readBuffer.get(chunk);
+            readBuffer.clear();
+            chunks.add(chunk);
+            if (bufferedBytes.addAndGet(read) >= highWatermark) {
+                suspended.set(true);
+                ioControl.suspendInput();
+                // 调用线程可能已在暂停前读空队列，再检查一次避免永久暂停
+                if (bufferedBytes.get() <= lowWatermark && suspended.compareAndSet(true, false)) {
+                    ioControl.requestInput();
+                }
+            }
+        }
+    }
+
+    @Override
+    protected HttpResponse buildResult(HttpContext context) {
+        return response;
+    }
+
+    @Override
+    protected void releaseResources() {
+        // 完成、失败与取消都会调用，唤醒等待中的调用线程
+        chunks.add(EOF);
+        responseReceived.countDown();
+    }
+
+    /**
+     * 以调用方的异常终止读取，如请求在收到响应前失败；已收到响应时忽略，由响应体本身结束读取
+     *
+     * @param exception 异常
+     */
+    public void abort(Exception exception) {
+        if (response != null) {
+            return;
+        }
+        abortException = exception;
+        chunks.add(EOF);
+        responseReceived.countDown();
+    }
+
+    /**
+     * 等待响应头
+     *
+     * @return 响应，包含状态码与响应头
+     * @throws IOException 请求失败或等待被中断
+     */
+    public HttpResponse awaitResponse() throws IOException {
+        try {
+            responseReceived.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for response");
+        }
+        if (response == null) {
+            throw failure();
+        }
+        return response;
+    }
+
+    /**
+     * 获取响应体输入流，只能由一个线程读取
+     *
+     * @return 输入流
+     */
+    public InputStream getContent() {
+        return new ChunkInputStream();
+    }
+
+    /**
+     * 当前未被读取的字节数
+     */
+    public long getBufferedBytes() {
+        return bufferedBytes.get();
+    }
+
+    private IOException failure() {
+        Exception exception = abortException != null ? abortException : getException();
+        if (exception instanceof IOException) {
+            return (IOException) exception;
+        }
+        return exception == null ? new IOException("Request cancelled") : new IOException(exception);
+    }
+
+    private void onChunkConsumed(int length) {
+        if (bufferedBytes.addAndGet(-length) <= lowWatermark && suspended.compareAndSet(true, false)) {
+            ioControl.requestInput();
+        }
+    }
+
+    private class ChunkInputStream extends InputStream {
+
+        private byte[] current;
+
+        private int position;
+
+        private boolean finished;
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureChunk()) {
+                return -1;
+            }
+            return current[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureChunk()) {
+                return -1;
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return current == null ? 0 : current.length - position;
+        }
+
+        private boolean ensureChunk() throws IOException {
+            if (current != null && position < current.length) {
+                return true;
+            }
+            if (finished) {
+                return false;
+            }
+            byte[] chunk;
+            try {
+                chunk = chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading response");
+            }
+            if (chunk == EOF) {
+                finished = true;
+                current = null;
+                // 取消或失败时没有结果
+                if (abortException != null || getException() != null || getResult() == null) {
+                    throw failure();
+                }
+                return false;
+            }
+            current = chunk;
+            position = 0;
+            onChunkConsumed(chunk.length);
+            return true;
+        }
+    }
+}
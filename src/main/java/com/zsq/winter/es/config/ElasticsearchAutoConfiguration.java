@@ -4,6 +4,8 @@ import com.zsq.winter.es.client.EsRestClient;
 import com.zsq.winter.es.entity.BannerCreator;
 import com.zsq.winter.es.entity.EsConfigProperties;
 import com.zsq.winter.es.service.EsTemplate;
+import org.springframework.boot.actuate.autoconfigure.health.ConditionalOnEnabledHealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -33,13 +35,23 @@ public class ElasticsearchAutoConfiguration {
     /**
      * 配置 Elasticsearch 操作模板
      * 
-     * @param esRestClient ES客户端
+     * @param esRestClient       ES客户端
+     * @param esConfigProperties ES配置属性
      * @return ES操作模板实例
      */
     @Bean
     @ConditionalOnMissingBean
-    public EsTemplate esTemplate(EsRestClient esRestClient) {
-        return new EsTemplate(esRestClient);
+    public EsTemplate esTemplate(EsRestClient esRestClient, EsConfigProperties esConfigProperties) {
+        EsTemplate esTemplate = new EsTemplate(esRestClient);
+        esTemplate.setSingleFlightEnabled(Boolean.TRUE.equals(esConfigProperties.getSingleFlight()));
+        esConfigProperties.getQueryPolicies().forEach(esTemplate::registerQueryPolicy);
+        esTemplate.setSuggestCache(esConfigProperties.getSuggestCacheSize(), esConfigProperties.getSuggestCacheTtlMs());
+        esTemplate.setWriteCoalescing(esConfigProperties.getWriteCoalesceWindowMs(), esConfigProperties.getWriteCoalesceMaxPending());
+        esTemplate.setBulkBufferPool(esConfigProperties.getBulkBufferSize(), esConfigProperties.getBulkBufferMaxPooled(),
+                Boolean.TRUE.equals(esConfigProperties.getBulkBufferDirect()));
+        esTemplate.setBulkThreads(esConfigProperties.getBulkThreads());
+        esTemplate.setFederatedThreads(esConfigProperties.getFederatedThreads());
+        return esTemplate;
     }
 
     /**
@@ -56,4 +68,33 @@ public class ElasticsearchAutoConfiguration {
         return new BannerCreator(esConfigProperties);
     }
 
+    /**
+     * 引入 Actuator 时注册健康检查端点（/actuator/health 中的 winterEs），可通过 management.health.winter-es.enabled=false 关闭
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.health.HealthIndicator")
+    static class EsHealthIndicatorConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(name = "winterEsHealthIndicator")
+        @ConditionalOnEnabledHealthIndicator("winter-es")
+        public EsHealthIndicator winterEsHealthIndicator(EsRestClient esRestClient, EsConfigProperties esConfigProperties) {
+            return new EsHealthIndicator(esRestClient, Boolean.TRUE.equals(esConfigProperties.getHealthDownOnFailure()));
+        }
+    }
+
+    /**
+     * 引入 Micrometer 时注册集群健康指标
+     */
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.binder.MeterBinder")
+    static class EsHealthMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public EsHealthMetrics esHealthMetrics(EsRestClient esRestClient) {
+            return new EsHealthMetrics(esRestClient);
+        }
+    }
+
 } 
\ No newline at end of file
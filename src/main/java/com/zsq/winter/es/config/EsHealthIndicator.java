@@ -0,0 +1,69 @@
+package com.zsq.winter.es.config;
+
+import com.zsq.winter.es.client.EsRestClient;
+import com.zsq.winter.es.entity.EsClusterHealth;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Elasticsearch 健康检查端点
+ * 读取后台健康检查缓存的结果，探活请求不会转发到集群；每个集群的状态作为明细输出，
+ * 无法连接或为 red 的集群列在 unhealthyClusters 中。默认整体保持 UP，避免单个集群故障导致整个应用被判定为不健康；
+ * 开启 downOnFailure 时存在异常集群则整体为 DOWN
+ *
+ * @author dadandiaoming
+ */
+public class EsHealthIndicator extends AbstractHealthIndicator {
+
+    private final EsRestClient esRestClient;
+
+    private final boolean downOnFailure;
+
+    public EsHealthIndicator(EsRestClient esRestClient) {
+        this(esRestClient, false);
+    }
+
+    public EsHealthIndicator(EsRestClient esRestClient, boolean downOnFailure) {
+        super("Elasticsearch health check failed");
+        this.esRestClient = esRestClient;
+        this.downOnFailure = downOnFailure;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        List<String> unhealthyClusters = new ArrayList<>();
+        for (String clusterName : esRestClient.getClusterNames()) {
+            Map<String, Object> details = new LinkedHashMap<>();
+            EsClusterHealth health = esRestClient.getClusterHealth(clusterName);
+            if (health == null) {
+                // 未启用后台检查，或懒加载集群尚未创建客户端
+                details.put("status", esRestClient.isClientInitialized(clusterName) ? EsClusterHealth.UNKNOWN : "not initialized");
+            } else {
+                details.put("status", health.getStatus());
+                details.put("numberOfNodes", health.getNumberOfNodes());
+                details.put("activeShards", health.getActiveShards());
+                details.put("unassignedShards", health.getUnassignedShards());
+                details.put("latencyMillis", health.getLatencyMillis());
+                details.put("checkedAt", health.getCheckedAt());
+                if (health.getError() != null) {
+                    details.put("error", health.getError());
+                }
+                if (!health.isConnected() || "red".equals(health.getStatus())) {
+                    unhealthyClusters.add(clusterName);
+                }
+            }
+            builder.withDetail(clusterName, details);
+        }
+        builder.withDetail("unhealthyClusters", unhealthyClusters);
+        if (downOnFailure && !unhealthyClusters.isEmpty()) {
+            builder.down();
+        } else {
+            builder.up();
+        }
+    }
+}
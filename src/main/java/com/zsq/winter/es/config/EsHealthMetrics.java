@@ -0,0 +1,65 @@
+package com.zsq.winter.es.config;
+
+import com.zsq.winter.es.client.EsRestClient;
+import com.zsq.winter.es.entity.EsClusterHealth;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Elasticsearch 健康指标
+ * <ul>
+ *     <li>winter.es.cluster.up：集群可连接为 1，否则为 0</li>
+ *     <li>winter.es.cluster.status：green 0、yellow 1、red 2，未知为 -1</li>
+ *     <li>winter.es.cluster.health.latency：最近一次健康检查耗时（毫秒）</li>
+ * </ul>
+ * 均读取后台健康检查缓存的结果
+ *
+ * @author dadandiaoming
+ */
+public class EsHealthMetrics implements MeterBinder {
+
+    private final EsRestClient esRestClient;
+
+    public EsHealthMetrics(EsRestClient esRestClient) {
+        this.esRestClient = esRestClient;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String clusterName : esRestClient.getClusterNames()) {
+            gauge(registry, "winter.es.cluster.up", clusterName, "Whether the cluster is reachable",
+                    health -> health.isConnected() ? 1 : 0);
+            gauge(registry, "winter.es.cluster.status", clusterName, "Cluster status: green 0, yellow 1, red 2, unknown -1",
+                    health -> statusValue(health.getStatus()));
+            gauge(registry, "winter.es.cluster.health.latency", clusterName, "Latency of the last health check in milliseconds",
+                    EsClusterHealth::getLatencyMillis);
+        }
+    }
+
+    private void gauge(MeterRegistry registry, String name, String clusterName, String description,
+                       ToDoubleFunction<EsClusterHealth> value) {
+        Gauge.builder(name, esRestClient, client -> {
+                    EsClusterHealth health = client.getClusterHealth(clusterName);
+                    return health == null ? Double.NaN : value.applyAsDouble(health);
+                })
+                .tag("cluster", clusterName)
+                .description(description)
+                .register(registry);
+    }
+
+    private static double statusValue(String status) {
+        if ("green".equals(status)) {
+            return 0;
+        }
+        if ("yellow".equals(status)) {
+            return 1;
+        }
+        if ("red".equals(status)) {
+            return 2;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,179 @@
+package com.zsq.winter.es.dump;
+
+import com.zsq.winter.es.entity.EsDumpOptions;
+import com.zsq.winter.es.entity.EsDumpResult;
+import com.zsq.winter.es.util.EsExecutors;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 索引导出
+ * <p>
+ * 每个切片一个滚动查询，按 _doc 顺序读取并写入独立的段文件；下一页的读取与当前页的写盘并行，
+ * 内存中最多保留两页命中。_source 以原始字节写出，不转换为 Map。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+@Slf4j
+public class EsDumpExporter {
+
+    private final RestHighLevelClient client;
+
+    private final RequestOptions requestOptions;
+
+    private final String indexName;
+
+    private final Path directory;
+
+    private final EsDumpOptions options;
+
+    private final AtomicLong docs = new AtomicLong();
+
+    public EsDumpExporter(RestHighLevelClient client, RequestOptions requestOptions, String indexName,
+                          Path directory, EsDumpOptions options) {
+        this.client = client;
+        this.requestOptions = requestOptions;
+        this.indexName = indexName;
+        this.directory = directory;
+        this.options = options;
+    }
+
+    /**
+     * 导出，阻塞到全部切片完成
+     *
+     * @return 导出结果
+     */
+    public EsDumpResult run() throws IOException {
+        long start = System.currentTimeMillis();
+        Files.createDirectories(directory);
+        int slices = Math.max(1, options.getSlices());
+        String namePrefix = EsDumpImporter.sanitize(indexName);
+        ExecutorService executor = EsExecutors.newTaskExecutor("es-dump-export", slices);
+        List<Future<EsDumpSegmentWriter>> futures = new ArrayList<>();
+        try {
+            for (int sliceId = 0; sliceId < slices; sliceId++) {
+                int slice = sliceId;
+                futures.add(executor.submit(() -> exportSlice(slice, slices, String.format("%s-%03d", namePrefix, slice))));
+            }
+            EsDumpResult result = new EsDumpResult();
+            int files = 0;
+            long bytes = 0;
+            for (int sliceId = 0; sliceId < futures.size(); sliceId++) {
+                try {
+                    EsDumpSegmentWriter writer = futures.get(sliceId).get();
+                    files += writer.getFiles();
+                    bytes += writer.getTotalBytes();
+                } catch (ExecutionException e) {
+                    log.error("Slice {} of export of index: {} failed", sliceId, indexName, e.getCause());
+                    result.getFailures().add("slice " + sliceId + ": " + e.getCause().getMessage());
+                }
+            }
+            return result.setFiles(files)
+                    .setDocs(docs.get())
+                    .setBytes(bytes)
+                    .setTookMillis(System.currentTimeMillis() - start);
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while exporting index " + indexName);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private EsDumpSegmentWriter exportSlice(int sliceId, int slices, String namePrefix) throws Exception {
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder()
+                .query(options.getQuery() == null ? QueryBuilders.matchAllQuery() : options.getQuery())
+                .size(options.getBatchSize())
+                .sort("_doc");
+        if (slices > 1) {
+            sourceBuilder.slice(new SliceBuilder(sliceId, slices));
+        }
+        TimeValue keepAlive = TimeValue.timeValueMinutes(options.getScrollMinutes());
+        SearchRequest searchRequest = new SearchRequest(indexName).source(sourceBuilder).scroll(keepAlive);
+
+        SearchResponse response = client.search(searchRequest, requestOptions);
+        String scrollId = response.getScrollId();
+        try (EsDumpSegmentWriter writer = new EsDumpSegmentWriter(directory, namePrefix, options.isCompress(), options.getSegmentBytes())) {
+            while (response.getHits().getHits().length > 0) {
+                // 先请求下一页，再写当前页
+                CompletableFuture<SearchResponse> next = new CompletableFuture<>();
+                client.scrollAsync(new SearchScrollRequest(scrollId).scroll(keepAlive), requestOptions,
+                        ActionListener.wrap(next::complete, next::completeExceptionally));
+                for (SearchHit hit : response.getHits().getHits()) {
+                    if (hit.getSourceRef() == null) {
+                        throw new IllegalStateException("Index " + indexName + " has _source disabled, cannot export document " + hit.getId());
+                    }
+                    writer.write(actionLine(hit), BytesReference.toBytes(hit.getSourceRef()));
+                }
+                docs.addAndGet(response.getHits().getHits().length);
+                try {
+                    response = next.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+                scrollId = response.getScrollId();
+            }
+            log.info("Slice {} of export of index: {} finished", sliceId, indexName);
+            return writer;
+        } finally {
+            clearScroll(scrollId);
+        }
+    }
+
+    /**
+     * 生成不含索引名称的 index 操作行，导入时由 bulk 地址决定目标索引；保留路由
+     */
+    private static byte[] actionLine(SearchHit hit) throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject().startObject("index").field("_id", hit.getId());
+        DocumentField routing = hit.field("_routing");
+        if (routing != null) {
+            builder.field("routing", String.valueOf((Object) routing.getValue()));
+        }
+        builder.endObject().endObject();
+        return Strings.toString(builder).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void clearScroll(String scrollId) {
+        if (scrollId == null) {
+            return;
+        }
+        try {
+            ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+            clearScrollRequest.addScrollId(scrollId);
+            client.clearScroll(clearScrollRequest, requestOptions);
+        } catch (Exception e) {
+            log.warn("Failed to clear scroll of export of index: {}", indexName, e);
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.zsq.winter.es.dump;
+
+import com.zsq.winter.es.entity.EsDumpOptions;
+import com.zsq.winter.es.entity.EsDumpResult;
+import com.zsq.winter.es.util.EsExecutors;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NByteArrayEntity;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 索引导入
+ * <p>
+ * 段文件本身就是 bulk 格式，按字节切成不超过 bulkBytes 的请求体直接发送，切分点只需找到偶数个换行（一个文档两行），
+ * 不解析文档。多个文件并行导入；未压缩的文件可以内存映射读取。
+ * 被拒绝（429）的条目按响应中的位置取出重试，其他失败的条目计入失败数。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+@Slf4j
+public class EsDumpImporter {
+
+    private static final String NDJSON_SUFFIX = ".ndjson";
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private static final ContentType NDJSON_CONTENT_TYPE = ContentType.create("application/x-ndjson", StandardCharsets.UTF_8);
+
+    /**
+     * 只返回错误信息与各条目状态，避免成功时解析庞大的响应
+     */
+    private static final String FILTER_PATH = "errors,items.*.status,items.*.error";
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 内存映射的窗口大小，超过 2GB 的文件分段映射
+     */
+    private static final long MAP_WINDOW = 256L * 1024 * 1024;
+
+    private static final int MAX_FAILURES = 100;
+
+    private static final long INITIAL_BACKOFF_MILLIS = 100;
+
+    private static final long MAX_BACKOFF_MILLIS = 10000;
+
+    private final RestClient client;
+
+    private final RequestOptions requestOptions;
+
+    private final String indexName;
+
+    private final List<Path> files;
+
+    private final EsDumpOptions options;
+
+    private final AtomicLong docs = new AtomicLong();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final AtomicLong failedDocs = new AtomicLong();
+
+    private final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+    public EsDumpImporter(RestClient client, RequestOptions requestOptions, String indexName,
+                          List<Path> files, EsDumpOptions options) {
+        this.client = client;
+        this.requestOptions = requestOptions;
+        this.indexName = indexName;
+        this.files = files;
+        this.options = options;
+    }
+
+    /**
+     * 列出目录中的段文件（*.ndjson 与 *.ndjson.gz），按文件名排序
+     *
+     * @param directory 目录
+     * @return 段文件列表
+     */
+    public static List<Path> listSegments(Path directory) throws IOException {
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.endsWith(NDJSON_SUFFIX) || name.endsWith(NDJSON_SUFFIX + GZIP_SUFFIX);
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+
+    static String extension(boolean compress) {
+        return compress ? NDJSON_SUFFIX + GZIP_SUFFIX : NDJSON_SUFFIX;
+    }
+
+    /**
+     * 把索引名称转换为可用作文件名的字符串
+     */
+    static String sanitize(String indexName) {
+        return indexName.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * 导入，阻塞到全部文件完成
+     *
+     * @return 导入结果
+     */
+    public EsDumpResult run() throws IOException {
+        long start = System.currentTimeMillis();
+        EsDumpResult result = new EsDumpResult().setFiles(files.size());
+        if (files.isEmpty()) {
+            return result;
+        }
+        ExecutorService executor = EsExecutors.newTaskExecutor("es-dump-import",
+                Math.min(Math.max(1, options.getConcurrency()), files.size()));
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (Path file : files) {
+                futures.add(executor.submit(() -> {
+                    importFile(file);
+                    return null;
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    log.error("Import of file: {} into index: {} failed", files.get(i), indexName, e.getCause());
+                    recordFailure(files.get(i) + ": " + e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while importing index " + indexName);
+        } finally {
+            executor.shutdown();
+        }
+        synchronized (failures) {
+            result.getFailures().addAll(failures);
+        }
+        return result.setDocs(docs.get())
+                .setBytes(bytes.get())
+                .setFailedDocs(failedDocs.get())
+                .setTookMillis(System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 按文档边界切分文件并逐块发送
+     */
+    private void importFile(Path file) throws IOException {
+        boolean compressed = file.getFileName().toString().endsWith(GZIP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             InputStream input = openInput(channel, compressed)) {
+            byte[] buffer = new byte[Math.max(1024, options.getBulkBytes())];
+            // 已读入、已扫描的字节数，已扫描部分的换行数，最后一个完整文档的结束位置及其之前的文档数
+            int length = 0;
+            int scanned = 0;
+            int lines = 0;
+            int pairEnd = 0;
+            int pairs = 0;
+            while (true) {
+                int read = input.read(buffer, length, buffer.length - length);
+                if (read > 0) {
+                    length += read;
+                }
+                for (; scanned < length; scanned++) {
+                    if (buffer[scanned] == '\n' && ++lines % 2 == 0) {
+                        pairEnd = scanned + 1;
+                        pairs = lines / 2;
+                    }
+                }
+                if (read < 0) {
+                    if (pairEnd > 0) {
+                        send(file, buffer, pairEnd, pairs);
+                    }
+                    if (length > pairEnd) {
+                        recordFailure(file + ": truncated at the last " + (length - pairEnd) + " bytes");
+                    }
+                    break;
+                }
+                if (length < buffer.length) {
+                    continue;
+                }
+                if (pairEnd == 0) {
+                    // 单个文档超过缓冲区
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    continue;
+                }
+                send(file, buffer, pairEnd, pairs);
+                System.arraycopy(buffer, pairEnd, buffer, 0, length - pairEnd);
+                length -= pairEnd;
+                scanned -= pairEnd;
+                lines -= pairs * 2;
+                pairEnd = 0;
+                pairs = 0;
+            }
+        }
+        log.info("Imported file: {} into index: {}", file, indexName);
+    }
+
+    private InputStream openInput(FileChannel channel, boolean compressed) throws IOException {
+        if (compressed) {
+            return new GZIPInputStream(Channels.newInputStream(channel), READ_BUFFER_SIZE);
+        }
+        return options.isMemoryMap() ? new MappedInputStream(channel) : Channels.newInputStream(channel);
+    }
+
+    /**
+     * 发送一个 bulk 请求体，被拒绝的条目取出后退避重试
+     */
+    @SuppressWarnings("unchecked")
+    private void send(Path file, byte[] body, int length, int count) throws IOException {
+        bytes.addAndGet(length);
+        for (int attempt = 0; ; attempt++) {
+            Response response;
+            try {
+                response = performBulk(body, length);
+            } catch (ResponseException e) {
+                if (e.getResponse().getStatusLine().getStatusCode() != 429 || attempt >= options.getMaxRetries()) {
+                    throw e;
+                }
+                backoff(attempt);
+                continue;
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                // 按文档id写入，整体重发是幂等的
+                if (attempt >= options.getMaxRetries()) {
+                    throw e;
+                }
+                log.warn("Bulk of file: {} failed, retrying", file, e);
+                backoff(attempt);
+                continue;
+            }
+
+            Map<String, Object> result;
+            try (InputStream content = response.getEntity().getContent()) {
+                result = XContentHelper.convertToMap(XContentType.JSON.xContent(), content, false);
+            }
+            if (!Boolean.TRUE.equals(result.get("errors"))) {
+                docs.addAndGet(count);
+                return;
+            }
+
+            List<Map<String, Object>> items = (List<Map<String, Object>>) result.get("items");
+            List<Integer> rejected = new ArrayList<>();
+            int failed = 0;
+            for (int i = 0; i < items.size(); i++) {
+                Map<String, Object> item = (Map<String, Object>) items.get(i).values().iterator().next();
+                Object status = item.get("status");
+                if (status instanceof Number && ((Number) status).intValue() == 429) {
+                    rejected.add(i);
+                } else if (item.containsKey("error")) {
+                    failed++;
+                    recordFailure(file + ": " + item.get("error"));
+                }
+            }
+            failedDocs.addAndGet(failed);
+            docs.addAndGet(count - failed - rejected.size());
+            if (rejected.isEmpty()) {
+                return;
+            }
+            if (attempt >= options.getMaxRetries()) {
+                failedDocs.addAndGet(rejected.size());
+                recordFailure(file + ": " + rejected.size() + " documents still rejected after " + attempt + " retries");
+                return;
+            }
+            body = extractPairs(body, length, rejected);
+            length = body.length;
+            count = rejected.size();
+            backoff(attempt);
+        }
+    }
+
+    private Response performBulk(byte[] body, int length) throws IOException {
+        Request request = new Request("POST", "/" + indexName + "/_bulk");
+        request.addParameter("filter_path", FILTER_PATH);
+        request.setEntity(new NByteArrayEntity(body, 0, length, NDJSON_CONTENT_TYPE));
+        request.setOptions(requestOptions);
+        return client.performRequest(request);
+    }
+
+    /**
+     * 按条目位置取出对应的文档（两行），位置需升序
+     */
+    private static byte[] extractPairs(byte[] body, int length, List<Integer> indices) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int pairIndex = 0;
+        int pairStart = 0;
+        int lines = 0;
+        int next = 0;
+        for (int i = 0; i < length && next < indices.size(); i++) {
+            if (body[i] != '\n' || ++lines % 2 != 0) {
+                continue;
+            }
+            if (pairIndex == indices.get(next)) {
+                output.write(body, pairStart, i + 1 - pairStart);
+                next++;
+            }
+            pairIndex++;
+            pairStart = i + 1;
+        }
+        return output.toByteArray();
+    }
+
+    private static void backoff(int attempt) throws InterruptedIOException {
+        try {
+            TimeUnit.MILLISECONDS.sleep(Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << Math.min(attempt, 16)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off");
+        }
+    }
+
+    private void recordFailure(String message) {
+        synchronized (failures) {
+            if (failures.size() < MAX_FAILURES) {
+                failures.add(message);
+            }
+        }
+    }
+
+    /**
+     * 按窗口内存映射文件的输入流
+     */
+    private static final class MappedInputStream extends InputStream {
+
+        private final FileChannel channel;
+
+        private final long size;
+
+        private long position;
+
+        private MappedByteBuffer window;
+
+        private MappedInputStream(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (window == null || !window.hasRemaining()) {
+                if (position >= size) {
+                    return -1;
+                }
+                long mapped = Math.min(MAP_WINDOW, size - position);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, mapped);
+                position += mapped;
+            }
+            int n = Math.min(len, window.remaining());
+            window.get(b, off, n);
+            return n;
+        }
+    }
+}
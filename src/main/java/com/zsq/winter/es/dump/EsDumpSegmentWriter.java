@@ -0,0 +1,109 @@
+package com.zsq.winter.es.dump;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 段文件写入器，单线程使用
+ * <p>
+ * 每个文档写为 bulk 格式的两行：index 操作行与原始 _source 行，导入时可直接作为 bulk 请求体。
+ * 未压缩字节数超过上限后切换到新文件；文件先写为 .tmp，关闭后再改名，导入时不会读到未写完的段。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+class EsDumpSegmentWriter implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+
+    private final String namePrefix;
+
+    private final boolean compress;
+
+    private final long segmentBytes;
+
+    private int sequence;
+
+    private int files;
+
+    private Path current;
+
+    private OutputStream output;
+
+    private long currentBytes;
+
+    private long totalBytes;
+
+    EsDumpSegmentWriter(Path directory, String namePrefix, boolean compress, long segmentBytes) {
+        this.directory = directory;
+        this.namePrefix = namePrefix;
+        this.compress = compress;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * 写入一个文档
+     *
+     * @param action 操作行，不含换行
+     * @param source _source，不含换行
+     */
+    void write(byte[] action, byte[] source) throws IOException {
+        if (output == null || currentBytes >= segmentBytes) {
+            rotate();
+        }
+        output.write(action);
+        output.write('\n');
+        output.write(source);
+        output.write('\n');
+        long written = action.length + source.length + 2L;
+        currentBytes += written;
+        totalBytes += written;
+    }
+
+    private void rotate() throws IOException {
+        finishCurrent();
+        String name = String.format("%s-%05d%s", namePrefix, sequence++, EsDumpImporter.extension(compress));
+        current = directory.resolve(name);
+        FileChannel channel = FileChannel.open(directory.resolve(name + TMP_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        OutputStream channelOutput = Channels.newOutputStream(channel);
+        // 在压缩流前加缓冲，避免逐行调用 deflate
+        output = new BufferedOutputStream(compress ? new GZIPOutputStream(channelOutput, BUFFER_SIZE) : channelOutput, BUFFER_SIZE);
+        currentBytes = 0;
+    }
+
+    private void finishCurrent() throws IOException {
+        if (output == null) {
+            return;
+        }
+        output.close();
+        output = null;
+        Files.move(directory.resolve(current.getFileName() + TMP_SUFFIX), current, StandardCopyOption.REPLACE_EXISTING);
+        files++;
+    }
+
+    int getFiles() {
+        return files;
+    }
+
+    long getTotalBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finishCurrent();
+    }
+}
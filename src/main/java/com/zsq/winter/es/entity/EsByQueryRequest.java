@@ -0,0 +1,73 @@
+package com.zsq.winter.es.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.elasticsearch.index.query.QueryBuilder;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * es按查询删除/更新请求
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsByQueryRequest {
+
+    /**
+     * 查询条件，为空时匹配全部文档
+     */
+    private QueryBuilder query;
+
+    /**
+     * 更新脚本（painless），仅按查询更新时生效；为空时仅重新索引匹配文档
+     */
+    private String script;
+
+    /**
+     * 脚本参数
+     */
+    private Map<String, Object> scriptParams;
+
+    /**
+     * 切片数，0 表示 auto
+     */
+    private int slices = 1;
+
+    /**
+     * 限速（每秒文档数），小于等于 0 表示不限速
+     */
+    private float requestsPerSecond = -1;
+
+    /**
+     * 每批滚动读取的文档数
+     */
+    private int batchSize = 1000;
+
+    /**
+     * 最多处理的文档数，小于等于 0 表示不限制
+     */
+    private int maxDocs = -1;
+
+    /**
+     * 版本冲突时是否继续
+     */
+    private boolean proceedOnConflicts = true;
+
+    /**
+     * 完成后是否刷新索引
+     */
+    private boolean refresh = false;
+
+    /**
+     * 进度回调
+     */
+    private Consumer<EsTaskProgress> progressListener;
+
+    /**
+     * 进度回调间隔（毫秒）
+     */
+    private long progressIntervalMillis = 5000;
+}
@@ -0,0 +1,70 @@
+package com.zsq.winter.es.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * es集群健康状态
+ * 由后台健康检查定期刷新
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsClusterHealth {
+
+    /**
+     * 无法连接集群时的状态
+     */
+    public static final String UNREACHABLE = "unreachable";
+
+    /**
+     * 已连接但无权查看集群健康时的状态
+     */
+    public static final String UNKNOWN = "unknown";
+
+    /**
+     * 集群名称
+     */
+    private String clusterName;
+
+    /**
+     * 是否可以连接
+     */
+    private boolean connected;
+
+    /**
+     * 集群状态：green、yellow、red，或 unreachable、unknown
+     */
+    private String status;
+
+    /**
+     * 节点数
+     */
+    private int numberOfNodes;
+
+    /**
+     * 活跃分片数
+     */
+    private int activeShards;
+
+    /**
+     * 未分配分片数
+     */
+    private int unassignedShards;
+
+    /**
+     * 检查耗时（毫秒）
+     */
+    private long latencyMillis;
+
+    /**
+     * 检查时间（毫秒时间戳）
+     */
+    private long checkedAt;
+
+    /**
+     * 失败原因
+     */
+    private String error;
+}
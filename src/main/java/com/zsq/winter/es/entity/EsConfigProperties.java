@@ -5,7 +5,9 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * es配置属性
@@ -25,6 +27,83 @@ public class EsConfigProperties {
      */
     private Boolean isPrint = true;
 
+    /**
+     * 启动时并行初始化非懒加载集群客户端的线程数，小于等于1时按顺序初始化
+     */
+    private Integer initThreads = 4;
+
+    /**
+     * 自适应分批并发发送批次的线程数上限，所有集群共用，小于等于0时不限制
+     */
+    private Integer bulkThreads = 16;
+
+    /**
+     * 联合搜索向各集群发送请求的线程数上限，小于等于0时不限制
+     */
+    private Integer federatedThreads = 16;
+
+    /**
+     * 集群组配置，组名可以像集群名一样用于 {@link EsIndexInfo#setClusterName(String)}
+     */
+    private List<EsClusterGroupConfig> clusterGroups = new ArrayList<>();
+
+    /**
+     * 是否合并同一时刻完全相同的搜索与按id读取请求，只发送一次并共享响应
+     */
+    private Boolean singleFlight = false;
+
+    /**
+     * 后台健康检查间隔（毫秒），检查结果缓存后供 isClusterConnected 与健康端点使用；小于等于0时关闭，改为每次同步 ping
+     */
+    private Long healthCheckIntervalMs = 10000L;
+
+    /**
+     * 任一集群无法连接或为 red 时健康端点是否整体为 DOWN；为 false 时只在明细中标记异常集群，整体保持 UP，
+     * 避免单个集群故障导致整个应用被判定为不健康
+     */
+    private Boolean healthDownOnFailure = false;
+
+    /**
+     * 查询防护策略，键为索引名称或通配符（如 logs-*），未配置时不做检查
+     */
+    private Map<String, EsQueryPolicy> queryPolicies = new LinkedHashMap<>();
+
+    /**
+     * 输入提示前缀缓存的最大条目数，小于等于0时关闭
+     */
+    private Integer suggestCacheSize = 10000;
+
+    /**
+     * 输入提示前缀缓存的有效期（毫秒），新写入的提示最多延迟该时长出现
+     */
+    private Long suggestCacheTtlMs = 60000L;
+
+    /**
+     * 写入合并窗口（毫秒），窗口内同一文档的多次局部更新与删除合并后批量写入；小于等于0时关闭，开启后单文档更新与删除变为异步
+     */
+    private Long writeCoalesceWindowMs = 0L;
+
+    /**
+     * 写入合并缓冲的文档数上限，达到时提前写入
+     */
+    private Integer writeCoalesceMaxPending = 10000;
+
+    /**
+     * 批量请求体缓冲区大小（字节）
+     */
+    private Integer bulkBufferSize = 65536;
+
+    /**
+     * 批量请求体缓冲池最多持有的缓冲区数（空闲与占用之和），总内存上限为 bulkBufferSize × bulkBufferMaxPooled，
+     * 达到上限时改用高级客户端的默认编码；小于等于0时关闭
+     */
+    private Integer bulkBufferMaxPooled = 0;
+
+    /**
+     * 批量请求体缓冲区是否使用堆外内存
+     */
+    private Boolean bulkBufferDirect = false;
+
     @Data
     public static class EsClusterConfig implements Serializable {
 
@@ -63,5 +142,188 @@ public class EsConfigProperties {
          */
         private Integer connectionRequestTimeout = 5000;
 
+        /**
+         * 是否懒加载：为 true 时启动阶段不创建客户端，首次获取客户端时再创建
+         */
+        private Boolean lazy = false;
+
+        /**
+         * 是否预热：启动时执行 ping 并预先建立连接，仅对非懒加载集群生效
+         */
+        private Boolean warmUp = false;
+
+        /**
+         * 预热时每个节点预先建立的连接数
+         */
+        private Integer warmUpConnections = 2;
+
+        /**
+         * 响应缓冲上限（字节）：非流式请求的响应体全部缓冲在堆内，超过该值的响应会失败
+         */
+        private Integer responseBufferLimitBytes = 100 * 1024 * 1024;
+
+        /**
+         * 写入暂存（磁盘预写日志）配置
+         */
+        private EsSpoolConfig spool = new EsSpoolConfig();
+
+        /**
+         * 批量写入自适应分批配置
+         */
+        private EsBulkConfig bulk = new EsBulkConfig();
+
+    }
+
+    /**
+     * 集群组读路由策略
+     */
+    public enum ReadStrategy {
+        /**
+         * 按成员配置顺序（就近优先）选择第一个健康成员
+         */
+        NEAREST,
+        /**
+         * 选择进行中请求数最少、平均延迟最低的健康成员
+         */
+        LEAST_LOADED,
+        /**
+         * 在健康成员间轮询
+         */
+        ROUND_ROBIN
+    }
+
+    @Data
+    public static class EsClusterGroupConfig implements Serializable {
+
+        /**
+         * 集群组名称，不能与集群名称重复
+         */
+        private String groupName;
+
+        /**
+         * 成员集群名称列表，第一个为主集群
+         */
+        private List<String> members = new ArrayList<>();
+
+        /**
+         * 读路由策略
+         */
+        private ReadStrategy readStrategy = ReadStrategy.NEAREST;
+
+        /**
+         * 是否异步镜像写：为 true 时主集群同步写入、其余成员异步写入；为 false 时所有成员同步写入
+         */
+        private Boolean asyncMirror = true;
+
+        /**
+         * 异步镜像写的积压上限（每个成员），超过后丢弃镜像写并计数
+         */
+        private Integer mirrorBacklog = 10000;
+
+        /**
+         * 成员请求失败后被视为不健康的时长（毫秒），期间读请求优先路由到其他成员
+         */
+        private Long failureCooldownMs = 30000L;
+
+    }
+
+    @Data
+    public static class EsSpoolConfig implements Serializable {
+
+        /**
+         * 是否启用写入暂存：集群不可用或拒绝写入（429）时将写请求追加到本地磁盘，恢复后按顺序批量重放
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 暂存目录，每个集群使用其下以集群名命名的子目录
+         */
+        private String directory = "es-spool";
+
+        /**
+         * 单个段文件大小（字节）
+         */
+        private Integer segmentSizeBytes = 64 * 1024 * 1024;
+
+        /**
+         * 暂存占用磁盘上限（字节），超过后拒绝暂存
+         */
+        private Long maxDiskBytes = 1024L * 1024 * 1024;
+
+        /**
+         * 每次重放的最大记录数
+         */
+        private Integer replayBatchSize = 1000;
+
+        /**
+         * 重放检查间隔（毫秒）
+         */
+        private Long replayIntervalMs = 5000L;
+
+        /**
+         * 是否每次追加后刷盘；关闭时仅在段切换与关闭时刷盘，进程崩溃不丢数据但操作系统崩溃可能丢失最近写入
+         */
+        private Boolean syncOnAppend = false;
+
+    }
+
+    @Data
+    public static class EsBulkConfig implements Serializable {
+
+        /**
+         * 是否启用自适应分批：按批量写入的耗时与拒绝（429）自动调整每批文档数、字节数与并发数
+         */
+        private Boolean adaptive = false;
+
+        /**
+         * 每批文档数下限
+         */
+        private Integer minDocs = 100;
+
+        /**
+         * 每批文档数上限
+         */
+        private Integer maxDocs = 10000;
+
+        /**
+         * 每批初始文档数
+         */
+        private Integer initialDocs = 1000;
+
+        /**
+         * 每批字节数下限
+         */
+        private Long minBytes = 512L * 1024;
+
+        /**
+         * 每批字节数上限
+         */
+        private Long maxBytes = 32L * 1024 * 1024;
+
+        /**
+         * 每批初始字节数
+         */
+        private Long initialBytes = 5L * 1024 * 1024;
+
+        /**
+         * 并发批次数下限
+         */
+        private Integer minConcurrency = 1;
+
+        /**
+         * 并发批次数上限
+         */
+        private Integer maxConcurrency = 4;
+
+        /**
+         * 目标延迟（毫秒），单批服务端耗时或客户端延迟超过该值时缩小批次
+         */
+        private Long targetLatencyMs = 2000L;
+
+        /**
+         * 每次调整前观察的批次数
+         */
+        private Integer windowSize = 3;
+
     }
 }
@@ -25,7 +25,56 @@ public class EsDocData implements Serializable {
 
     /**
      * 数据
+     * 更新时作为局部更新的 doc
      */
     private Map<String, Object> data;
 
+    /**
+     * 路由键，写入、更新、删除与读取时使用，需与写入时保持一致
+     */
+    private String routing;
+
+    /**
+     * 更新时文档不存在则写入的内容（upsert）
+     */
+    private Map<String, Object> upsert;
+
+    /**
+     * 更新时文档不存在则以 data 作为新文档写入
+     */
+    private Boolean docAsUpsert;
+
+    /**
+     * 更新脚本（painless），设置后忽略 data，如 ctx._source.count += params.delta
+     */
+    private String script;
+
+    /**
+     * 更新脚本参数
+     */
+    private Map<String, Object> scriptParams;
+
+    /**
+     * 更新遇到版本冲突时的重试次数
+     */
+    private Integer retryOnConflict;
+
+    /**
+     * 条件写入：仅当文档当前的 seq_no 与该值一致时才写入
+     * 通过 {@link com.zsq.winter.es.service.EsTemplate#getDocument} 读取文档时会回填
+     */
+    private Long ifSeqNo;
+
+    /**
+     * 条件写入：与 ifSeqNo 配合使用的 primary_term
+     */
+    private Long ifPrimaryTerm;
+
+    /**
+     * 是否为普通的全量写入或 doc 局部更新（不含脚本、upsert 与条件写入）
+     */
+    public boolean isPlainWrite() {
+        return script == null && upsert == null && !Boolean.TRUE.equals(docAsUpsert) && ifSeqNo == null;
+    }
+
 }
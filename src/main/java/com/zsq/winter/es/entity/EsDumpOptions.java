@@ -0,0 +1,65 @@
+package com.zsq.winter.es.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.elasticsearch.index.query.QueryBuilder;
+
+/**
+ * es索引导出/导入选项
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsDumpOptions {
+
+    /**
+     * 导出的查询条件，为空时导出全部文档
+     */
+    private QueryBuilder query;
+
+    /**
+     * 导出时每页文档数
+     */
+    private int batchSize = 1000;
+
+    /**
+     * 导出时的切片数，每个切片一个滚动查询与一组段文件
+     */
+    private int slices = 1;
+
+    /**
+     * 滚动查询上下文保持时间（分钟）
+     */
+    private long scrollMinutes = 5;
+
+    /**
+     * 是否 gzip 压缩段文件；不压缩时导入可以使用内存映射
+     */
+    private boolean compress = true;
+
+    /**
+     * 单个段文件的未压缩字节数上限，超过后切换到新文件
+     */
+    private long segmentBytes = 256L * 1024 * 1024;
+
+    /**
+     * 导入时每个 bulk 请求体的字节数
+     */
+    private int bulkBytes = 8 * 1024 * 1024;
+
+    /**
+     * 导入时并行处理的文件数
+     */
+    private int concurrency = 4;
+
+    /**
+     * 导入未压缩的段文件时是否使用内存映射读取
+     */
+    private boolean memoryMap = true;
+
+    /**
+     * 被拒绝（429）或网络失败时的最大重试次数
+     */
+    private int maxRetries = 5;
+}
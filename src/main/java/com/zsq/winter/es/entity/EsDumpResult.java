@@ -0,0 +1,54 @@
+package com.zsq.winter.es.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * es索引导出/导入结果
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsDumpResult {
+
+    /**
+     * 段文件数
+     */
+    private int files;
+
+    /**
+     * 成功导出或导入的文档数
+     */
+    private long docs;
+
+    /**
+     * 未压缩的 NDJSON 字节数
+     */
+    private long bytes;
+
+    /**
+     * 导入失败的文档数
+     */
+    private long failedDocs;
+
+    /**
+     * 耗时（毫秒）
+     */
+    private long tookMillis;
+
+    /**
+     * 失败信息，最多保留前 100 条
+     */
+    private List<String> failures = new ArrayList<>();
+
+    /**
+     * 是否全部成功
+     */
+    public boolean isSuccess() {
+        return failedDocs == 0 && failures.isEmpty();
+    }
+}
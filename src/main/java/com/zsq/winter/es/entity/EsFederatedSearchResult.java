@@ -0,0 +1,81 @@
+package com.zsq.winter.es.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.SearchHit;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * es跨集群联合搜索结果
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsFederatedSearchResult {
+
+    /**
+     * 合并后的命中，按排序值（未指定排序字段时按评分）全局排序并按 from/size 截取
+     */
+    private List<FederatedHit> hits = new ArrayList<>();
+
+    /**
+     * 成功集群的命中总数之和
+     */
+    private long totalHits;
+
+    /**
+     * 总数是否精确，任一集群只返回下限（超过 track_total_hits）时为 false
+     */
+    private boolean totalHitsExact = true;
+
+    /**
+     * 合并后的聚合：terms 为 键 → 文档数（按文档数降序），sum/value_count 求和，min/max 取极值；其他类型请从 responses 中读取
+     */
+    private Map<String, Object> aggregations = new LinkedHashMap<>();
+
+    /**
+     * 各集群的原始响应，键为集群名称
+     */
+    private Map<String, SearchResponse> responses = new LinkedHashMap<>();
+
+    /**
+     * 失败或超时的集群，键为集群名称
+     */
+    private Map<String, Exception> failures = new LinkedHashMap<>();
+
+    /**
+     * 整体耗时（毫秒）
+     */
+    private long tookMillis;
+
+    /**
+     * 是否只包含部分集群的结果
+     */
+    public boolean isPartial() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * 带来源集群的命中
+     */
+    @Data
+    @Accessors(chain = true)
+    public static class FederatedHit {
+
+        /**
+         * 来源集群名称
+         */
+        private String clusterName;
+
+        /**
+         * 命中
+         */
+        private SearchHit hit;
+    }
+}
@@ -28,4 +28,10 @@ public class EsIndexInfo implements Serializable {
      */
     private String indexName;
 
+    /**
+     * 默认路由键
+     * 文档与搜索未单独指定路由时使用，多租户索引可设置为租户id，使请求只命中一个分片
+     */
+    private String routing;
+
 }
@@ -0,0 +1,50 @@
+package com.zsq.winter.es.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * es查询分析结果
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsQueryAnalysis {
+
+    /**
+     * 估算成本，为相对值：term 查询约为 1，前导通配符约为 100，分页深度与聚合桶数按比例累加
+     */
+    private double cost;
+
+    /**
+     * 违反策略的项
+     */
+    private List<String> violations = new ArrayList<>();
+
+    /**
+     * 已执行的改写
+     */
+    private List<String> rewrites = new ArrayList<>();
+
+    /**
+     * 是否应拒绝请求
+     */
+    private boolean rejected;
+
+    /**
+     * 改写后的搜索源副本，只在改写模式下执行了改写且请求未被拒绝时设置，传入的搜索源不会被修改
+     */
+    private SearchSourceBuilder rewrittenSource;
+
+    /**
+     * 是否没有违反策略
+     */
+    public boolean isSafe() {
+        return violations.isEmpty();
+    }
+}
@@ -0,0 +1,93 @@
+package com.zsq.winter.es.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+/**
+ * es查询防护策略
+ * 搜索请求发送前按策略检查查询树、分页深度与聚合，拦截或改写可能拖垮数据节点的查询
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsQueryPolicy implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 违反策略时的处理方式
+     */
+    public enum Action {
+        /**
+         * 拒绝请求
+         */
+        REJECT,
+        /**
+         * 改写可改写的部分（只有 * 的通配符改为 exists、降低模糊距离、限制聚合桶数），无法改写时拒绝；
+         * 过深的分页与其余前导通配符会改变结果，总是拒绝
+         */
+        REWRITE,
+        /**
+         * 只记录警告日志，照常发送
+         */
+        WARN
+    }
+
+    /**
+     * 违反策略时的处理方式
+     */
+    private Action action = Action.REJECT;
+
+    /**
+     * from + size 的上限
+     */
+    private int maxResultWindow = 10000;
+
+    /**
+     * 单个 terms 查询的值数量上限
+     */
+    private int maxTermsCount = 1024;
+
+    /**
+     * 整个查询中 bool 子句的总数上限
+     */
+    private int maxBoolClauses = 512;
+
+    /**
+     * 是否允许以 * 或 ? 开头的通配符、以 .* 开头的正则，以及 query_string 中的前导通配符
+     */
+    private boolean allowLeadingWildcard = false;
+
+    /**
+     * 正则表达式的长度上限，小于等于0表示不限制
+     */
+    private int maxRegexpLength = 128;
+
+    /**
+     * 模糊查询的最大编辑距离
+     */
+    private int maxFuzziness = 1;
+
+    /**
+     * 模糊查询的最小前缀长度，前缀不参与模糊匹配，可大幅减少需要展开的词项
+     */
+    private int minFuzzyPrefixLength = 1;
+
+    /**
+     * 单个分桶聚合（terms、composite 等）的桶数上限
+     */
+    private int maxAggBuckets = 10000;
+
+    /**
+     * 聚合的嵌套层数上限
+     */
+    private int maxAggDepth = 3;
+
+    /**
+     * 估算成本上限，小于等于0表示不限制
+     */
+    private double maxCost = 0;
+}
@@ -0,0 +1,83 @@
+package com.zsq.winter.es.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.elasticsearch.index.query.QueryBuilder;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * es索引重建请求
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsReindexRequest {
+
+    /**
+     * 源索引信息
+     */
+    private EsIndexInfo source;
+
+    /**
+     * 目标索引信息，集群可与源集群不同
+     */
+    private EsIndexInfo target;
+
+    /**
+     * 源文档过滤条件，为空时重建全部文档
+     */
+    private QueryBuilder query;
+
+    /**
+     * 是否在服务端执行（_reindex 任务）；为 false 时在客户端执行分片读取与批量写入
+     */
+    private boolean serverSide = true;
+
+    /**
+     * 切片数，服务端执行时 0 表示 auto；跨集群的服务端重建不支持切片
+     */
+    private int slices = 1;
+
+    /**
+     * 限速（每秒文档数），小于等于 0 表示不限速
+     */
+    private float requestsPerSecond = -1;
+
+    /**
+     * 每批读取/写入的文档数
+     */
+    private int batchSize = 1000;
+
+    /**
+     * 滚动查询上下文保留时间（分钟）
+     */
+    private long scrollMinutes = 5;
+
+    /**
+     * 版本冲突时是否继续
+     */
+    private boolean proceedOnConflicts = true;
+
+    /**
+     * 文档转换函数，仅客户端执行时生效；返回 null 表示跳过该文档
+     */
+    private Function<EsDocData, EsDocData> transformer;
+
+    /**
+     * 断点文件路径；设置后可在进程崩溃重启后以相同请求恢复任务
+     */
+    private String checkpointFile;
+
+    /**
+     * 进度回调
+     */
+    private Consumer<EsTaskProgress> progressListener;
+
+    /**
+     * 进度回调间隔（毫秒）
+     */
+    private long progressIntervalMillis = 5000;
+}
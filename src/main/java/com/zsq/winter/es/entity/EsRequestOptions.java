@@ -0,0 +1,53 @@
+package com.zsq.winter.es.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * es单次请求选项
+ * 未设置的项使用集群配置
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsRequestOptions implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 附加的请求头，如 X-Opaque-Id
+     */
+    private Map<String, String> headers = new LinkedHashMap<>();
+
+    /**
+     * 客户端等待超时（毫秒），超时后取消请求，为空时使用集群的 socketTimeout
+     */
+    private Long timeoutMillis;
+
+    /**
+     * 响应缓冲上限（字节），覆盖集群的 responseBufferLimitBytes
+     */
+    private Integer responseBufferLimitBytes;
+
+    /**
+     * 流式搜索时内存中最多积压的未解析字节数，超过后暂停读取网络数据，默认 1MB
+     */
+    private Integer streamBufferBytes;
+
+    /**
+     * 添加请求头
+     *
+     * @param name  名称
+     * @param value 值
+     * @return 当前对象
+     */
+    public EsRequestOptions addHeader(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+}
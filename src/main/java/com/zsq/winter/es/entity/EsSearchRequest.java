@@ -2,9 +2,12 @@ package com.zsq.winter.es.entity;
 
 import lombok.Data;
 import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
 import org.elasticsearch.search.sort.SortOrder;
 
+import java.util.List;
+
 /**
  * es搜索请求
  *
@@ -25,6 +28,26 @@ public class EsSearchRequest {
      */
     private String[] fields;
 
+    /**
+     * 是否返回 _source，为 false 时不加载 _source，字段值通过 docValueFields/storedFields 获取
+     */
+    private Boolean fetchSource;
+
+    /**
+     * _source 中需要排除的字段
+     */
+    private String[] excludes;
+
+    /**
+     * 从 doc values 读取的字段，适用于 keyword、数值、日期等字段，不需要加载 _source
+     */
+    private String[] docValueFields;
+
+    /**
+     * 读取的 stored 字段（映射中 store: true 的字段）
+     */
+    private String[] storedFields;
+
     /**
      * 页数
      */
@@ -60,4 +83,44 @@ public class EsSearchRequest {
      */
     private HighlightBuilder highlightBuilder;
 
+    /**
+     * 路由键，多个以逗号分隔；为空时使用 EsIndexInfo 的默认路由
+     */
+    private String routing;
+
+    /**
+     * 分片偏好，如 _local、_only_nodes:xx，或传入用户会话id使同一用户的请求落在相同分片副本上，提高分片缓存命中率
+     */
+    private String preference;
+
+    /**
+     * 是否使用分片请求缓存，为空时使用索引设置（默认只缓存 size=0 的请求）
+     */
+    private Boolean requestCache;
+
+    /**
+     * 服务端搜索超时（毫秒），超时后返回已收集到的部分结果，timed_out 为 true
+     */
+    private Long timeoutMillis;
+
+    /**
+     * 每个分片最多收集的文档数，达到后提前结束，为空或 0 表示不限制
+     */
+    private Integer terminateAfter;
+
+    /**
+     * 协调节点每收到多少个分片结果归并一次，分片数很多时可降低协调节点内存
+     */
+    private Integer batchedReduceSize;
+
+    /**
+     * 每个节点同时执行的分片请求数上限
+     */
+    private Integer maxConcurrentShardRequests;
+
+    /**
+     * 聚合
+     */
+    private List<AggregationBuilder> aggregations;
+
 }
@@ -0,0 +1,51 @@
+package com.zsq.winter.es.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 流式搜索的单条命中
+ * 只包含元数据、_source 的原始 JSON 字节与 fields，不构建 SearchHit 对象
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsStreamHit {
+
+    /**
+     * 索引名称
+     */
+    private String index;
+
+    /**
+     * 文档id
+     */
+    private String id;
+
+    /**
+     * 评分，按字段排序时为 NaN
+     */
+    private float score = Float.NaN;
+
+    /**
+     * _source 的 JSON 字节，未返回 _source 时为 null
+     */
+    private byte[] source;
+
+    /**
+     * docvalue_fields 与 stored_fields 返回的字段值
+     */
+    private Map<String, List<Object>> fields;
+
+    /**
+     * 以字符串形式获取 _source
+     */
+    public String getSourceAsString() {
+        return source == null ? null : new String(source, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,86 @@
+package com.zsq.winter.es.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * es输入提示请求
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsSuggestRequest {
+
+    /**
+     * 提示方式
+     */
+    public enum Type {
+        /**
+         * completion 建议器，字段类型为 completion，基于内存中的 FST，延迟最低
+         */
+        COMPLETION,
+        /**
+         * search_as_you_type 字段上的 bool_prefix 查询，可按相关度排序并匹配词中任意位置的前缀
+         */
+        SEARCH_AS_YOU_TYPE
+    }
+
+    /**
+     * 提示方式
+     */
+    private Type type = Type.COMPLETION;
+
+    /**
+     * 字段名，completion 或 search_as_you_type 类型
+     */
+    private String field;
+
+    /**
+     * 用户已输入的前缀
+     */
+    private String prefix;
+
+    /**
+     * 返回条数
+     */
+    private int size = 5;
+
+    /**
+     * 是否容错（编辑距离 AUTO），只对 completion 生效
+     */
+    private boolean fuzzy;
+
+    /**
+     * 是否去掉文本相同的提示，只对 completion 生效
+     */
+    private boolean skipDuplicates = true;
+
+    /**
+     * 上下文，键为上下文名称（completion 的 category 上下文）或字段名（search_as_you_type 时作为 terms 过滤），值为允许的取值
+     */
+    private Map<String, List<String>> contexts;
+
+    /**
+     * 需要返回的 _source 字段，为空时不返回 _source
+     */
+    private String[] sourceFields;
+
+    /**
+     * 会话id，如前端输入框或用户id；同一会话的新请求会取消尚未完成的旧请求
+     */
+    private String sessionId;
+
+    /**
+     * 客户端超时（毫秒），为空时使用集群的 socket 超时
+     */
+    private Long timeoutMillis;
+
+    /**
+     * 是否使用前缀缓存
+     */
+    private boolean useCache = true;
+}
@@ -0,0 +1,41 @@
+package com.zsq.winter.es.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.Map;
+
+/**
+ * es输入提示结果
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsSuggestion {
+
+    /**
+     * 提示文本
+     */
+    private String text;
+
+    /**
+     * 索引名称
+     */
+    private String index;
+
+    /**
+     * 文档id
+     */
+    private String id;
+
+    /**
+     * 评分
+     */
+    private float score;
+
+    /**
+     * 请求了 sourceFields 时的 _source
+     */
+    private Map<String, Object> source;
+}
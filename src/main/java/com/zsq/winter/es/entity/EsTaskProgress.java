@@ -0,0 +1,117 @@
+package com.zsq.winter.es.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * es后台任务进度
+ * 服务端任务（_reindex、_delete_by_query、_update_by_query）与客户端重建任务共用
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsTaskProgress implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 任务状态
+     */
+    public enum State {
+        /**
+         * 运行中
+         */
+        RUNNING,
+        /**
+         * 已完成
+         */
+        COMPLETED,
+        /**
+         * 已失败
+         */
+        FAILED,
+        /**
+         * 已取消
+         */
+        CANCELLED
+    }
+
+    /**
+     * 任务id，服务端任务为 nodeId:taskNumber
+     */
+    private String taskId;
+
+    /**
+     * 任务状态
+     */
+    private State state = State.RUNNING;
+
+    /**
+     * 需要处理的文档总数
+     */
+    private long total;
+
+    /**
+     * 新建的文档数
+     */
+    private long created;
+
+    /**
+     * 更新的文档数
+     */
+    private long updated;
+
+    /**
+     * 删除的文档数
+     */
+    private long deleted;
+
+    /**
+     * 跳过（未修改）的文档数
+     */
+    private long noops;
+
+    /**
+     * 已执行的批次数
+     */
+    private long batches;
+
+    /**
+     * 版本冲突数
+     */
+    private long versionConflicts;
+
+    /**
+     * 当前限速（每秒文档数），小于等于 0 表示不限速
+     */
+    private float requestsPerSecond;
+
+    /**
+     * 已运行时长（毫秒）
+     */
+    private long elapsedMillis;
+
+    /**
+     * 失败信息
+     */
+    private List<String> failures = new ArrayList<>();
+
+    /**
+     * 已处理的文档数
+     */
+    public long getProcessed() {
+        return created + updated + deleted + noops + versionConflicts;
+    }
+
+    /**
+     * 任务是否已结束
+     */
+    public boolean isFinished() {
+        return state != State.RUNNING;
+    }
+}
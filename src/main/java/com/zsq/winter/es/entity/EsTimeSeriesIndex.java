@@ -0,0 +1,103 @@
+package com.zsq.winter.es.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+/**
+ * es时序索引定义
+ * <p>
+ * 按时间切分的索引，名称为 {prefix}-{日期}，如 logs-2025.08.24；启用大小上限后，
+ * 超过上限的时间段会滚动出新的索引 {prefix}-{日期}-000002。
+ * 写入时按文档的时间字段选择索引，搜索时按查询中时间字段的范围只查询有交集的索引。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsTimeSeriesIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 时间切分粒度
+     */
+    public enum Granularity {
+        /**
+         * 按小时
+         */
+        HOUR("yyyy.MM.dd.HH"),
+        /**
+         * 按天
+         */
+        DAY("yyyy.MM.dd"),
+        /**
+         * 按月
+         */
+        MONTH("yyyy.MM");
+
+        private final String pattern;
+
+        Granularity(String pattern) {
+            this.pattern = pattern;
+        }
+
+        public String getPattern() {
+            return pattern;
+        }
+    }
+
+    /**
+     * 集群名称
+     */
+    private String clusterName;
+
+    /**
+     * 索引名称前缀
+     */
+    private String prefix;
+
+    /**
+     * 时间字段，写入时按该字段选择索引，搜索时按该字段的范围裁剪索引
+     */
+    private String timestampField = "@timestamp";
+
+    /**
+     * 时间切分粒度
+     */
+    private Granularity granularity = Granularity.DAY;
+
+    /**
+     * 计算索引日期使用的时区
+     */
+    private String zoneId = "UTC";
+
+    /**
+     * 单个索引的最大文档数，超过后滚动出新索引，≤0 表示不限制
+     */
+    private long maxDocsPerIndex = 0;
+
+    /**
+     * 单个索引的最大主分片存储字节数，超过后滚动出新索引，≤0 表示不限制
+     */
+    private long maxSizeBytesPerIndex = 0;
+
+    /**
+     * 检查索引大小的间隔（毫秒）
+     */
+    private long rolloverCheckIntervalMs = 60000;
+
+    /**
+     * 搜索时最多列出的时间段数量，超过时改为查询 {prefix}-*
+     */
+    private int maxSearchPeriods = 500;
+
+    /**
+     * 是否启用大小上限滚动
+     */
+    public boolean isRolloverEnabled() {
+        return maxDocsPerIndex > 0 || maxSizeBytesPerIndex > 0;
+    }
+}
@@ -0,0 +1,66 @@
+package com.zsq.winter.es.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+/**
+ * es单条写操作结果
+ * 批量写入时每个条目对应一个结果，顺序与请求一致
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsWriteResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 文档id
+     */
+    private String docId;
+
+    /**
+     * 是否成功
+     */
+    private boolean success;
+
+    /**
+     * 写入结果：CREATED、UPDATED、DELETED、NOT_FOUND、NOOP，失败时为空
+     */
+    private String result;
+
+    /**
+     * 写入后的文档版本
+     */
+    private long version;
+
+    /**
+     * 写入后的 seq_no，可用于下一次条件写入
+     */
+    private long seqNo;
+
+    /**
+     * 写入后的 primary_term
+     */
+    private long primaryTerm;
+
+    /**
+     * HTTP 状态码
+     */
+    private int status;
+
+    /**
+     * 失败原因
+     */
+    private String failureMessage;
+
+    /**
+     * 是否因版本冲突（seq_no 不匹配）失败
+     */
+    public boolean isConflict() {
+        return status == 409;
+    }
+}
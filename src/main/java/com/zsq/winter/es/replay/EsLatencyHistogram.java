@@ -0,0 +1,139 @@
+package com.zsq.winter.es.replay;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟直方图
+ * <p>
+ * 以微秒记录，按 2 的幂分段、每段 16 个子桶，相对误差约 6%，内存占用固定，可被多个线程并发记录。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+public class EsLatencyHistogram {
+
+    private static final int SUB_BUCKETS = 16;
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /**
+     * 最大可记录约 2^40 微秒
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray((MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * 记录一次延迟
+     *
+     * @param micros 延迟（微秒）
+     */
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        buckets.incrementAndGet(Math.min(indexOf(value), buckets.length() - 1));
+        count.increment();
+        sum.add(value);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long valueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * 记录次数
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * 平均延迟（微秒）
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * 分位延迟（微秒），取所在桶的下界
+     *
+     * @param percentile 百分位，0~100
+     */
+    public long getPercentile(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return valueOf(i);
+            }
+        }
+        return valueOf(buckets.length() - 1);
+    }
+
+    /**
+     * 最大延迟（微秒），取所在桶的下界
+     */
+    public long getMax() {
+        for (int i = buckets.length() - 1; i >= 0; i--) {
+            if (buckets.get(i) > 0) {
+                return valueOf(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 按毫秒区间输出直方图，每行一个非空区间
+     */
+    public String toHistogramString() {
+        long[] bounds = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, 60000, Long.MAX_VALUE};
+        long[] counts = new long[bounds.length];
+        for (int i = 0; i < buckets.length(); i++) {
+            long n = buckets.get(i);
+            if (n == 0) {
+                continue;
+            }
+            long millis = valueOf(i) / 1000;
+            int b = 0;
+            while (millis >= bounds[b]) {
+                b++;
+            }
+            counts[b] += n;
+        }
+        long total = Math.max(1, count.sum());
+        StringBuilder sb = new StringBuilder();
+        long lower = 0;
+        for (int b = 0; b < bounds.length; b++) {
+            if (counts[b] > 0) {
+                String range = bounds[b] == Long.MAX_VALUE ? ">= " + lower + " ms" : lower + " - " + bounds[b] + " ms";
+                sb.append(String.format("%16s %10d %6.2f%%%n", range, counts[b], counts[b] * 100.0 / total));
+            }
+            lower = bounds[b];
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,109 @@
+package com.zsq.winter.es.replay;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 回放报告
+ *
+ * @author dadandiaoming
+ */
+public class EsReplayReport {
+
+    /**
+     * 全部请求的延迟
+     */
+    private final EsLatencyHistogram latency = new EsLatencyHistogram();
+
+    /**
+     * 按操作类型的延迟
+     */
+    private final Map<String, EsLatencyHistogram> latencyByType = new ConcurrentHashMap<>();
+
+    private final LongAdder successCount = new LongAdder();
+
+    private final LongAdder failureCount = new LongAdder();
+
+    /**
+     * 回放耗时（毫秒）
+     */
+    private long durationMillis;
+
+    /**
+     * 录制文件中的原始时长（毫秒）
+     */
+    private long recordedSpanMillis;
+
+    void record(String type, long micros, boolean success) {
+        latency.record(micros);
+        latencyByType.computeIfAbsent(type, k -> new EsLatencyHistogram()).record(micros);
+        if (success) {
+            successCount.increment();
+        } else {
+            failureCount.increment();
+        }
+    }
+
+    public EsLatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public Map<String, EsLatencyHistogram> getLatencyByType() {
+        return latencyByType;
+    }
+
+    public long getSuccessCount() {
+        return successCount.sum();
+    }
+
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public long getRecordedSpanMillis() {
+        return recordedSpanMillis;
+    }
+
+    void setRecordedSpanMillis(long recordedSpanMillis) {
+        this.recordedSpanMillis = recordedSpanMillis;
+    }
+
+    public long getTotal() {
+        return successCount.sum() + failureCount.sum();
+    }
+
+    /**
+     * 吞吐（请求数/秒）
+     */
+    public double getThroughput() {
+        return durationMillis == 0 ? 0 : getTotal() * 1000.0 / durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("requests: %d, success: %d, failed: %d, duration: %d ms (recorded %d ms), throughput: %.1f req/s%n",
+                getTotal(), successCount.sum(), failureCount.sum(), durationMillis, recordedSpanMillis, getThroughput()));
+        appendLatency(sb, "all", latency);
+        new TreeMap<>(latencyByType).forEach((type, histogram) -> appendLatency(sb, type, histogram));
+        sb.append(latency.toHistogramString());
+        return sb.toString();
+    }
+
+    private static void appendLatency(StringBuilder sb, String name, EsLatencyHistogram histogram) {
+        sb.append(String.format("%-8s count: %d, mean: %.1f ms, p50: %.1f ms, p90: %.1f ms, p99: %.1f ms, max: %.1f ms%n",
+                name, histogram.getCount(), histogram.getMean() / 1000,
+                histogram.getPercentile(50) / 1000.0, histogram.getPercentile(90) / 1000.0,
+                histogram.getPercentile(99) / 1000.0, histogram.getMax() / 1000.0));
+    }
+}
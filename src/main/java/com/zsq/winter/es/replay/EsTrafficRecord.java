@@ -0,0 +1,234 @@
+package com.zsq.winter.es.replay;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.core.CountRequest;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 录制的请求
+ * 以 HTTP 形式（方法、路径、参数、请求体）保存，回放时不依赖原始的请求对象
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsTrafficRecord {
+
+    /**
+     * 请求开始时间（毫秒时间戳），回放时按相邻请求的间隔还原节奏
+     */
+    private long startMillis;
+
+    /**
+     * 操作类型，如 search、get、count、bulk
+     */
+    private String type;
+
+    /**
+     * 集群名称
+     */
+    private String cluster;
+
+    /**
+     * 索引名称
+     */
+    private String index;
+
+    /**
+     * HTTP 方法
+     */
+    private String method;
+
+    /**
+     * 请求路径
+     */
+    private String endpoint;
+
+    /**
+     * URL 参数
+     */
+    private Map<String, String> params = new LinkedHashMap<>();
+
+    /**
+     * 请求体，bulk 为 NDJSON
+     */
+    private String body;
+
+    /**
+     * 原始请求耗时（毫秒）
+     */
+    private long tookMillis;
+
+    /**
+     * 原始请求是否成功
+     */
+    private boolean success;
+
+    /**
+     * 由请求对象生成记录（不含时间与结果）
+     * 条件写入的 if_seq_no/if_primary_term 不记录：回放目标的序列号与原集群无关
+     *
+     * @param request 搜索、按id读取、计数、写入或批量请求
+     * @return 记录，不支持的请求返回 null
+     */
+    public static EsTrafficRecord from(ActionRequest request) throws IOException {
+        if (request instanceof SearchRequest) {
+            SearchRequest searchRequest = (SearchRequest) request;
+            EsTrafficRecord record = new EsTrafficRecord()
+                    .setType("search")
+                    .setIndex(String.join(",", searchRequest.indices()))
+                    .setMethod("POST")
+                    .setEndpoint("/" + String.join(",", searchRequest.indices()) + "/_search")
+                    .setBody(searchRequest.source() == null ? null : Strings.toString(searchRequest.source()));
+            putIfPresent(record, "routing", searchRequest.routing());
+            putIfPresent(record, "preference", searchRequest.preference());
+            putIfPresent(record, "request_cache", searchRequest.requestCache());
+            return record;
+        }
+        if (request instanceof GetRequest) {
+            GetRequest getRequest = (GetRequest) request;
+            EsTrafficRecord record = new EsTrafficRecord()
+                    .setType("get")
+                    .setIndex(getRequest.index())
+                    .setMethod("GET")
+                    .setEndpoint("/" + getRequest.index() + "/_doc/" + getRequest.id());
+            putIfPresent(record, "routing", getRequest.routing());
+            return record;
+        }
+        if (request instanceof CountRequest) {
+            CountRequest countRequest = (CountRequest) request;
+            EsTrafficRecord record = new EsTrafficRecord()
+                    .setType("count")
+                    .setIndex(String.join(",", countRequest.indices()))
+                    .setMethod("POST")
+                    .setEndpoint("/" + String.join(",", countRequest.indices()) + "/_count")
+                    .setBody(Strings.toString(countRequest));
+            putIfPresent(record, "routing", countRequest.routing());
+            return record;
+        }
+        if (request instanceof BulkRequest) {
+            BulkRequest bulkRequest = (BulkRequest) request;
+            StringBuilder body = new StringBuilder();
+            Set<String> indices = new LinkedHashSet<>();
+            for (DocWriteRequest<?> item : bulkRequest.requests()) {
+                appendBulkItem(body, item);
+                indices.add(item.index());
+            }
+            return bulkRecord("bulk", String.join(",", indices), body);
+        }
+        if (request instanceof DocWriteRequest) {
+            DocWriteRequest<?> item = (DocWriteRequest<?>) request;
+            StringBuilder body = new StringBuilder();
+            appendBulkItem(body, item);
+            // 单条写入同样以 _bulk 回放，保留操作类型便于按类型统计
+            return bulkRecord(item.opType().getLowercase(), item.index(), body);
+        }
+        return null;
+    }
+
+    private static EsTrafficRecord bulkRecord(String type, String index, StringBuilder body) {
+        return new EsTrafficRecord()
+                .setType(type)
+                .setIndex(index)
+                .setMethod("POST")
+                .setEndpoint("/_bulk")
+                .setBody(body.toString());
+    }
+
+    private static void appendBulkItem(StringBuilder body, DocWriteRequest<?> item) throws IOException {
+        XContentBuilder action = XContentFactory.jsonBuilder()
+                .startObject()
+                .startObject(item.opType() == DocWriteRequest.OpType.CREATE ? "create" : item.opType().getLowercase())
+                .field("_index", item.index());
+        if (item.id() != null) {
+            action.field("_id", item.id());
+        }
+        if (item.routing() != null) {
+            action.field("routing", item.routing());
+        }
+        if (item instanceof UpdateRequest && ((UpdateRequest) item).retryOnConflict() > 0) {
+            action.field("retry_on_conflict", ((UpdateRequest) item).retryOnConflict());
+        }
+        action.endObject().endObject();
+        body.append(Strings.toString(action)).append('\n');
+        if (item instanceof IndexRequest) {
+            IndexRequest indexRequest = (IndexRequest) item;
+            body.append(XContentHelper.convertToJson(indexRequest.source(), false, indexRequest.getContentType())).append('\n');
+        } else if (item instanceof UpdateRequest) {
+            body.append(Strings.toString((UpdateRequest) item)).append('\n');
+        }
+    }
+
+    private static void putIfPresent(EsTrafficRecord record, String name, Object value) {
+        if (value != null) {
+            record.getParams().put(name, value.toString());
+        }
+    }
+
+    /**
+     * 序列化为一行 JSON
+     */
+    byte[] toBytes() throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder()
+                .startObject()
+                .field("startMillis", startMillis)
+                .field("type", type)
+                .field("cluster", cluster)
+                .field("index", index)
+                .field("method", method)
+                .field("endpoint", endpoint);
+        if (!params.isEmpty()) {
+            builder.field("params", params);
+        }
+        if (body != null) {
+            builder.field("body", body);
+        }
+        builder.field("tookMillis", tookMillis)
+                .field("success", success)
+                .endObject();
+        return BytesReference.toBytes(BytesReference.bytes(builder));
+    }
+
+    /**
+     * 从一行 JSON 反序列化
+     */
+    @SuppressWarnings("unchecked")
+    static EsTrafficRecord fromBytes(byte[] bytes, int length) {
+        Map<String, Object> map = XContentHelper.convertToMap(new BytesArray(bytes, 0, length), false, XContentType.JSON).v2();
+        EsTrafficRecord record = new EsTrafficRecord()
+                .setStartMillis(((Number) map.get("startMillis")).longValue())
+                .setType((String) map.get("type"))
+                .setCluster((String) map.get("cluster"))
+                .setIndex((String) map.get("index"))
+                .setMethod((String) map.get("method"))
+                .setEndpoint((String) map.get("endpoint"))
+                .setBody((String) map.get("body"))
+                .setTookMillis(((Number) map.get("tookMillis")).longValue())
+                .setSuccess(Boolean.TRUE.equals(map.get("success")));
+        Object params = map.get("params");
+        if (params instanceof Map) {
+            ((Map<String, Object>) params).forEach((name, value) -> record.getParams().put(name, String.valueOf(value)));
+        }
+        return record;
+    }
+}
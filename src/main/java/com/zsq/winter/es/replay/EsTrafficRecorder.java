@@ -0,0 +1,151 @@
+package com.zsq.winter.es.replay;
+
+import com.zsq.winter.es.util.EsExecutors;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 请求录制
+ * <p>
+ * 按采样率录制请求，写入 gzip 压缩的 NDJSON 文件（每行一条 {@link EsTrafficRecord}）。
+ * 调用线程只把记录放入有界队列，由后台线程写盘；队列满时丢弃记录并计数，不阻塞业务请求。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+@Slf4j
+public class EsTrafficRecorder implements AutoCloseable {
+
+    private static final int QUEUE_CAPACITY = 10000;
+
+    private static final int DRAIN_BATCH = 256;
+
+    private final Path file;
+
+    private final double sampleRate;
+
+    private final BlockingQueue<EsTrafficRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    private final LongAdder recordedCount = new LongAdder();
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private final OutputStream output;
+
+    private final Thread writer;
+
+    private volatile boolean closed = false;
+
+    /**
+     * 创建并启动录制，文件已存在时覆盖
+     *
+     * @param file       录制文件
+     * @param sampleRate 采样率，0~1
+     */
+    public EsTrafficRecorder(Path file, double sampleRate) throws IOException {
+        this.file = file;
+        this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.output = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024), 64 * 1024);
+        this.writer = EsExecutors.threadFactory("es-traffic-recorder").newThread(this::writeLoop);
+        this.writer.start();
+    }
+
+    /**
+     * 是否录制本次请求，调用方在构建记录前判断，未采样的请求不产生序列化开销
+     */
+    public boolean sample() {
+        return !closed && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /**
+     * 提交记录，队列满时丢弃
+     */
+    public void record(EsTrafficRecord record) {
+        if (closed || !queue.offer(record)) {
+            droppedCount.increment();
+        }
+    }
+
+    private void writeLoop() {
+        List<EsTrafficRecord> batch = new ArrayList<>(DRAIN_BATCH);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                EsTrafficRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, DRAIN_BATCH - 1);
+                for (EsTrafficRecord record : batch) {
+                    output.write(record.toBytes());
+                    output.write('\n');
+                }
+                recordedCount.add(batch.size());
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Failed to write traffic records to: {}, recording stopped", file, e);
+            closed = true;
+        }
+    }
+
+    /**
+     * 停止录制，写完队列中的记录后关闭文件
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            output.close();
+        } catch (IOException e) {
+            log.error("Failed to close traffic record file: {}", file, e);
+        }
+        log.info("Stopped traffic recording to: {}, recorded: {}, dropped: {}", file, getRecordedCount(), getDroppedCount());
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * 已写入的记录数
+     */
+    public long getRecordedCount() {
+        return recordedCount.sum();
+    }
+
+    /**
+     * 因队列已满或已停止而丢弃的记录数
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+}
@@ -0,0 +1,178 @@
+package com.zsq.winter.es.replay;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 请求回放
+ * <p>
+ * 读取 {@link EsTrafficRecorder} 录制的文件，按原始间隔（除以倍速）向目标集群重新发送请求，
+ * 以信号量限制同时进行的请求数，统计延迟分布与吞吐。目标集群可以是任意地址，包括桩服务。
+ * 写请求会真实写入目标集群，回放前应确认目标不是生产集群。
+ * </p>
+ *
+ * <pre>
+ * java -cp ... com.zsq.winter.es.replay.EsTrafficReplayer traffic.ndjson.gz http://localhost:9200 2 32
+ * </pre>
+ *
+ * @author dadandiaoming
+ */
+@Slf4j
+public class EsTrafficReplayer {
+
+    private static final ContentType NDJSON = ContentType.create("application/x-ndjson", "UTF-8");
+
+    private final RestClient client;
+
+    private double speed = 1;
+
+    private int concurrency = 16;
+
+    /**
+     * @param client 目标集群的低级客户端，由调用方关闭
+     */
+    public EsTrafficReplayer(RestClient client) {
+        this.client = client;
+    }
+
+    /**
+     * 设置倍速，1 为原速，小于等于 0 表示不等待、尽快发送
+     */
+    public EsTrafficReplayer setSpeed(double speed) {
+        this.speed = speed;
+        return this;
+    }
+
+    /**
+     * 设置最大并发请求数，达到后等待已发送的请求完成
+     */
+    public EsTrafficReplayer setConcurrency(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+        return this;
+    }
+
+    /**
+     * 回放录制文件
+     *
+     * @param file 录制文件
+     * @return 回放报告
+     */
+    public EsReplayReport replay(Path file) throws IOException, InterruptedException {
+        EsReplayReport report = new EsReplayReport();
+        Semaphore permits = new Semaphore(concurrency);
+        long firstRecordMillis = -1;
+        long lastRecordMillis = 0;
+        long start = System.nanoTime();
+        try (InputStream input = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(4096);
+            EsTrafficRecord record;
+            while ((record = readRecord(input, line)) != null) {
+                if (firstRecordMillis < 0) {
+                    firstRecordMillis = record.getStartMillis();
+                }
+                lastRecordMillis = record.getStartMillis();
+                if (speed > 0) {
+                    long dueNanos = start + (long) ((record.getStartMillis() - firstRecordMillis) * 1_000_000L / speed);
+                    long waitNanos = dueNanos - System.nanoTime();
+                    if (waitNanos > 0) {
+                        TimeUnit.NANOSECONDS.sleep(waitNanos);
+                    }
+                }
+                permits.acquire();
+                send(record, report, permits);
+            }
+        }
+        // 等待全部请求完成
+        permits.acquire(concurrency);
+        permits.release(concurrency);
+        report.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        report.setRecordedSpanMillis(firstRecordMillis < 0 ? 0 : lastRecordMillis - firstRecordMillis);
+        return report;
+    }
+
+    private void send(EsTrafficRecord record, EsReplayReport report, Semaphore permits) {
+        Request request = new Request(record.getMethod(), record.getEndpoint());
+        record.getParams().forEach(request::addParameter);
+        if (record.getBody() != null) {
+            request.setEntity(new NStringEntity(record.getBody(),
+                    record.getEndpoint().endsWith("/_bulk") ? NDJSON : ContentType.APPLICATION_JSON));
+        }
+        long sent = System.nanoTime();
+        try {
+            client.performRequestAsync(request, new ResponseListener() {
+                @Override
+                public void onSuccess(Response response) {
+                    complete(true);
+                }
+
+                @Override
+                public void onFailure(Exception exception) {
+                    log.debug("Replay of {} {} failed", record.getMethod(), record.getEndpoint(), exception);
+                    complete(false);
+                }
+
+                private void complete(boolean success) {
+                    report.record(record.getType(), TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sent), success);
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            log.debug("Replay of {} {} failed", record.getMethod(), record.getEndpoint(), e);
+            report.record(record.getType(), 0, false);
+            permits.release();
+        }
+    }
+
+    private static EsTrafficRecord readRecord(InputStream input, ByteArrayOutputStream line) throws IOException {
+        while (true) {
+            line.reset();
+            int b;
+            while ((b = input.read()) != -1 && b != '\n') {
+                line.write(b);
+            }
+            if (line.size() > 0) {
+                return EsTrafficRecord.fromBytes(line.toByteArray(), line.size());
+            }
+            if (b == -1) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 命令行回放：文件 目标地址 [倍速] [并发数]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: EsTrafficReplayer <file> <http://host:port> [speed] [concurrency]");
+            System.exit(1);
+        }
+        int concurrency = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+        // 连接池默认每个节点 10 条连接，按并发数放大，避免请求在连接池排队
+        try (RestClient client = RestClient.builder(HttpHost.create(args[1]))
+                .setHttpClientConfigCallback(builder -> builder.setMaxConnPerRoute(concurrency).setMaxConnTotal(concurrency))
+                .build()) {
+            EsTrafficReplayer replayer = new EsTrafficReplayer(client)
+                    .setSpeed(args.length > 2 ? Double.parseDouble(args[2]) : 1)
+                    .setConcurrency(concurrency);
+            System.out.print(replayer.replay(Paths.get(args[0])));
+        }
+    }
+}
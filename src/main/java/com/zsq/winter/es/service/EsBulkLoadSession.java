@@ -0,0 +1,189 @@
+package com.zsq.winter.es.service;
+
+import com.zsq.winter.es.entity.EsDocData;
+import com.zsq.winter.es.entity.EsIndexInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.ObjectUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 批量装载会话
+ * <p>
+ * 用于全量重建：向关闭刷新、副本数为 0 的新索引写入数据，提交时恢复刷新间隔与副本数、段合并，
+ * 最后原子地将别名从旧索引切换到新索引。写入期间业务读请求仍通过别名访问旧索引，不受影响。
+ * </p>
+ * <pre>
+ * EsBulkLoadSession session = esTemplate.beginBulkLoad(aliasInfo, "user_index_20250824", settings, mappings);
+ * session.load(batch1);
+ * session.load(batch2);
+ * session.commit(true);
+ * </pre>
+ *
+ * @author dadandiaoming
+ */
+@Slf4j
+public class EsBulkLoadSession {
+
+    private static final String INDEX_PREFIX = "index.";
+
+    private static final String REFRESH_INTERVAL = "index.refresh_interval";
+
+    private static final String NUMBER_OF_REPLICAS = "index.number_of_replicas";
+
+    private final EsTemplate esTemplate;
+
+    /**
+     * 别名信息
+     */
+    private final EsIndexInfo aliasInfo;
+
+    /**
+     * 新索引信息
+     */
+    private final EsIndexInfo targetInfo;
+
+    /**
+     * 提交时恢复的设置
+     */
+    private final Map<String, Object> restoreSettings = new HashMap<>();
+
+    /**
+     * 提交时段合并的目标段数，小于等于 0 时跳过段合并
+     */
+    private int maxNumSegments = 1;
+
+    private long loadedCount = 0;
+
+    private boolean finished = false;
+
+    EsBulkLoadSession(EsTemplate esTemplate, EsIndexInfo aliasInfo, String newIndexName, Map<String, Object> settings) {
+        this.esTemplate = esTemplate;
+        this.aliasInfo = aliasInfo;
+        this.targetInfo = new EsIndexInfo()
+                .setClusterName(aliasInfo.getClusterName())
+                .setIndexName(newIndexName);
+        this.restoreSettings.put(REFRESH_INTERVAL, findSetting(settings, REFRESH_INTERVAL, "1s"));
+        this.restoreSettings.put(NUMBER_OF_REPLICAS, findSetting(settings, NUMBER_OF_REPLICAS, 1));
+    }
+
+    /**
+     * 从设置中查找值，兼容带或不带 index. 前缀的写法
+     */
+    private static Object findSetting(Map<String, Object> settings, String name, Object defaultValue) {
+        if (ObjectUtils.isEmpty(settings)) {
+            return defaultValue;
+        }
+        Object value = settings.get(name);
+        if (value == null) {
+            value = settings.get(name.substring(INDEX_PREFIX.length()));
+        }
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * 构建装载期间的索引设置：关闭刷新，副本数为 0
+     */
+    static Map<String, Object> buildLoadSettings(Map<String, Object> settings) {
+        Map<String, Object> loadSettings = new HashMap<>();
+        if (!ObjectUtils.isEmpty(settings)) {
+            loadSettings.putAll(settings);
+        }
+        loadSettings.remove(REFRESH_INTERVAL.substring(INDEX_PREFIX.length()));
+        loadSettings.remove(NUMBER_OF_REPLICAS.substring(INDEX_PREFIX.length()));
+        loadSettings.put(REFRESH_INTERVAL, "-1");
+        loadSettings.put(NUMBER_OF_REPLICAS, 0);
+        return loadSettings;
+    }
+
+    /**
+     * 获取新索引信息
+     */
+    public EsIndexInfo getTargetInfo() {
+        return targetInfo;
+    }
+
+    /**
+     * 已写入的文档数
+     */
+    public long getLoadedCount() {
+        return loadedCount;
+    }
+
+    /**
+     * 设置提交时段合并的目标段数，小于等于 0 时跳过段合并
+     */
+    public EsBulkLoadSession setMaxNumSegments(int maxNumSegments) {
+        this.maxNumSegments = maxNumSegments;
+        return this;
+    }
+
+    /**
+     * 向新索引写入一批文档
+     *
+     * @param esDocDataList 文档数据列表
+     * @return 是否成功
+     */
+    public boolean load(List<EsDocData> esDocDataList) {
+        if (finished) {
+            throw new IllegalStateException("Bulk load session of index " + targetInfo.getIndexName() + " has finished");
+        }
+        boolean success = esTemplate.batchInsertDocuments(targetInfo, esDocDataList);
+        if (success && esDocDataList != null) {
+            loadedCount += esDocDataList.size();
+        }
+        return success;
+    }
+
+    /**
+     * 提交：恢复刷新间隔与副本数、刷新、段合并，并原子切换别名
+     *
+     * @param deleteOldIndices 是否删除切换前别名指向的旧索引
+     * @return 是否成功，失败时别名保持指向旧索引
+     */
+    public boolean commit(boolean deleteOldIndices) {
+        if (finished) {
+            throw new IllegalStateException("Bulk load session of index " + targetInfo.getIndexName() + " has finished");
+        }
+        long start = System.currentTimeMillis();
+        if (!esTemplate.updateIndexSettings(targetInfo, restoreSettings)
+                || !esTemplate.refreshIndex(targetInfo)
+                || (maxNumSegments > 0 && !esTemplate.forceMerge(targetInfo, maxNumSegments))) {
+            log.error("Failed to finalize bulk load of index: {}, alias: {} is unchanged",
+                    targetInfo.getIndexName(), aliasInfo.getIndexName());
+            return false;
+        }
+
+        Set<String> oldIndices = esTemplate.swapAlias(aliasInfo, targetInfo.getIndexName());
+        if (oldIndices == null) {
+            return false;
+        }
+        finished = true;
+
+        if (deleteOldIndices) {
+            oldIndices.stream()
+                    .filter(oldIndex -> !oldIndex.equals(targetInfo.getIndexName()))
+                    .forEach(oldIndex -> esTemplate.deleteIndex(new EsIndexInfo()
+                            .setClusterName(aliasInfo.getClusterName())
+                            .setIndexName(oldIndex)));
+        }
+        log.info("Committed bulk load of {} documents into index: {}, alias: {} switched from {} in {} ms",
+                loadedCount, targetInfo.getIndexName(), aliasInfo.getIndexName(), oldIndices,
+                System.currentTimeMillis() - start);
+        return true;
+    }
+
+    /**
+     * 放弃装载并删除新索引，别名保持不变
+     *
+     * @return 是否成功
+     */
+    public boolean abort() {
+        finished = true;
+        log.info("Aborted bulk load into index: {}", targetInfo.getIndexName());
+        return esTemplate.deleteIndex(targetInfo);
+    }
+}
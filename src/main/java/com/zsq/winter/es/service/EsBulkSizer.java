@@ -0,0 +1,206 @@
+package com.zsq.winter.es.service;
+
+import com.zsq.winter.es.entity.EsConfigProperties;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 自适应批量写入大小
+ * <p>
+ * 每个集群 + 索引一个实例。每观察 windowSize 个批次计算一次吞吐（文档数/秒），按爬山法调整：
+ * 吞吐上升则沿当前方向继续调整批次大小，下降则反向；批次大小已到上限时尝试增加并发。
+ * 出现 429 拒绝时批次大小与并发减半（乘性减），单批耗时超过目标延迟时批次缩小。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+@Slf4j
+public class EsBulkSizer {
+
+    /**
+     * 吞吐变化小于该比例时视为持平
+     */
+    private static final double TOLERANCE = 0.05;
+
+    private static final double GROW_FACTOR = 1.25;
+
+    private static final double SHRINK_FACTOR = 0.8;
+
+    private final String name;
+
+    private final EsConfigProperties.EsBulkConfig config;
+
+    private volatile int batchDocs;
+
+    private volatile long batchBytes;
+
+    private volatile int concurrency;
+
+    private volatile double lastThroughput;
+
+    private volatile long batchCount;
+
+    private volatile long rejectedCount;
+
+    /**
+     * 调整方向，1 为增大，-1 为减小
+     */
+    private int direction = 1;
+
+    /**
+     * 上一次调整是否为增加并发
+     */
+    private boolean lastStepConcurrency = false;
+
+    private int windowBatches;
+
+    private long windowDocs;
+
+    private long windowLatencyMillis;
+
+    private long windowMaxLatencyMillis;
+
+    EsBulkSizer(String name, EsConfigProperties.EsBulkConfig config) {
+        this.name = name;
+        this.config = config;
+        this.batchDocs = clamp(config.getInitialDocs(), config.getMinDocs(), config.getMaxDocs());
+        this.batchBytes = clamp(config.getInitialBytes(), config.getMinBytes(), config.getMaxBytes());
+        this.concurrency = config.getMinConcurrency();
+    }
+
+    /**
+     * 记录一个批次的结果并按需调整
+     *
+     * @param docs          批次文档数
+     * @param latencyMillis 客户端观察到的延迟
+     * @param tookMillis    服务端返回的 took
+     * @param rejected      是否有条目被拒绝（429）
+     */
+    synchronized void onBatch(int docs, long latencyMillis, long tookMillis, boolean rejected) {
+        batchCount++;
+        if (rejected) {
+            rejectedCount++;
+            batchDocs = clamp(batchDocs / 2, config.getMinDocs(), config.getMaxDocs());
+            batchBytes = clamp(batchBytes / 2, config.getMinBytes(), config.getMaxBytes());
+            concurrency = clamp(concurrency / 2, config.getMinConcurrency(), config.getMaxConcurrency());
+            direction = 1;
+            lastStepConcurrency = false;
+            lastThroughput = 0;
+            resetWindow();
+            log.debug("Bulk of {} rejected, shrinking to {} docs, {} bytes, concurrency {}", name, batchDocs, batchBytes, concurrency);
+            return;
+        }
+
+        windowBatches++;
+        windowDocs += docs;
+        windowLatencyMillis += Math.max(1, latencyMillis);
+        windowMaxLatencyMillis = Math.max(windowMaxLatencyMillis, Math.max(latencyMillis, tookMillis));
+        if (windowBatches < Math.max(1, config.getWindowSize())) {
+            return;
+        }
+
+        double throughput = windowDocs * 1000.0 / windowLatencyMillis * concurrency;
+        if (windowMaxLatencyMillis > config.getTargetLatencyMs()) {
+            // 单批过慢：缩小批次，避免大批次拖慢合并与搜索
+            direction = -1;
+        } else if (lastThroughput > 0 && throughput < lastThroughput * (1 - TOLERANCE)) {
+            if (lastStepConcurrency) {
+                // 增加并发后吞吐下降，撤回并发并继续尝试调整批次大小
+                concurrency = clamp(concurrency - 1, config.getMinConcurrency(), config.getMaxConcurrency());
+                lastStepConcurrency = false;
+                lastThroughput = throughput;
+                resetWindow();
+                return;
+            }
+            direction = -direction;
+        }
+        step();
+        lastThroughput = throughput;
+        resetWindow();
+        log.debug("Bulk of {} throughput {} docs/s, next {} docs, {} bytes, concurrency {}",
+                name, (long) throughput, batchDocs, batchBytes, concurrency);
+    }
+
+    private void step() {
+        lastStepConcurrency = false;
+        if (direction > 0) {
+            if (batchDocs >= config.getMaxDocs() || batchBytes >= config.getMaxBytes()) {
+                if (concurrency < config.getMaxConcurrency()) {
+                    concurrency++;
+                    lastStepConcurrency = true;
+                }
+                return;
+            }
+            batchDocs = clamp((int) Math.ceil(batchDocs * GROW_FACTOR), config.getMinDocs(), config.getMaxDocs());
+            batchBytes = clamp((long) Math.ceil(batchBytes * GROW_FACTOR), config.getMinBytes(), config.getMaxBytes());
+        } else {
+            batchDocs = clamp((int) (batchDocs * SHRINK_FACTOR), config.getMinDocs(), config.getMaxDocs());
+            batchBytes = clamp((long) (batchBytes * SHRINK_FACTOR), config.getMinBytes(), config.getMaxBytes());
+            if (batchDocs <= config.getMinDocs() && batchBytes <= config.getMinBytes()) {
+                // 已缩到最小仍在变慢时降低并发，并转为重新向上探测
+                concurrency = clamp(concurrency - 1, config.getMinConcurrency(), config.getMaxConcurrency());
+                direction = 1;
+            }
+        }
+    }
+
+    private void resetWindow() {
+        windowBatches = 0;
+        windowDocs = 0;
+        windowLatencyMillis = 0;
+        windowMaxLatencyMillis = 0;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 当前每批文档数
+     */
+    public int getBatchDocs() {
+        return batchDocs;
+    }
+
+    /**
+     * 当前每批字节数
+     */
+    public long getBatchBytes() {
+        return batchBytes;
+    }
+
+    /**
+     * 当前并发批次数
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * 最近一个观察窗口的吞吐（文档数/秒）
+     */
+    public double getLastThroughput() {
+        return lastThroughput;
+    }
+
+    /**
+     * 已执行的批次数
+     */
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * 出现拒绝的批次数
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+}
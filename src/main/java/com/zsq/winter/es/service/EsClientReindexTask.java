@@ -0,0 +1,317 @@
+package com.zsq.winter.es.service;
+
+import com.zsq.winter.es.entity.EsDocData;
+import com.zsq.winter.es.entity.EsReindexRequest;
+import com.zsq.winter.es.entity.EsTaskProgress;
+import com.zsq.winter.es.util.EsExecutors;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 客户端索引重建任务
+ * <p>
+ * 每个切片使用独立的滚动查询读取源索引，经转换函数处理后批量写入目标索引；
+ * 写入与下一页读取流水线并行。已完成的切片记录在断点文件中，崩溃后重启时跳过；
+ * 未完成的切片从头重放，由于按相同文档id写入，重放是幂等的。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+@Slf4j
+public class EsClientReindexTask implements EsTaskHandle {
+
+    private final String taskId = "client:" + UUID.randomUUID();
+
+    private final EsTemplate esTemplate;
+
+    private final RestHighLevelClient sourceClient;
+
+    private final EsReindexRequest request;
+
+    private final EsReindexCheckpoint checkpoint;
+
+    private final AtomicLong total = new AtomicLong();
+
+    private final AtomicLong created = new AtomicLong();
+
+    private final AtomicLong noops = new AtomicLong();
+
+    private final AtomicLong batches = new AtomicLong();
+
+    private final List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+    private final AtomicInteger runningSlices = new AtomicInteger();
+
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    private volatile float requestsPerSecond;
+
+    private volatile boolean cancelled = false;
+
+    private volatile long startMillis;
+
+    private volatile long endMillis;
+
+    /**
+     * 限速：下一批允许开始的时间（纳秒）
+     */
+    private long nextAllowedNanos = 0;
+
+    private ExecutorService executor;
+
+    EsClientReindexTask(EsTemplate esTemplate, RestHighLevelClient sourceClient, EsReindexRequest request,
+                        EsReindexCheckpoint checkpoint) {
+        this.esTemplate = esTemplate;
+        this.sourceClient = sourceClient;
+        this.request = request;
+        this.checkpoint = checkpoint;
+        this.requestsPerSecond = request.getRequestsPerSecond();
+    }
+
+    /**
+     * 启动任务，每个切片一个读取线程，另有同等数量的写入线程
+     */
+    void start() {
+        startMillis = System.currentTimeMillis();
+        int slices = Math.max(1, request.getSlices());
+        List<Integer> pendingSlices = new ArrayList<>();
+        for (int sliceId = 0; sliceId < slices; sliceId++) {
+            if (checkpoint.isSliceDone(sliceId)) {
+                log.info("Skipping finished slice {} of reindex task: {}", sliceId, taskId);
+            } else {
+                pendingSlices.add(sliceId);
+            }
+        }
+        if (pendingSlices.isEmpty()) {
+            finish();
+            return;
+        }
+
+        executor = EsExecutors.newTaskExecutor("es-reindex", pendingSlices.size() * 2);
+        runningSlices.set(pendingSlices.size());
+        for (Integer sliceId : pendingSlices) {
+            executor.execute(() -> {
+                try {
+                    runSlice(sliceId, slices);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failures.add("slice " + sliceId + " interrupted");
+                } catch (Exception e) {
+                    log.error("Slice {} of reindex task: {} failed", sliceId, taskId, e);
+                    failures.add("slice " + sliceId + ": " + e.getMessage());
+                } finally {
+                    if (runningSlices.decrementAndGet() == 0) {
+                        finish();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 处理单个切片：滚动读取、转换、流水线批量写入
+     */
+    private void runSlice(int sliceId, int slices) throws Exception {
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder()
+                .query(request.getQuery() == null ? QueryBuilders.matchAllQuery() : request.getQuery())
+                .size(request.getBatchSize())
+                .trackTotalHits(true)
+                .sort("_doc");
+        if (slices > 1) {
+            sourceBuilder.slice(new SliceBuilder(sliceId, slices));
+        }
+        TimeValue keepAlive = TimeValue.timeValueMinutes(request.getScrollMinutes());
+        SearchRequest searchRequest = new SearchRequest(request.getSource().getIndexName())
+                .source(sourceBuilder)
+                .scroll(keepAlive);
+
+        SearchResponse response = sourceClient.search(searchRequest, RequestOptions.DEFAULT);
+        String scrollId = response.getScrollId();
+        total.addAndGet(response.getHits().getTotalHits().value);
+        CompletableFuture<Boolean> pendingWrite = CompletableFuture.completedFuture(true);
+        try {
+            while (!cancelled && response.getHits().getHits().length > 0) {
+                List<EsDocData> docs = transform(response.getHits().getHits());
+                throttle(response.getHits().getHits().length);
+                // 上一批写入完成后才提交下一批，同时下一页读取与本批写入并行
+                if (!pendingWrite.get()) {
+                    throw new IllegalStateException("Bulk write to index " + request.getTarget().getIndexName() + " failed");
+                }
+                pendingWrite = writeAsync(docs);
+                response = sourceClient.scroll(new SearchScrollRequest(scrollId).scroll(keepAlive), RequestOptions.DEFAULT);
+                scrollId = response.getScrollId();
+            }
+            if (!pendingWrite.get()) {
+                throw new IllegalStateException("Bulk write to index " + request.getTarget().getIndexName() + " failed");
+            }
+        } finally {
+            clearScroll(scrollId);
+        }
+        if (!cancelled) {
+            checkpoint.markSliceDone(sliceId);
+            log.info("Slice {} of reindex task: {} finished", sliceId, taskId);
+        }
+    }
+
+    /**
+     * 将命中转换为待写入文档
+     */
+    private List<EsDocData> transform(SearchHit[] hits) {
+        List<EsDocData> docs = new ArrayList<>(hits.length);
+        for (SearchHit hit : hits) {
+            // 保留源文档的路由，避免自定义路由的文档写入目标索引后落到其他分片
+            DocumentField routing = hit.field("_routing");
+            EsDocData esDocData = new EsDocData()
+                    .setDocId(hit.getId())
+                    .setData(hit.getSourceAsMap())
+                    .setRouting(routing == null ? null : routing.getValue());
+            if (request.getTransformer() != null) {
+                esDocData = request.getTransformer().apply(esDocData);
+            }
+            if (esDocData == null) {
+                noops.incrementAndGet();
+            } else {
+                docs.add(esDocData);
+            }
+        }
+        return docs;
+    }
+
+    private CompletableFuture<Boolean> writeAsync(List<EsDocData> docs) {
+        if (docs.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            boolean success = esTemplate.batchInsertDocuments(request.getTarget(), docs);
+            if (success) {
+                created.addAndGet(docs.size());
+                batches.incrementAndGet();
+            }
+            return success;
+        }, executor);
+    }
+
+    /**
+     * 按每秒文档数限速
+     */
+    private void throttle(int docs) throws InterruptedException {
+        float rate = requestsPerSecond;
+        if (rate <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            nextAllowedNanos = Math.max(nextAllowedNanos, now);
+            waitNanos = nextAllowedNanos - now;
+            nextAllowedNanos += (long) (docs / rate * TimeUnit.SECONDS.toNanos(1));
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private void clearScroll(String scrollId) {
+        if (scrollId == null) {
+            return;
+        }
+        try {
+            ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+            clearScrollRequest.addScrollId(scrollId);
+            sourceClient.clearScroll(clearScrollRequest, RequestOptions.DEFAULT);
+        } catch (Exception e) {
+            log.warn("Failed to clear scroll of reindex task: {}", taskId, e);
+        }
+    }
+
+    private void finish() {
+        endMillis = System.currentTimeMillis();
+        if (!cancelled && failures.isEmpty()) {
+            checkpoint.markFinished();
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+        EsTaskProgress progress = getProgress();
+        log.info("Reindex task: {} finished with state: {}, processed: {}, failures: {}",
+                taskId, progress.getState(), progress.getProcessed(), progress.getFailures());
+        finished.countDown();
+    }
+
+    @Override
+    public String getTaskId() {
+        return taskId;
+    }
+
+    @Override
+    public EsTaskProgress getProgress() {
+        EsTaskProgress.State state;
+        if (finished.getCount() > 0 && endMillis == 0) {
+            state = EsTaskProgress.State.RUNNING;
+        } else if (cancelled) {
+            state = EsTaskProgress.State.CANCELLED;
+        } else {
+            state = failures.isEmpty() ? EsTaskProgress.State.COMPLETED : EsTaskProgress.State.FAILED;
+        }
+        long end = endMillis == 0 ? System.currentTimeMillis() : endMillis;
+        EsTaskProgress progress = new EsTaskProgress()
+                .setTaskId(taskId)
+                .setState(state)
+                .setTotal(total.get())
+                .setCreated(created.get())
+                .setNoops(noops.get())
+                .setBatches(batches.get())
+                .setRequestsPerSecond(requestsPerSecond)
+                .setElapsedMillis(end - startMillis);
+        synchronized (failures) {
+            progress.getFailures().addAll(failures);
+        }
+        return progress;
+    }
+
+    @Override
+    public boolean rethrottle(float requestsPerSecond) {
+        this.requestsPerSecond = requestsPerSecond;
+        log.info("Rethrottled reindex task: {} to {} requests per second", taskId, requestsPerSecond);
+        return true;
+    }
+
+    @Override
+    public boolean cancel() {
+        cancelled = true;
+        log.info("Cancelling reindex task: {}", taskId);
+        return true;
+    }
+
+    @Override
+    public EsTaskProgress awaitCompletion(long timeoutMillis) {
+        try {
+            finished.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return getProgress();
+    }
+}
@@ -0,0 +1,211 @@
+package com.zsq.winter.es.service;
+
+import com.zsq.winter.es.entity.EsTaskProgress;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 集群组后台任务句柄
+ * <p>
+ * 集群组上的 _delete_by_query、_update_by_query 在每个成员上各启动一个任务，本句柄跟踪全部成员的任务：
+ * 取消与调整限速作用于所有成员，进度的计数取自主集群，任一成员仍在运行时状态为运行中，成员的失败信息以集群名开头合并。
+ * 异步镜像的成员任务经镜像队列提交，提交前已取消或调整限速的，提交后立即补发。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+public class EsGroupTaskHandle implements EsTaskHandle {
+
+    /**
+     * 轮询间隔（毫秒）
+     */
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    private final String primary;
+
+    /**
+     * 成员任务，值为 null 表示尚未提交（在异步镜像队列中）
+     */
+    private final Map<String, EsTaskHandle> memberHandles = new LinkedHashMap<>();
+
+    /**
+     * 提交失败的成员及原因
+     */
+    private final Map<String, String> memberFailures = new LinkedHashMap<>();
+
+    private boolean cancelled;
+
+    private Float requestsPerSecond;
+
+    public EsGroupTaskHandle(String primary, EsTaskHandle primaryHandle) {
+        this.primary = primary;
+        this.memberHandles.put(primary, primaryHandle);
+    }
+
+    /**
+     * 登记将要提交任务的成员
+     */
+    synchronized void expectMember(String member) {
+        memberHandles.put(member, null);
+    }
+
+    /**
+     * 成员任务已提交；之前已取消或调整限速时立即作用于该任务
+     */
+    void onMemberSubmitted(String member, EsTaskHandle handle) {
+        boolean cancel;
+        Float throttle;
+        synchronized (this) {
+            memberHandles.put(member, handle);
+            cancel = cancelled;
+            throttle = requestsPerSecond;
+        }
+        if (cancel) {
+            handle.cancel();
+        } else if (throttle != null) {
+            handle.rethrottle(throttle);
+        }
+    }
+
+    /**
+     * 成员任务提交失败
+     */
+    synchronized void onMemberFailed(String member, Exception e) {
+        memberHandles.remove(member);
+        memberFailures.put(member, String.valueOf(e));
+    }
+
+    @Override
+    public String getTaskId() {
+        return primaryHandle().getTaskId();
+    }
+
+    /**
+     * 获取各成员任务的进度，尚未提交的成员不包含在内
+     *
+     * @return 成员名称到进度的映射，查询失败的成员值为 null
+     */
+    public Map<String, EsTaskProgress> getMemberProgress() {
+        Map<String, EsTaskProgress> result = new LinkedHashMap<>();
+        snapshot().forEach((member, handle) -> {
+            if (handle != null) {
+                result.put(member, handle.getProgress());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 获取成员任务句柄，尚未提交的成员值为 null
+     */
+    public synchronized Map<String, EsTaskHandle> getMemberHandles() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(memberHandles));
+    }
+
+    @Override
+    public EsTaskProgress getProgress() {
+        Map<String, EsTaskHandle> handles = snapshot();
+        EsTaskProgress primaryProgress = handles.get(primary).getProgress();
+        if (primaryProgress == null) {
+            return null;
+        }
+        EsTaskProgress progress = copy(primaryProgress);
+        boolean running = !primaryProgress.isFinished();
+        boolean failed = primaryProgress.getState() == EsTaskProgress.State.FAILED;
+        for (Map.Entry<String, EsTaskHandle> entry : handles.entrySet()) {
+            if (entry.getKey().equals(primary)) {
+                continue;
+            }
+            EsTaskProgress memberProgress = entry.getValue() == null ? null : entry.getValue().getProgress();
+            if (memberProgress == null) {
+                // 仍在镜像队列中，或暂时查询不到进度
+                running = true;
+                continue;
+            }
+            running |= !memberProgress.isFinished();
+            failed |= memberProgress.getState() == EsTaskProgress.State.FAILED;
+            memberProgress.getFailures().forEach(failure -> progress.getFailures().add(entry.getKey() + ": " + failure));
+        }
+        synchronized (this) {
+            memberFailures.forEach((member, failure) -> progress.getFailures().add(member + ": " + failure));
+            failed |= !memberFailures.isEmpty();
+        }
+        if (running) {
+            progress.setState(EsTaskProgress.State.RUNNING);
+        } else if (failed) {
+            progress.setState(EsTaskProgress.State.FAILED);
+        }
+        return progress;
+    }
+
+    @Override
+    public boolean rethrottle(float requestsPerSecond) {
+        synchronized (this) {
+            this.requestsPerSecond = requestsPerSecond;
+        }
+        boolean success = true;
+        for (EsTaskHandle handle : snapshot().values()) {
+            if (handle != null) {
+                success &= handle.rethrottle(requestsPerSecond);
+            }
+        }
+        return success;
+    }
+
+    @Override
+    public boolean cancel() {
+        synchronized (this) {
+            cancelled = true;
+        }
+        boolean success = true;
+        for (EsTaskHandle handle : snapshot().values()) {
+            if (handle != null) {
+                success &= handle.cancel();
+            }
+        }
+        return success;
+    }
+
+    @Override
+    public EsTaskProgress awaitCompletion(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        EsTaskProgress progress = getProgress();
+        while ((progress == null || !progress.isFinished()) && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            progress = getProgress();
+        }
+        return progress;
+    }
+
+    private synchronized EsTaskHandle primaryHandle() {
+        return memberHandles.get(primary);
+    }
+
+    private synchronized Map<String, EsTaskHandle> snapshot() {
+        return new LinkedHashMap<>(memberHandles);
+    }
+
+    private static EsTaskProgress copy(EsTaskProgress source) {
+        EsTaskProgress progress = new EsTaskProgress()
+                .setTaskId(source.getTaskId())
+                .setState(source.getState())
+                .setTotal(source.getTotal())
+                .setCreated(source.getCreated())
+                .setUpdated(source.getUpdated())
+                .setDeleted(source.getDeleted())
+                .setNoops(source.getNoops())
+                .setBatches(source.getBatches())
+                .setVersionConflicts(source.getVersionConflicts())
+                .setRequestsPerSecond(source.getRequestsPerSecond())
+                .setElapsedMillis(source.getElapsedMillis());
+        progress.getFailures().addAll(source.getFailures());
+        return progress;
+    }
+}
@@ -0,0 +1,176 @@
+package com.zsq.winter.es.service;
+
+import com.zsq.winter.es.entity.EsIndexInfo;
+import com.zsq.winter.es.entity.EsReindexRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.common.Strings;
+import org.springframework.util.ObjectUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 索引重建断点
+ * 以 properties 文件记录服务端任务id或客户端已完成的切片，写入时先写临时文件再原子替换；
+ * 同时记录执行模式、源与目标索引、切片数与查询条件，恢复时与本次请求不一致则拒绝，避免把其他请求的进度当作本次的
+ *
+ * @author dadandiaoming
+ */
+@Slf4j
+class EsReindexCheckpoint {
+
+    private static final String TASK_ID = "taskId";
+
+    private static final String SLICE_PREFIX = "slice.";
+
+    private static final String FINISHED = "finished";
+
+    private static final String REQUEST_PREFIX = "request.";
+
+    /**
+     * 断点文件，为 null 时不记录断点
+     */
+    private final Path file;
+
+    private final Properties properties = new Properties();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    EsReindexCheckpoint(String checkpointFile) {
+        this.file = ObjectUtils.isEmpty(checkpointFile) ? null : Paths.get(checkpointFile);
+        if (file != null && Files.exists(file)) {
+            try (InputStream inputStream = Files.newInputStream(file)) {
+                properties.load(inputStream);
+                log.info("Loaded reindex checkpoint: {}, state: {}", file, properties);
+            } catch (IOException e) {
+                log.warn("Failed to load reindex checkpoint: {}, starting from scratch", file, e);
+            }
+        }
+    }
+
+    /**
+     * 校验断点属于本次请求：断点为空时记录本次请求的参数，否则要求记录的参数与本次请求一致
+     *
+     * @param request 重建请求
+     * @throws IllegalStateException 断点来自参数不同的请求，或是未记录请求参数的旧断点
+     */
+    void bind(EsReindexRequest request) {
+        Map<String, String> parameters = describe(request);
+        lock.lock();
+        try {
+            if (!properties.isEmpty()) {
+                for (Map.Entry<String, String> entry : parameters.entrySet()) {
+                    String recorded = properties.getProperty(REQUEST_PREFIX + entry.getKey());
+                    if (!entry.getValue().equals(recorded)) {
+                        throw new IllegalStateException("Reindex checkpoint " + file + " belongs to another request: "
+                                + entry.getKey() + " was " + recorded + ", now " + entry.getValue()
+                                + "; delete the checkpoint file or use another path to start over");
+                    }
+                }
+                return;
+            }
+            parameters.forEach((key, value) -> properties.setProperty(REQUEST_PREFIX + key, value));
+            save();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    String getTaskId() {
+        lock.lock();
+        try {
+            return properties.getProperty(TASK_ID);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void setTaskId(String taskId) {
+        update(TASK_ID, taskId);
+    }
+
+    boolean isSliceDone(int sliceId) {
+        lock.lock();
+        try {
+            return Boolean.parseBoolean(properties.getProperty(SLICE_PREFIX + sliceId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void markSliceDone(int sliceId) {
+        update(SLICE_PREFIX + sliceId, "true");
+    }
+
+    boolean isFinished() {
+        lock.lock();
+        try {
+            return Boolean.parseBoolean(properties.getProperty(FINISHED));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void markFinished() {
+        update(FINISHED, "true");
+    }
+
+    /**
+     * 更新并保存断点，保存涉及文件 I/O，使用 ReentrantLock 而非 synchronized，避免虚拟线程被固定
+     */
+    private void update(String key, String value) {
+        lock.lock();
+        try {
+            properties.setProperty(key, value);
+            save();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 决定断点含义的请求参数；限速、批大小等只影响执行过程的参数不在其中
+     */
+    private static Map<String, String> describe(EsReindexRequest request) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("serverSide", String.valueOf(request.isServerSide()));
+        parameters.put("source", describe(request.getSource()));
+        parameters.put("target", describe(request.getTarget()));
+        parameters.put("slices", String.valueOf(request.getSlices()));
+        parameters.put("query", request.getQuery() == null ? "" : Strings.toString(request.getQuery()));
+        return parameters;
+    }
+
+    private static String describe(EsIndexInfo esIndexInfo) {
+        String clusterName = esIndexInfo.getClusterName();
+        return (ObjectUtils.isEmpty(clusterName) ? "" : clusterName) + "/" + esIndexInfo.getIndexName();
+    }
+
+    private void save() {
+        if (file == null) {
+            return;
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(tmp)) {
+                properties.store(outputStream, "winter-es reindex checkpoint");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Failed to save reindex checkpoint: {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.zsq.winter.es.service;
+
+import com.zsq.winter.es.entity.EsTaskProgress;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 服务端任务句柄
+ * 通过 _tasks API 跟踪 _reindex、_delete_by_query、_update_by_query 后台任务
+ *
+ * @author dadandiaoming
+ */
+@Slf4j
+public class EsServerTaskHandle implements EsTaskHandle {
+
+    /**
+     * 轮询间隔（毫秒）
+     */
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    private final RestClient lowLevelClient;
+
+    private final String taskId;
+
+    /**
+     * 任务对应的端点，如 _reindex，用于调整限速
+     */
+    private final String endpoint;
+
+    private volatile EsTaskProgress lastProgress;
+
+    public EsServerTaskHandle(RestClient lowLevelClient, String taskId, String endpoint) {
+        this.lowLevelClient = lowLevelClient;
+        this.taskId = taskId;
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    public String getTaskId() {
+        return taskId;
+    }
+
+    @Override
+    public EsTaskProgress getProgress() {
+        try {
+            Response response = lowLevelClient.performRequest(new Request("GET", "/_tasks/" + taskId));
+            lastProgress = parseProgress(readMap(response));
+            return lastProgress;
+        } catch (ResponseException e) {
+            // 任务已结束且未保存结果时 _tasks 返回 404
+            if (e.getResponse().getStatusLine().getStatusCode() == 404 && lastProgress != null) {
+                lastProgress.setState(EsTaskProgress.State.COMPLETED);
+                return lastProgress;
+            }
+            log.error("Failed to get progress of task: {}", taskId, e);
+            return null;
+        } catch (Exception e) {
+            log.error("Failed to get progress of task: {}", taskId, e);
+            return null;
+        }
+    }
+
+    @Override
+    public boolean rethrottle(float requestsPerSecond) {
+        try {
+            Request request = new Request("POST", "/" + endpoint + "/" + taskId + "/_rethrottle");
+            request.addParameter("requests_per_second", requestsPerSecond > 0 ? String.valueOf(requestsPerSecond) : "-1");
+            lowLevelClient.performRequest(request);
+            log.info("Rethrottled task: {} to {} requests per second", taskId, requestsPerSecond);
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to rethrottle task: {}", taskId, e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean cancel() {
+        try {
+            lowLevelClient.performRequest(new Request("POST", "/_tasks/" + taskId + "/_cancel"));
+            log.info("Cancelled task: {}", taskId);
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to cancel task: {}", taskId, e);
+            return false;
+        }
+    }
+
+    @Override
+    public EsTaskProgress awaitCompletion(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        EsTaskProgress progress = getProgress();
+        while ((progress == null || !progress.isFinished()) && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            progress = getProgress();
+        }
+        return progress;
+    }
+
+    /**
+     * 读取响应体为 Map
+     */
+    static Map<String, Object> readMap(Response response) throws IOException {
+        try (InputStream inputStream = response.getEntity().getContent()) {
+            return XContentHelper.convertToMap(XContentType.JSON.xContent(), inputStream, false);
+        }
+    }
+
+    /**
+     * 解析 _tasks 响应
+     */
+    @SuppressWarnings("unchecked")
+    private EsTaskProgress parseProgress(Map<String, Object> body) {
+        EsTaskProgress progress = new EsTaskProgress().setTaskId(taskId);
+        Map<String, Object> task = (Map<String, Object>) body.get("task");
+        Map<String, Object> status = task == null ? null : (Map<String, Object>) task.get("status");
+        if (status != null) {
+            fillCounters(progress, status);
+        }
+        if (task != null && task.get("running_time_in_nanos") instanceof Number) {
+            progress.setElapsedMillis(((Number) task.get("running_time_in_nanos")).longValue() / 1_000_000);
+        }
+
+        if (!Boolean.TRUE.equals(body.get("completed"))) {
+            progress.setState(EsTaskProgress.State.RUNNING);
+            return progress;
+        }
+        Map<String, Object> error = (Map<String, Object>) body.get("error");
+        Map<String, Object> response = (Map<String, Object>) body.get("response");
+        if (error != null) {
+            progress.setState(EsTaskProgress.State.FAILED);
+            progress.getFailures().add(String.valueOf(error.get("reason")));
+        } else {
+            if (response != null) {
+                // 完成后的最终计数以 response 为准
+                fillCounters(progress, response);
+                Object failures = response.get("failures");
+                if (failures instanceof List) {
+                    ((List<Object>) failures).forEach(failure -> progress.getFailures().add(String.valueOf(failure)));
+                }
+            }
+            boolean cancelled = response != null && response.get("canceled") != null;
+            progress.setState(cancelled ? EsTaskProgress.State.CANCELLED
+                    : progress.getFailures().isEmpty() ? EsTaskProgress.State.COMPLETED : EsTaskProgress.State.FAILED);
+        }
+        return progress;
+    }
+
+    private static void fillCounters(EsTaskProgress progress, Map<String, Object> counters) {
+        progress.setTotal(asLong(counters.get("total")))
+                .setCreated(asLong(counters.get("created")))
+                .setUpdated(asLong(counters.get("updated")))
+                .setDeleted(asLong(counters.get("deleted")))
+                .setNoops(asLong(counters.get("noops")))
+                .setBatches(asLong(counters.get("batches")))
+                .setVersionConflicts(asLong(counters.get("version_conflicts")));
+        Object requestsPerSecond = counters.get("requests_per_second");
+        if (requestsPerSecond instanceof Number) {
+            progress.setRequestsPerSecond(((Number) requestsPerSecond).floatValue());
+        }
+    }
+
+    private static long asLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+}
@@ -0,0 +1,107 @@
+package com.zsq.winter.es.service;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 相同请求合并（single flight）
+ * <p>
+ * 同一时刻键相同的请求只有第一个真正发送，其余请求等待并共享它的响应（或异常）；
+ * 请求完成后立即移除，不做任何缓存，因此不会引入超出请求本身的数据延迟。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+public class EsSingleFlight {
+
+    /**
+     * 请求调用
+     */
+    @FunctionalInterface
+    interface Call<T> {
+        T call() throws IOException;
+    }
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executedCount = new LongAdder();
+
+    private final LongAdder sharedCount = new LongAdder();
+
+    /**
+     * 执行请求，已有相同请求在进行中时等待其结果
+     *
+     * @param key  请求键，需包含集群、索引与规范化的请求内容
+     * @param call 请求调用
+     * @return 响应，多个调用方共享同一个对象，调用方不应修改
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(String key, Call<T> call) throws IOException {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            sharedCount.increment();
+            return (T) await(existing);
+        }
+
+        executedCount.increment();
+        try {
+            T result = call.call();
+            future.complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } catch (Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for in-flight request", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 实际发送的请求数
+     */
+    public long getExecutedCount() {
+        return executedCount.sum();
+    }
+
+    /**
+     * 共享了其他请求响应、未实际发送的请求数
+     */
+    public long getSharedCount() {
+        return sharedCount.sum();
+    }
+
+    /**
+     * 当前进行中的不同请求数
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
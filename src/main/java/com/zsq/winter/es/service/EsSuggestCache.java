@@ -0,0 +1,114 @@
+package com.zsq.winter.es.service;
+
+import com.zsq.winter.es.entity.EsSuggestion;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 输入提示前缀缓存
+ * <p>
+ * 按访问顺序淘汰（LRU），热门前缀（通常是前一两个字符）常驻；条目超过有效期后视为未命中，
+ * 因此新写入的提示最多延迟一个有效期才出现。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+public class EsSuggestCache {
+
+    private final int maxEntries;
+
+    private final long ttlMillis;
+
+    private final LinkedHashMap<String, CachedSuggestions> entries;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    EsSuggestCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, CachedSuggestions>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedSuggestions> eldest) {
+                return size() > EsSuggestCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @param key 缓存键
+     * @return 提示列表，未命中或已过期时返回 null
+     */
+    List<EsSuggestion> get(String key) {
+        CachedSuggestions entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && System.currentTimeMillis() - entry.createdAt > ttlMillis) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return entry.suggestions;
+    }
+
+    void put(String key, List<EsSuggestion> suggestions) {
+        synchronized (entries) {
+            entries.put(key, new CachedSuggestions(suggestions, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * 清空缓存，如批量更新提示数据后
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * 当前条目数
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * 命中次数
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * 未命中次数
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    private static final class CachedSuggestions {
+
+        private final List<EsSuggestion> suggestions;
+
+        private final long createdAt;
+
+        private CachedSuggestions(List<EsSuggestion> suggestions, long createdAt) {
+            this.suggestions = suggestions;
+            this.createdAt = createdAt;
+        }
+    }
+}
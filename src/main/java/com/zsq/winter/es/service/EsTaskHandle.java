@@ -0,0 +1,49 @@
+package com.zsq.winter.es.service;
+
+import com.zsq.winter.es.entity.EsTaskProgress;
+
+/**
+ * es后台任务句柄
+ * 用于查询进度、调整限速与取消任务
+ *
+ * @author dadandiaoming
+ */
+public interface EsTaskHandle {
+
+    /**
+     * 获取任务id
+     *
+     * @return 任务id
+     */
+    String getTaskId();
+
+    /**
+     * 获取当前进度
+     *
+     * @return 任务进度，查询失败时返回 null
+     */
+    EsTaskProgress getProgress();
+
+    /**
+     * 调整限速
+     *
+     * @param requestsPerSecond 每秒文档数，小于等于 0 表示不限速
+     * @return 是否成功
+     */
+    boolean rethrottle(float requestsPerSecond);
+
+    /**
+     * 取消任务
+     *
+     * @return 是否成功
+     */
+    boolean cancel();
+
+    /**
+     * 阻塞等待任务结束
+     *
+     * @param timeoutMillis 最长等待时间（毫秒）
+     * @return 最后一次查询到的进度
+     */
+    EsTaskProgress awaitCompletion(long timeoutMillis);
+}
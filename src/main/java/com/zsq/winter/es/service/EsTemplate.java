@@ -1,10 +1,56 @@
 package com.zsq.winter.es.service;
 
+import com.zsq.winter.es.client.EsBufferPool;
+import com.zsq.winter.es.client.EsBulkBodyWriter;
+import com.zsq.winter.es.client.EsClientCallback;
+import com.zsq.winter.es.client.EsClusterGroup;
 import com.zsq.winter.es.client.EsRestClient;
+import com.zsq.winter.es.client.EsStreamingResponseConsumer;
+import com.zsq.winter.es.dump.EsDumpExporter;
+import com.zsq.winter.es.dump.EsDumpImporter;
+import com.zsq.winter.es.entity.EsByQueryRequest;
+import com.zsq.winter.es.entity.EsConfigProperties;
 import com.zsq.winter.es.entity.EsDocData;
+import com.zsq.winter.es.entity.EsDumpOptions;
+import com.zsq.winter.es.entity.EsDumpResult;
+import com.zsq.winter.es.entity.EsFederatedSearchResult;
 import com.zsq.winter.es.entity.EsIndexInfo;
+import com.zsq.winter.es.entity.EsQueryAnalysis;
+import com.zsq.winter.es.entity.EsQueryPolicy;
+import com.zsq.winter.es.entity.EsReindexRequest;
+import com.zsq.winter.es.entity.EsRequestOptions;
 import com.zsq.winter.es.entity.EsSearchRequest;
+import com.zsq.winter.es.entity.EsStreamHit;
+import com.zsq.winter.es.entity.EsSuggestRequest;
+import com.zsq.winter.es.entity.EsSuggestion;
+import com.zsq.winter.es.entity.EsTaskProgress;
+import com.zsq.winter.es.entity.EsTimeSeriesIndex;
+import com.zsq.winter.es.entity.EsWriteResult;
+import com.zsq.winter.es.replay.EsTrafficRecord;
+import com.zsq.winter.es.replay.EsTrafficRecorder;
+import com.zsq.winter.es.replay.EsTrafficReplayer;
+import com.zsq.winter.es.spool.EsSpoolRecord;
+import com.zsq.winter.es.spool.EsWriteSpool;
+import com.zsq.winter.es.util.EsExecutors;
+import com.zsq.winter.es.util.EsQueryAnalyzer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.forcemerge.ForceMergeRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
@@ -12,25 +58,115 @@ import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.client.Cancellable;
+import org.elasticsearch.client.GetAliasesResponse;
+import org.elasticsearch.client.HeapBufferedAsyncResponseConsumer;
+import org.elasticsearch.client.HttpAsyncResponseConsumerFactory;
+import org.elasticsearch.client.Request;
 import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.client.core.CountRequest;
+import org.elasticsearch.client.tasks.TaskSubmissionResponse;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.unit.Fuzziness;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.MultiMatchQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.reindex.AbstractBulkByScrollRequest;
 import org.elasticsearch.index.reindex.BulkByScrollResponse;
 import org.elasticsearch.index.reindex.DeleteByQueryRequest;
+import org.elasticsearch.index.reindex.ReindexRequest;
+import org.elasticsearch.index.reindex.RemoteInfo;
+import org.elasticsearch.index.reindex.UpdateByQueryRequest;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
 import org.elasticsearch.search.Scroll;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.Max;
+import org.elasticsearch.search.aggregations.metrics.Min;
+import org.elasticsearch.search.aggregations.metrics.Sum;
+import org.elasticsearch.search.aggregations.metrics.ValueCount;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 import org.elasticsearch.search.sort.ScoreSortBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
 import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.search.suggest.Suggest;
+import org.elasticsearch.search.suggest.SuggestBuilder;
+import org.elasticsearch.search.suggest.SuggestBuilders;
+import org.elasticsearch.search.suggest.completion.CompletionSuggestion;
+import org.elasticsearch.search.suggest.completion.CompletionSuggestionBuilder;
+import org.elasticsearch.search.suggest.completion.context.CategoryQueryContext;
 import org.springframework.util.ObjectUtils;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Elasticsearch 操作模板类
@@ -43,8 +179,118 @@ public class EsTemplate {
 
     private final EsRestClient esRestClient;
 
+    /**
+     * 时序索引路由
+     */
+    private final EsTimeSeriesRouter timeSeriesRouter;
+
+    /**
+     * 按索引名称注册的路由键提取器
+     */
+    private final Map<String, Function<EsDocData, String>> routingExtractors = new ConcurrentHashMap<>();
+
+    /**
+     * 相同请求合并，未启用时为 null
+     */
+    private volatile EsSingleFlight singleFlight;
+
+    /**
+     * 自适应分批器，键为 集群|索引
+     */
+    private final Map<String, EsBulkSizer> bulkSizers = new ConcurrentHashMap<>();
+
+    /**
+     * 批量请求体缓冲池，未启用时为 null，使用高级客户端的默认编码
+     */
+    private volatile EsBufferPool bulkBufferPool;
+
+    /**
+     * 批量写入线程池，用于自适应分批时并发发送多个批次
+     */
+    private volatile ExecutorService bulkExecutor;
+
+    /**
+     * 批量写入线程池的线程数上限
+     */
+    private volatile int bulkThreads = 16;
+
+    /**
+     * 联合搜索线程池，每个集群的请求占用一个线程
+     */
+    private volatile ExecutorService federatedExecutor;
+
+    /**
+     * 联合搜索线程池的线程数上限
+     */
+    private volatile int federatedThreads = 16;
+
+    /**
+     * 后台调度线程池，用于任务进度回调等定时工作
+     */
+    private volatile ScheduledExecutorService taskScheduler;
+
+    /**
+     * 请求录制，未开启时为 null
+     */
+    private volatile EsTrafficRecorder trafficRecorder;
+
+    /**
+     * 查询防护策略，键为索引名称或通配符
+     */
+    private final Map<String, EsQueryPolicy> queryPolicies = new ConcurrentHashMap<>();
+
+    /**
+     * 输入提示前缀缓存，未启用时为 null
+     */
+    private volatile EsSuggestCache suggestCache;
+
+    /**
+     * 各会话进行中的输入提示请求，键为 集群|会话id
+     */
+    private final Map<String, SuggestCall> suggestSessions = new ConcurrentHashMap<>();
+
+    /**
+     * 写入合并缓冲，未启用时为 null
+     */
+    private volatile EsWriteCoalescer writeCoalescer;
+
+    /**
+     * 写入合并的定时写入任务
+     */
+    private volatile ScheduledFuture<?> coalesceFlushFuture;
+
+    /**
+     * 是否已提交因缓冲达到上限触发的写入
+     */
+    private final AtomicBoolean coalesceFlushRequested = new AtomicBoolean(false);
+
+    /**
+     * 串行化写入合并的启停以及缓冲的取出与提交，不占用 this 上的锁；写入在 coalesceSender 上执行，不持有该锁
+     */
+    private final Object coalesceLock = new Object();
+
+    /**
+     * 写入合并的写入线程，单线程按提交顺序执行，在 coalesceLock 下创建
+     */
+    private ExecutorService coalesceSender;
+
+    /**
+     * 最近一次提交到写入线程的写入
+     */
+    private volatile Future<?> lastCoalescedFlush;
+
     private static final RequestOptions COMMON_OPTIONS;
 
+    /**
+     * completion 建议器在请求中的名称
+     */
+    private static final String SUGGESTION_NAME = "suggest";
+
+    /**
+     * 联合搜索中集群请求超时后，等待其取消完成的额外时间（毫秒）
+     */
+    private static final long FEDERATED_GRACE_MILLIS = 100;
+
     static {
         RequestOptions.Builder builder = RequestOptions.DEFAULT.toBuilder();
         COMMON_OPTIONS = builder.build();
@@ -52,6 +298,7 @@ public class EsTemplate {
 
     public EsTemplate(EsRestClient esRestClient) {
         this.esRestClient = esRestClient;
+        this.timeSeriesRouter = new EsTimeSeriesRouter(esRestClient);
     }
 
     // ==================== 文档操作（保持原有方法） ====================
@@ -64,17 +311,25 @@ public class EsTemplate {
      * @return 是否成功
      */
     public boolean insertDocument(EsIndexInfo esIndexInfo, EsDocData esDocData) {
+        flushPendingDocs(esIndexInfo, Collections.singletonList(esDocData));
+        List<EsSpoolRecord> records = esDocData.isPlainWrite() ? Collections.singletonList(
+                EsSpoolRecord.index(esIndexInfo.getIndexName(), esDocData.getDocId(), esDocData.getData())
+                        .setRouting(resolveRouting(esIndexInfo, esDocData))) : null;
+        if (spoolIfBacklogged(esIndexInfo, records)) {
+            return true;
+        }
         try {
-            IndexRequest indexRequest = new IndexRequest(esIndexInfo.getIndexName()) // 设置索引名称
-                    .source(esDocData.getData())  //设置要索引的文档数据和数据格式。
-                    .id(esDocData.getDocId());  //设置要索引的文档ID。
+            IndexRequest indexRequest = buildIndexRequest(esIndexInfo, esDocData);
 
-            RestHighLevelClient client = esRestClient.getClient(esIndexInfo.getClusterName());
             // RestHighLevelClient.index(IndexRequest request, RequestOptions options): 向Elasticsearch服务器发送索引文档的请求。
-            client.index(indexRequest, COMMON_OPTIONS);
+            recordTraffic(esIndexInfo, indexRequest,
+                    () -> executeWrite(esIndexInfo, client -> client.index(indexRequest, COMMON_OPTIONS)));
             log.debug("Successfully inserted document with id: {}", esDocData.getDocId());
             return true;
         } catch (Exception e) {
+            if (spoolOnFailure(esIndexInfo, records, e)) {
+                return true;
+            }
             log.error("Failed to insert document with id: {}", esDocData.getDocId(), e);
             return false;
         }
@@ -92,6 +347,18 @@ public class EsTemplate {
             log.warn("Document list is empty, skipping batch insert");
             return true;
         }
+        flushPendingDocs(esIndexInfo, esDocDataList);
+
+        List<EsSpoolRecord> records = esDocDataList.stream().allMatch(EsDocData::isPlainWrite)
+                ? new ArrayList<>(esDocDataList.size()) : null;
+        if (records != null) {
+            esDocDataList.forEach(esDocData ->
+                    records.add(EsSpoolRecord.index(esIndexInfo.getIndexName(), esDocData.getDocId(), esDocData.getData())
+                        .setRouting(resolveRouting(esIndexInfo, esDocData))));
+        }
+        if (spoolIfBacklogged(esIndexInfo, records)) {
+            return true;
+        }
 
         try {
             //BulkRequest是Elasticsearch Java客户端中用于批量操作的请求类，它允许您一次性发送多个索引、更新、删除等操作
@@ -100,17 +367,11 @@ public class EsTemplate {
             //add(DeleteRequest request): 向批量请求中添加一个删除请求。
             //add(DocWriteRequest request): 向批量请求中添加一个文档写入请求（索引、更新或删除）。
             BulkRequest bulkRequest = new BulkRequest();
-            esDocDataList.forEach(esDocData -> {
-                IndexRequest indexRequest = new IndexRequest(esIndexInfo.getIndexName())
-                        .source(esDocData.getData())
-                        .id(esDocData.getDocId());
-                bulkRequest.add(indexRequest);
-            });
+            esDocDataList.forEach(esDocData -> bulkRequest.add(buildIndexRequest(esIndexInfo, esDocData)));
 
-            RestHighLevelClient client = esRestClient.getClient(esIndexInfo.getClusterName());
-            BulkResponse bulkResponse = client.bulk(bulkRequest, COMMON_OPTIONS);
+            BulkResponse bulkResponse = executeBulk(esIndexInfo, bulkRequest);
 
-            if (bulkResponse.hasFailures()) {
+            if (bulkResponse.hasFailures() && !spoolRejectedItems(esIndexInfo, records, bulkResponse)) {
                 log.error("Bulk insert has failures: {}", bulkResponse.buildFailureMessage());
                 return false;
             }
@@ -118,6 +379,9 @@ public class EsTemplate {
             log.debug("Successfully inserted {} documents", esDocDataList.size());
             return true;
         } catch (Exception e) {
+            if (spoolOnFailure(esIndexInfo, records, e)) {
+                return true;
+            }
             log.error("Failed to batch insert documents", e);
             return false;
         }
@@ -131,18 +395,32 @@ public class EsTemplate {
      * @return 是否成功
      */
     public boolean updateDocument(EsIndexInfo esIndexInfo, EsDocData esDocData) {
+        EsWriteCoalescer coalescer = writeCoalescer;
+        if (coalescer != null && esDocData.isPlainWrite() && !ObjectUtils.isEmpty(esDocData.getDocId())) {
+            if (coalescer.update(esIndexInfo, esDocData.getDocId(), resolveRouting(esIndexInfo, esDocData), esDocData.getData())) {
+                requestCoalescedFlush();
+            }
+            return true;
+        }
+        // 脚本、upsert 与条件更新不合并，先写入该文档缓冲中的操作以保证顺序
+        flushPendingDocs(esIndexInfo, Collections.singletonList(esDocData));
+        List<EsSpoolRecord> records = esDocData.isPlainWrite() ? Collections.singletonList(
+                EsSpoolRecord.update(esIndexInfo.getIndexName(), esDocData.getDocId(), esDocData.getData())
+                        .setRouting(resolveRouting(esIndexInfo, esDocData))) : null;
+        if (spoolIfBacklogged(esIndexInfo, records)) {
+            return true;
+        }
         try {
-            // UpdateRequest类是Elasticsearch Java客户端中用于更新文档的请求类
-            UpdateRequest updateRequest = new UpdateRequest()
-                    .index(esIndexInfo.getIndexName())  // 设置要更新的文档所在的索引名称
-                    .id(esDocData.getDocId()) // 设置要更新的文档的ID。
-                    .doc(esDocData.getData()); // 设置要更新的文档的新内容，使用Map来表示文档内容。
+            UpdateRequest updateRequest = buildUpdateRequest(esIndexInfo, esDocData);
 
-            RestHighLevelClient client = esRestClient.getClient(esIndexInfo.getClusterName());
-            client.update(updateRequest, COMMON_OPTIONS);
+            recordTraffic(esIndexInfo, updateRequest,
+                    () -> executeWrite(esIndexInfo, client -> client.update(updateRequest, COMMON_OPTIONS)));
             log.debug("Successfully updated document with id: {}", esDocData.getDocId());
             return true;
         } catch (Exception e) {
+            if (spoolOnFailure(esIndexInfo, records, e)) {
+                return true;
+            }
             log.error("Failed to update document with id: {}", esDocData.getDocId(), e);
             return false;
         }
@@ -160,18 +438,21 @@ public class EsTemplate {
             log.warn("Document list is empty, skipping batch update");
             return true;
         }
+        flushPendingDocs(esIndexInfo, esDocDataList);
 
+        List<EsSpoolRecord> records = esDocDataList.stream().allMatch(EsDocData::isPlainWrite)
+                ? new ArrayList<>(esDocDataList.size()) : null;
         try {
             BulkRequest bulkRequest = new BulkRequest();
             boolean hasValidRequests = false;
 
             for (EsDocData esDocData : esDocDataList) {
                 if (!ObjectUtils.isEmpty(esDocData.getDocId())) {
-                    UpdateRequest updateRequest = new UpdateRequest()
-                            .index(esIndexInfo.getIndexName())
-                            .id(esDocData.getDocId())
-                            .doc(esDocData.getData());
-                    bulkRequest.add(updateRequest);
+                    bulkRequest.add(buildUpdateRequest(esIndexInfo, esDocData));
+                    if (records != null) {
+                        records.add(EsSpoolRecord.update(esIndexInfo.getIndexName(), esDocData.getDocId(), esDocData.getData())
+                        .setRouting(resolveRouting(esIndexInfo, esDocData)));
+                    }
                     hasValidRequests = true;
                 }
             }
@@ -180,11 +461,13 @@ public class EsTemplate {
                 log.error("No valid document IDs found for batch update");
                 return true;
             }
+            if (spoolIfBacklogged(esIndexInfo, records)) {
+                return true;
+            }
 
-            RestHighLevelClient client = esRestClient.getClient(esIndexInfo.getClusterName());
-            BulkResponse bulkResponse = client.bulk(bulkRequest, COMMON_OPTIONS);
+            BulkResponse bulkResponse = executeBulk(esIndexInfo, bulkRequest);
 
-            if (bulkResponse.hasFailures()) {
+            if (bulkResponse.hasFailures() && !spoolRejectedItems(esIndexInfo, records, bulkResponse)) {
                 log.error("Bulk update has failures: {}", bulkResponse.buildFailureMessage());
                 return false;
             }
@@ -192,186 +475,2067 @@ public class EsTemplate {
             log.debug("Successfully updated {} documents", esDocDataList.size());
             return true;
         } catch (Exception e) {
+            if (records != null && !records.isEmpty() && spoolOnFailure(esIndexInfo, records, e)) {
+                return true;
+            }
             log.error("Failed to batch update documents", e);
             return false;
         }
     }
 
     /**
-     * 删除单个文档
+     * 写入文档并返回版本信息
+     * 设置 ifSeqNo/ifPrimaryTerm 时为条件写入，文档已被他人修改时返回 status 为 409 的结果
      *
      * @param esIndexInfo 索引信息
-     * @param docId       文档ID
-     * @return 是否成功
+     * @param esDocData   文档数据
+     * @return 写入结果
      */
-    public boolean deleteDocument(EsIndexInfo esIndexInfo, String docId) {
+    public EsWriteResult insertDocumentWithResult(EsIndexInfo esIndexInfo, EsDocData esDocData) {
+        flushPendingDocs(esIndexInfo, Collections.singletonList(esDocData));
         try {
-            DeleteRequest deleteRequest = new DeleteRequest()
-                    .index(esIndexInfo.getIndexName())
-                    .id(docId);
-
-            RestHighLevelClient client = esRestClient.getClient(esIndexInfo.getClusterName());
-            DeleteResponse response = client.delete(deleteRequest, COMMON_OPTIONS);
-            log.debug("Successfully deleted document with id: {}, result: {}", docId, response.getResult());
-            return true;
+            IndexRequest indexRequest = buildIndexRequest(esIndexInfo, esDocData);
+            IndexResponse response = recordTraffic(esIndexInfo, indexRequest,
+                    () -> executeWrite(esIndexInfo, client -> client.index(indexRequest, COMMON_OPTIONS)));
+            return toWriteResult(response);
         } catch (Exception e) {
-            log.error("Failed to delete document with id: {}", docId, e);
-            return false;
+            return toFailedResult(esDocData.getDocId(), e);
         }
     }
 
     /**
-     * 批量删除文档
+     * 更新文档并返回版本信息
+     * 支持 upsert、docAsUpsert、参数化脚本、retryOnConflict 与 ifSeqNo/ifPrimaryTerm 条件更新，
+     * 计数器累加等场景无需先读后写
      *
      * @param esIndexInfo 索引信息
-     * @param docIdList   文档ID列表
-     * @return 是否成功
+     * @param esDocData   文档数据
+     * @return 写入结果
      */
-    public boolean batchDeleteDocuments(EsIndexInfo esIndexInfo, List<String> docIdList) {
-        if (ObjectUtils.isEmpty(docIdList)) {
-            log.warn("Document ID list is empty, skipping batch delete");
-            return true;
+    public EsWriteResult updateDocumentWithResult(EsIndexInfo esIndexInfo, EsDocData esDocData) {
+        flushPendingDocs(esIndexInfo, Collections.singletonList(esDocData));
+        try {
+            UpdateRequest updateRequest = buildUpdateRequest(esIndexInfo, esDocData);
+            UpdateResponse response = recordTraffic(esIndexInfo, updateRequest,
+                    () -> executeWrite(esIndexInfo, client -> client.update(updateRequest, COMMON_OPTIONS)));
+            return toWriteResult(response);
+        } catch (Exception e) {
+            return toFailedResult(esDocData.getDocId(), e);
         }
+    }
 
-        try {
-            BulkRequest bulkRequest = new BulkRequest();
-            docIdList.forEach(docId ->
-                    bulkRequest.add(new DeleteRequest().index(esIndexInfo.getIndexName()).id(docId))
-            );
+    /**
+     * 批量写入文档并返回每个条目的版本信息
+     *
+     * @param esIndexInfo   索引信息
+     * @param esDocDataList 文档数据列表
+     * @return 写入结果，顺序与请求一致；请求整体失败时返回 null
+     */
+    public List<EsWriteResult> batchInsertDocumentsWithResult(EsIndexInfo esIndexInfo, List<EsDocData> esDocDataList) {
+        if (ObjectUtils.isEmpty(esDocDataList)) {
+            return Collections.emptyList();
+        }
+        flushPendingDocs(esIndexInfo, esDocDataList);
+        BulkRequest bulkRequest = new BulkRequest();
+        esDocDataList.forEach(esDocData -> bulkRequest.add(buildIndexRequest(esIndexInfo, esDocData)));
+        return executeBulkWithResult(esIndexInfo, bulkRequest);
+    }
 
-            RestHighLevelClient client = esRestClient.getClient(esIndexInfo.getClusterName());
-            BulkResponse bulkResponse = client.bulk(bulkRequest, COMMON_OPTIONS);
+    /**
+     * 批量更新文档并返回每个条目的版本信息
+     * 与 {@link #updateDocumentWithResult(EsIndexInfo, EsDocData)} 支持相同的选项，一次往返完成所有更新
+     *
+     * @param esIndexInfo   索引信息
+     * @param esDocDataList 文档数据列表
+     * @return 写入结果，顺序与请求一致；请求整体失败时返回 null
+     */
+    public List<EsWriteResult> batchUpdateDocumentsWithResult(EsIndexInfo esIndexInfo, List<EsDocData> esDocDataList) {
+        if (ObjectUtils.isEmpty(esDocDataList)) {
+            return Collections.emptyList();
+        }
+        flushPendingDocs(esIndexInfo, esDocDataList);
+        BulkRequest bulkRequest = new BulkRequest();
+        esDocDataList.forEach(esDocData -> bulkRequest.add(buildUpdateRequest(esIndexInfo, esDocData)));
+        return executeBulkWithResult(esIndexInfo, bulkRequest);
+    }
 
+    private List<EsWriteResult> executeBulkWithResult(EsIndexInfo esIndexInfo, BulkRequest bulkRequest) {
+        try {
+            BulkResponse bulkResponse = executeBulk(esIndexInfo, bulkRequest);
+            List<EsWriteResult> results = new ArrayList<>(bulkResponse.getItems().length);
+            for (BulkItemResponse item : bulkResponse.getItems()) {
+                if (item.isFailed()) {
+                    results.add(new EsWriteResult()
+                            .setDocId(item.getId())
+                            .setSuccess(false)
+                            .setStatus(item.status().getStatus())
+                            .setFailureMessage(item.getFailureMessage()));
+                } else {
+                    results.add(toWriteResult(item.getResponse()));
+                }
+            }
             if (bulkResponse.hasFailures()) {
-                log.error("Bulk delete has failures: {}", bulkResponse.buildFailureMessage());
-                return false;
+                log.warn("Bulk write has failures: {}", bulkResponse.buildFailureMessage());
             }
-
-            log.debug("Successfully deleted {} documents", docIdList.size());
-            return true;
+            return results;
         } catch (Exception e) {
-            log.error("Failed to batch delete documents", e);
-            return false;
+            log.error("Failed to execute bulk write", e);
+            return null;
         }
     }
 
     /**
-     * 删除所有文档
-     *
-     * @param esIndexInfo 索引信息
-     * @return 删除的文档数量
+     * 执行批量请求
+     * 启用自适应分批时，按分批器当前的批次文档数与字节数拆分请求，每轮以当前并发数并行发送，
+     * 每批的延迟、took 与拒绝情况反馈给分批器；合并后的响应条目顺序与 itemId 与原请求一致。
+     * 同一文档出现多次时各批依次发送，保证服务端按原顺序执行；某批失败后其余批次不再发送并标记为失败。
+     * 部分批次失败时失败批次的条目标记为失败，全部批次失败时抛出第一个异常
      */
-    public long deleteAllDocuments(EsIndexInfo esIndexInfo) {
-        try {
-            DeleteByQueryRequest deleteByQueryRequest = new DeleteByQueryRequest(esIndexInfo.getIndexName())
-                    .setQuery(QueryBuilders.matchAllQuery());
+    private BulkResponse executeBulk(EsIndexInfo esIndexInfo, BulkRequest bulkRequest) throws IOException {
+        EsBulkSizer sizer = getBulkSizer(esIndexInfo);
+        if (sizer == null) {
+            return recordTraffic(esIndexInfo, bulkRequest,
+                    () -> executeWrite(esIndexInfo, client -> bulk(client, bulkRequest)));
+        }
 
-            RestHighLevelClient client = esRestClient.getClient(esIndexInfo.getClusterName());
-            BulkByScrollResponse response = client.deleteByQuery(deleteByQueryRequest, COMMON_OPTIONS);
+        List<DocWriteRequest<?>> requests = bulkRequest.requests();
+        boolean sequential = hasRepeatedIds(requests);
+        BulkItemResponse[] items = new BulkItemResponse[requests.size()];
+        long tookMillis = 0;
+        int offset = 0;
+        boolean anySucceeded = false;
+        Exception firstFailure = null;
+        while (offset < requests.size()) {
+            // 每轮按最新的批次大小与并发数拆分
+            List<BulkRequest> chunks = new ArrayList<>();
+            List<Integer> chunkOffsets = new ArrayList<>();
+            int concurrency = sequential ? 1 : sizer.getConcurrency();
+            while (chunks.size() < concurrency && offset < requests.size()) {
+                BulkRequest chunk = new BulkRequest()
+                        .setRefreshPolicy(bulkRequest.getRefreshPolicy())
+                        .timeout(bulkRequest.timeout());
+                chunkOffsets.add(offset);
+                while (offset < requests.size() && chunk.numberOfActions() < sizer.getBatchDocs()
+                        && (chunk.numberOfActions() == 0 || chunk.estimatedSizeInBytes() < sizer.getBatchBytes())) {
+                    chunk.add(requests.get(offset++));
+                }
+                chunks.add(chunk);
+            }
 
-            long deleted = response.getDeleted();
-            log.info("Successfully deleted {} documents from index: {}", deleted, esIndexInfo.getIndexName());
-            return deleted;
-        } catch (Exception e) {
-            log.error("Failed to delete all documents from index: {}", esIndexInfo.getIndexName(), e);
-            return 0;
+            List<Object> results = new ArrayList<>(chunks.size());
+            if (chunks.size() == 1) {
+                results.add(executeBulkChunkSafely(esIndexInfo, sizer, chunks.get(0)));
+            } else {
+                List<Future<Object>> futures = new ArrayList<>(chunks.size());
+                for (BulkRequest chunk : chunks) {
+                    futures.add(getBulkExecutor().submit(() -> executeBulkChunkSafely(esIndexInfo, sizer, chunk)));
+                }
+                for (Future<Object> future : futures) {
+                    results.add(awaitBulkChunk(future));
+                }
+            }
+
+            long waveTookMillis = 0;
+            for (int i = 0; i < results.size(); i++) {
+                int chunkOffset = chunkOffsets.get(i);
+                if (results.get(i) instanceof Exception) {
+                    Exception failure = (Exception) results.get(i);
+                    firstFailure = firstFailure == null ? failure : firstFailure;
+                    markFailed(items, requests, chunkOffset, chunks.get(i).numberOfActions(), failure);
+                    continue;
+                }
+                BulkResponse response = (BulkResponse) results.get(i);
+                anySucceeded = true;
+                for (BulkItemResponse item : response.getItems()) {
+                    int itemId = chunkOffset + item.getItemId();
+                    items[itemId] = item.isFailed()
+                            ? new BulkItemResponse(itemId, item.getOpType(), item.getFailure())
+                            : new BulkItemResponse(itemId, item.getOpType(), item.getResponse());
+                }
+                waveTookMillis = Math.max(waveTookMillis, response.getTook().millis());
+            }
+            tookMillis += waveTookMillis;
+            if (sequential && firstFailure != null && offset < requests.size()) {
+                // 后续条目可能依赖失败的条目，不再发送
+                markFailed(items, requests, offset, requests.size() - offset, firstFailure);
+                break;
+            }
+        }
+        if (!anySucceeded && firstFailure != null) {
+            // 没有任何条目被执行，按整体失败处理，调用方可整体暂存
+            if (firstFailure instanceof IOException) {
+                throw (IOException) firstFailure;
+            }
+            throw (RuntimeException) firstFailure;
         }
+        return new BulkResponse(items, tookMillis);
     }
 
     /**
-     * 检查文档是否存在
-     *
-     * @param esIndexInfo 索引信息
-     * @param docId       文档ID
-     * @return 是否存在
+     * 同一索引的同一文档是否出现多次
      */
-    public boolean documentExists(EsIndexInfo esIndexInfo, String docId) {
-        try {
-            GetRequest getRequest = new GetRequest()
-                    .index(esIndexInfo.getIndexName())
-                    .id(docId);
+    private static boolean hasRepeatedIds(List<DocWriteRequest<?>> requests) {
+        Set<String> keys = new HashSet<>(requests.size() * 2);
+        for (DocWriteRequest<?> request : requests) {
+            if (request.id() != null && !keys.add(request.index() + "|" + request.id())) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-            RestHighLevelClient client = esRestClient.getClient(esIndexInfo.getClusterName());
-            return client.exists(getRequest, COMMON_OPTIONS);
-        } catch (Exception e) {
-            log.error("Failed to check document existence for id: {}", docId, e);
-            return false;
+    private static void markFailed(BulkItemResponse[] items, List<DocWriteRequest<?>> requests,
+                                   int offset, int count, Exception failure) {
+        for (int itemId = offset; itemId < offset + count; itemId++) {
+            DocWriteRequest<?> request = requests.get(itemId);
+            items[itemId] = new BulkItemResponse(itemId, request.opType(),
+                    new BulkItemResponse.Failure(request.index(), request.type(), request.id(), failure));
         }
     }
 
     /**
-     * 根据ID获取文档
-     *
-     * @param esIndexInfo 索引信息
-     * @param docId       文档ID
-     * @return 文档数据
+     * 执行一个批次，异常作为结果返回，避免一个批次失败导致已成功的批次被当作失败
      */
-    public Map<String, Object> getDocumentById(EsIndexInfo esIndexInfo, String docId) {
+    private Object executeBulkChunkSafely(EsIndexInfo esIndexInfo, EsBulkSizer sizer, BulkRequest chunk) {
         try {
-            GetRequest getRequest = new GetRequest()
-                    .index(esIndexInfo.getIndexName())
-                    .id(docId);
-
-            RestHighLevelClient client = esRestClient.getClient(esIndexInfo.getClusterName());
-            GetResponse response = client.get(getRequest, COMMON_OPTIONS);
-            return response.getSource();
+            return executeBulkChunk(esIndexInfo, sizer, chunk);
         } catch (Exception e) {
-            log.error("Failed to get document with id: {}", docId, e);
-            return null;
+            log.warn("Bulk chunk of {} actions to index: {} failed", chunk.numberOfActions(), esIndexInfo.getIndexName(), e);
+            return e;
+        }
+    }
+
+    private BulkResponse executeBulkChunk(EsIndexInfo esIndexInfo, EsBulkSizer sizer, BulkRequest chunk) throws IOException {
+        long start = System.currentTimeMillis();
+        try {
+            BulkResponse response = recordTraffic(esIndexInfo, chunk,
+                    () -> executeWrite(esIndexInfo, client -> bulk(client, chunk)));
+            boolean rejected = false;
+            for (BulkItemResponse item : response.getItems()) {
+                if (item.isFailed() && item.status() == RestStatus.TOO_MANY_REQUESTS) {
+                    rejected = true;
+                    break;
+                }
+            }
+            sizer.onBatch(chunk.numberOfActions(), System.currentTimeMillis() - start, response.getTook().millis(), rejected);
+            return response;
+        } catch (ElasticsearchStatusException e) {
+            if (e.status() == RestStatus.TOO_MANY_REQUESTS) {
+                sizer.onBatch(chunk.numberOfActions(), System.currentTimeMillis() - start, 0, true);
+            }
+            throw e;
+        }
+    }
+
+    private static Object awaitBulkChunk(Future<Object> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for bulk request", e);
+        } catch (ExecutionException e) {
+            return e.getCause() instanceof Exception ? e.getCause() : new IOException(e.getCause());
         }
     }
 
     /**
-     * 根据ID获取文档的指定字段
+     * 获取索引的自适应分批器，可读取当前的批次文档数、字节数与并发数
      *
      * @param esIndexInfo 索引信息
-     * @param docId       文档ID
-     * @param fields      字段列表
-     * @return 文档数据
+     * @return 分批器，集群未启用自适应分批时返回 null
      */
-    public Map<String, Object> getDocumentById(EsIndexInfo esIndexInfo, String docId, String[] fields) {
-        try {
-            GetRequest getRequest = new GetRequest()
-                    .index(esIndexInfo.getIndexName())
-                    .id(docId)
-                    .fetchSourceContext(new FetchSourceContext(true, fields, null));
-
-            RestHighLevelClient client = esRestClient.getClient(esIndexInfo.getClusterName());
-            GetResponse response = client.get(getRequest, COMMON_OPTIONS);
-            return response.getSource();
-        } catch (Exception e) {
-            log.error("Failed to get document with id: {} and fields: {}", docId, fields, e);
+    public EsBulkSizer getBulkSizer(EsIndexInfo esIndexInfo) {
+        String clusterName = esRestClient.resolvePrimary(esIndexInfo.getClusterName());
+        EsConfigProperties.EsBulkConfig bulkConfig = esRestClient.getClusterConfig(clusterName).getBulk();
+        if (ObjectUtils.isEmpty(bulkConfig) || !Boolean.TRUE.equals(bulkConfig.getAdaptive())) {
             return null;
         }
+        String name = esIndexInfo.getClusterName() + "|" + esIndexInfo.getIndexName();
+        return bulkSizers.computeIfAbsent(name, key -> new EsBulkSizer(key, bulkConfig));
     }
 
     /**
-     * 搜索文档
+     * 获取所有自适应分批器
      *
-     * @param esIndexInfo     索引信息
-     * @param esSearchRequest 搜索请求
-     * @return 搜索响应
+     * @return 分批器列表
      */
-    public SearchResponse searchDocuments(EsIndexInfo esIndexInfo, EsSearchRequest esSearchRequest) {
-        try {
-            SearchSourceBuilder searchSourceBuilder = buildSearchSourceBuilder(esSearchRequest);
-              /*SearchRequest是Elasticsearch中的一个Java API，用于向Elasticsearch发送搜索请求。
-            它允许用户构建一个搜索请求，指定要搜索的索引、类型、查询条件、排序方式、高亮显示、聚合操作等，并发送给Elasticsearch进行搜索*/
-            SearchRequest searchRequest = buildSearchRequest(esIndexInfo, esSearchRequest, searchSourceBuilder);
-            RestHighLevelClient client = esRestClient.getClient(esIndexInfo.getClusterName());
-            return client.search(searchRequest, COMMON_OPTIONS);
-        } catch (Exception e) {
-            log.error("Failed to search documents in index: {}", esIndexInfo.getIndexName(), e);
-            return null;
+    public List<EsBulkSizer> getBulkSizers() {
+        return new ArrayList<>(bulkSizers.values());
+    }
+
+    /**
+     * 发送批量请求，启用缓冲池时请求体直接编码到池化缓冲区并分块发送
+     */
+    private BulkResponse bulk(RestHighLevelClient client, BulkRequest bulkRequest) throws IOException {
+        EsBufferPool pool = bulkBufferPool;
+        if (pool == null) {
+            return client.bulk(bulkRequest, COMMON_OPTIONS);
         }
+        return EsBulkBodyWriter.bulk(client, bulkRequest, COMMON_OPTIONS, pool);
     }
 
     /**
-     * 构建搜索源构建器
+     * 设置批量请求体缓冲池
+     * 启用后批量写入不再由高级客户端把整个请求体序列化成数组再复制到请求实体，
+     * 而是编码到可复用的固定大小缓冲区并逐块写入连接，请求结束后归还；
+     * 缓冲池持有的缓冲区总数达到 maxPooled 时，新的批量请求改用高级客户端的默认编码
+     *
+     * @param bufferBytes 单个缓冲区字节数
+     * @param maxPooled   最多持有的缓冲区数（空闲与占用之和），总内存上限为 bufferBytes × maxPooled；小于等于 0 时关闭
+     * @param direct      是否使用堆外内存
      */
-    private SearchSourceBuilder buildSearchSourceBuilder(EsSearchRequest esSearchRequest) {
-        /*  SearchSourceBuilder类是用于构建搜索请求的一部分，具体来说，SearchSourceBuilder的作用包括：
-            设置查询条件：可以定义各种类型的查询，如match查询、term查询、range查询等。
+    public void setBulkBufferPool(int bufferBytes, int maxPooled, boolean direct) {
+        bulkBufferPool = maxPooled > 0 ? new EsBufferPool(bufferBytes, maxPooled, direct) : null;
+    }
+
+    /**
+     * 获取批量请求体缓冲池及其统计，未启用时返回 null
+     *
+     * @return 缓冲池
+     */
+    public EsBufferPool getBulkBufferPool() {
+        return bulkBufferPool;
+    }
+
+    /**
+     * 设置自适应分批并发发送批次的线程数上限，超出时批次排队等待；需在首次批量写入前设置
+     *
+     * @param bulkThreads 线程数上限，小于等于0时不限制
+     */
+    public void setBulkThreads(int bulkThreads) {
+        this.bulkThreads = bulkThreads;
+    }
+
+    /**
+     * 获取批量写入线程池，懒加载
+     */
+    private ExecutorService getBulkExecutor() {
+        ExecutorService executor = bulkExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = bulkExecutor;
+                if (executor == null) {
+                    executor = EsExecutors.newTaskExecutor("es-bulk", bulkThreads);
+                    bulkExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 构建索引请求
+     */
+    private IndexRequest buildIndexRequest(EsIndexInfo esIndexInfo, EsDocData esDocData) {
+        IndexRequest indexRequest = new IndexRequest(esIndexInfo.getIndexName()) // 设置索引名称
+                .source(esDocData.getData())  //设置要索引的文档数据和数据格式。
+                .id(esDocData.getDocId())  //设置要索引的文档ID。
+                .routing(resolveRouting(esIndexInfo, esDocData)); // 设置路由键，决定文档所在的分片
+        if (esDocData.getIfSeqNo() != null && esDocData.getIfPrimaryTerm() != null) {
+            indexRequest.setIfSeqNo(esDocData.getIfSeqNo()).setIfPrimaryTerm(esDocData.getIfPrimaryTerm());
+        }
+        return indexRequest;
+    }
+
+    /**
+     * 构建更新请求
+     * 设置脚本时执行脚本更新，否则以 data 作为局部更新的 doc
+     */
+    private UpdateRequest buildUpdateRequest(EsIndexInfo esIndexInfo, EsDocData esDocData) {
+        // UpdateRequest类是Elasticsearch Java客户端中用于更新文档的请求类
+        UpdateRequest updateRequest = new UpdateRequest()
+                .index(esIndexInfo.getIndexName())  // 设置要更新的文档所在的索引名称
+                .id(esDocData.getDocId()) // 设置要更新的文档的ID。
+                .routing(resolveRouting(esIndexInfo, esDocData));
+        if (!ObjectUtils.isEmpty(esDocData.getScript())) {
+            Map<String, Object> params = esDocData.getScriptParams() == null
+                    ? Collections.emptyMap() : esDocData.getScriptParams();
+            updateRequest.script(new Script(ScriptType.INLINE, Script.DEFAULT_SCRIPT_LANG, esDocData.getScript(), params));
+        } else {
+            updateRequest.doc(esDocData.getData()); // 设置要更新的文档的新内容，使用Map来表示文档内容。
+            updateRequest.docAsUpsert(Boolean.TRUE.equals(esDocData.getDocAsUpsert()));
+        }
+        if (esDocData.getUpsert() != null) {
+            updateRequest.upsert(esDocData.getUpsert());
+        }
+        if (esDocData.getRetryOnConflict() != null) {
+            updateRequest.retryOnConflict(esDocData.getRetryOnConflict());
+        }
+        if (esDocData.getIfSeqNo() != null && esDocData.getIfPrimaryTerm() != null) {
+            updateRequest.setIfSeqNo(esDocData.getIfSeqNo()).setIfPrimaryTerm(esDocData.getIfPrimaryTerm());
+        }
+        return updateRequest;
+    }
+
+    private static EsWriteResult toWriteResult(DocWriteResponse response) {
+        return new EsWriteResult()
+                .setDocId(response.getId())
+                .setSuccess(true)
+                .setResult(response.getResult().name())
+                .setVersion(response.getVersion())
+                .setSeqNo(response.getSeqNo())
+                .setPrimaryTerm(response.getPrimaryTerm())
+                .setStatus(response.status().getStatus());
+    }
+
+    private static EsWriteResult toFailedResult(String docId, Exception e) {
+        EsWriteResult result = new EsWriteResult()
+                .setDocId(docId)
+                .setSuccess(false)
+                .setFailureMessage(e.getMessage());
+        if (e instanceof ElasticsearchStatusException) {
+            result.setStatus(((ElasticsearchStatusException) e).status().getStatus());
+        }
+        if (result.isConflict()) {
+            log.debug("Version conflict when writing document with id: {}", docId);
+        } else {
+            log.error("Failed to write document with id: {}", docId, e);
+        }
+        return result;
+    }
+
+    /**
+     * 删除单个文档
+     *
+     * @param esIndexInfo 索引信息
+     * @param docId       文档ID
+     * @return 是否成功
+     */
+    public boolean deleteDocument(EsIndexInfo esIndexInfo, String docId) {
+        EsWriteCoalescer coalescer = writeCoalescer;
+        if (coalescer != null && !ObjectUtils.isEmpty(docId)) {
+            if (coalescer.delete(esIndexInfo, docId, resolveRouting(esIndexInfo, docId))) {
+                requestCoalescedFlush();
+            }
+            return true;
+        }
+        flushPendingIds(esIndexInfo, Collections.singletonList(docId));
+        List<EsSpoolRecord> records = Collections.singletonList(
+                EsSpoolRecord.delete(esIndexInfo.getIndexName(), docId).setRouting(resolveRouting(esIndexInfo, docId)));
+        if (spoolIfBacklogged(esIndexInfo, records)) {
+            return true;
+        }
+        try {
+            DeleteRequest deleteRequest = new DeleteRequest()
+                    .index(esIndexInfo.getIndexName())
+                    .id(docId)
+                    .routing(resolveRouting(esIndexInfo, docId));
+
+            DeleteResponse response = recordTraffic(esIndexInfo, deleteRequest,
+                    () -> executeWrite(esIndexInfo, client -> client.delete(deleteRequest, COMMON_OPTIONS)));
+            log.debug("Successfully deleted document with id: {}, result: {}", docId, response.getResult());
+            return true;
+        } catch (Exception e) {
+            if (spoolOnFailure(esIndexInfo, records, e)) {
+                return true;
+            }
+            log.error("Failed to delete document with id: {}", docId, e);
+            return false;
+        }
+    }
+
+    /**
+     * 批量删除文档
+     *
+     * @param esIndexInfo 索引信息
+     * @param docIdList   文档ID列表
+     * @return 是否成功
+     */
+    public boolean batchDeleteDocuments(EsIndexInfo esIndexInfo, List<String> docIdList) {
+        if (ObjectUtils.isEmpty(docIdList)) {
+            log.warn("Document ID list is empty, skipping batch delete");
+            return true;
+        }
+        flushPendingIds(esIndexInfo, docIdList);
+
+        List<EsSpoolRecord> records = new ArrayList<>(docIdList.size());
+        docIdList.forEach(docId -> records.add(
+                EsSpoolRecord.delete(esIndexInfo.getIndexName(), docId).setRouting(resolveRouting(esIndexInfo, docId))));
+        if (spoolIfBacklogged(esIndexInfo, records)) {
+            return true;
+        }
+
+        try {
+            BulkRequest bulkRequest = new BulkRequest();
+            docIdList.forEach(docId ->
+                    bulkRequest.add(new DeleteRequest().index(esIndexInfo.getIndexName()).id(docId)
+                            .routing(resolveRouting(esIndexInfo, docId)))
+            );
+
+            BulkResponse bulkResponse = executeBulk(esIndexInfo, bulkRequest);
+
+            if (bulkResponse.hasFailures() && !spoolRejectedItems(esIndexInfo, records, bulkResponse)) {
+                log.error("Bulk delete has failures: {}", bulkResponse.buildFailureMessage());
+                return false;
+            }
+
+            log.debug("Successfully deleted {} documents", docIdList.size());
+            return true;
+        } catch (Exception e) {
+            if (spoolOnFailure(esIndexInfo, records, e)) {
+                return true;
+            }
+            log.error("Failed to batch delete documents", e);
+            return false;
+        }
+    }
+
+    /**
+     * 删除所有文档
+     * 同步执行，大索引请使用 {@link #submitDeleteByQuery(EsIndexInfo, EsByQueryRequest)} 以后台任务方式删除
+     *
+     * @param esIndexInfo 索引信息
+     * @return 删除的文档数量
+     */
+    public long deleteAllDocuments(EsIndexInfo esIndexInfo) {
+        try {
+            DeleteByQueryRequest deleteByQueryRequest = new DeleteByQueryRequest(esIndexInfo.getIndexName())
+                    .setQuery(QueryBuilders.matchAllQuery());
+
+            BulkByScrollResponse response = executeWrite(esIndexInfo, client -> client.deleteByQuery(deleteByQueryRequest, COMMON_OPTIONS));
+
+            long deleted = response.getDeleted();
+            log.info("Successfully deleted {} documents from index: {}", deleted, esIndexInfo.getIndexName());
+            return deleted;
+        } catch (Exception e) {
+            log.error("Failed to delete all documents from index: {}", esIndexInfo.getIndexName(), e);
+            return 0;
+        }
+    }
+
+    /**
+     * 检查文档是否存在
+     *
+     * @param esIndexInfo 索引信息
+     * @param docId       文档ID
+     * @return 是否存在
+     */
+    public boolean documentExists(EsIndexInfo esIndexInfo, String docId) {
+        try {
+            GetRequest getRequest = new GetRequest()
+                    .index(esIndexInfo.getIndexName())
+                    .id(docId)
+                    .routing(resolveRouting(esIndexInfo, docId));
+
+            return executeRead(esIndexInfo, client -> client.exists(getRequest, COMMON_OPTIONS));
+        } catch (Exception e) {
+            log.error("Failed to check document existence for id: {}", docId, e);
+            return false;
+        }
+    }
+
+    /**
+     * 根据ID获取文档
+     *
+     * @param esIndexInfo 索引信息
+     * @param docId       文档ID
+     * @return 文档数据
+     */
+    public Map<String, Object> getDocumentById(EsIndexInfo esIndexInfo, String docId) {
+        try {
+            GetRequest getRequest = new GetRequest()
+                    .index(esIndexInfo.getIndexName())
+                    .id(docId)
+                    .routing(resolveRouting(esIndexInfo, docId));
+
+            GetResponse response = executeGet(esIndexInfo, getRequest);
+            return sourceOf(response);
+        } catch (Exception e) {
+            log.error("Failed to get document with id: {}", docId, e);
+            return null;
+        }
+    }
+
+    /**
+     * 根据ID获取文档的指定字段
+     *
+     * @param esIndexInfo 索引信息
+     * @param docId       文档ID
+     * @param fields      字段列表
+     * @return 文档数据
+     */
+    public Map<String, Object> getDocumentById(EsIndexInfo esIndexInfo, String docId, String[] fields) {
+        try {
+            GetRequest getRequest = new GetRequest()
+                    .index(esIndexInfo.getIndexName())
+                    .id(docId)
+                    .routing(resolveRouting(esIndexInfo, docId))
+                    .fetchSourceContext(new FetchSourceContext(true, fields, null));
+
+            GetResponse response = executeGet(esIndexInfo, getRequest);
+            return sourceOf(response);
+        } catch (Exception e) {
+            log.error("Failed to get document with id: {} and fields: {}", docId, fields, e);
+            return null;
+        }
+    }
+
+    /**
+     * 根据ID获取文档及其 seq_no/primary_term
+     * 返回的对象可直接修改 data 后用于条件写入，实现乐观并发控制
+     *
+     * @param esIndexInfo 索引信息
+     * @param docId       文档ID
+     * @return 文档，不存在时返回 null
+     */
+    public EsDocData getDocument(EsIndexInfo esIndexInfo, String docId) {
+        try {
+            GetRequest getRequest = new GetRequest()
+                    .index(esIndexInfo.getIndexName())
+                    .id(docId)
+                    .routing(resolveRouting(esIndexInfo, docId));
+
+            GetResponse response = executeGet(esIndexInfo, getRequest);
+            if (!response.isExists()) {
+                return null;
+            }
+            return new EsDocData()
+                    .setDocId(response.getId())
+                    .setData(sourceOf(response))
+                    .setIfSeqNo(response.getSeqNo())
+                    .setIfPrimaryTerm(response.getPrimaryTerm());
+        } catch (Exception e) {
+            log.error("Failed to get document with id: {}", docId, e);
+            return null;
+        }
+    }
+
+    /**
+     * 搜索文档
+     *
+     * @param esIndexInfo     索引信息
+     * @param esSearchRequest 搜索请求
+     * @return 搜索响应
+     */
+    public SearchResponse searchDocuments(EsIndexInfo esIndexInfo, EsSearchRequest esSearchRequest) {
+        return searchDocuments(esIndexInfo, esSearchRequest, null);
+    }
+
+    /**
+     * 搜索文档，使用单次请求选项
+     *
+     * @param esIndexInfo     索引信息
+     * @param esSearchRequest 搜索请求
+     * @param requestOptions  请求选项，如请求头、客户端超时、响应缓冲上限，为空时使用集群配置
+     * @return 搜索响应
+     */
+    public SearchResponse searchDocuments(EsIndexInfo esIndexInfo, EsSearchRequest esSearchRequest,
+                                          EsRequestOptions requestOptions) {
+        try {
+            SearchSourceBuilder searchSourceBuilder = guardQuery(esIndexInfo.getIndexName(), buildSearchSourceBuilder(esSearchRequest));
+              /*SearchRequest是Elasticsearch中的一个Java API，用于向Elasticsearch发送搜索请求。
+            它允许用户构建一个搜索请求，指定要搜索的索引、类型、查询条件、排序方式、高亮显示、聚合操作等，并发送给Elasticsearch进行搜索*/
+            SearchRequest searchRequest = buildSearchRequest(esIndexInfo, esSearchRequest, searchSourceBuilder);
+            return executeSearch(esIndexInfo, searchRequest, requestOptions);
+        } catch (Exception e) {
+            log.error("Failed to search documents in index: {}", esIndexInfo.getIndexName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 执行搜索请求
+     * 滚动查询的后续请求必须发往同一集群，因此集群组内固定使用主集群；
+     * 其余请求在启用请求合并时，与进行中的相同请求共享响应
+     */
+    private SearchResponse executeSearch(EsIndexInfo esIndexInfo, SearchRequest searchRequest,
+                                         EsRequestOptions requestOptions) throws IOException {
+        RequestOptions options = readOptions(esIndexInfo, requestOptions);
+        Long timeoutMillis = requestOptions == null ? null : requestOptions.getTimeoutMillis();
+        EsClientCallback<SearchResponse> callback = client -> ObjectUtils.isEmpty(timeoutMillis)
+                ? client.search(searchRequest, options)
+                : awaitAsync(listener -> client.searchAsync(searchRequest, options, listener), timeoutMillis);
+        if (searchRequest.scroll() != null) {
+            return executeOnPrimary(esIndexInfo, callback);
+        }
+        EsSingleFlight flight = singleFlight;
+        if (flight == null) {
+            return recordTraffic(esIndexInfo, searchRequest, () -> executeRead(esIndexInfo, callback));
+        }
+        // SearchRequest#toString 包含索引、路由、偏好等参数与完整的请求体；请求头可能影响权限，
+        // 超时与响应缓冲上限决定请求是否失败，均一并作为键，选项不同的请求不共享响应
+        String key = "search|" + esIndexInfo.getClusterName() + "|" + searchRequest
+                + (requestOptions == null ? "" : "|" + requestOptions.getHeaders() + "|" + timeoutMillis
+                + "|" + requestOptions.getResponseBufferLimitBytes());
+        return flight.execute(key, () -> recordTraffic(esIndexInfo, searchRequest, () -> executeRead(esIndexInfo, callback)));
+    }
+
+    /**
+     * 异步请求
+     */
+    @FunctionalInterface
+    private interface AsyncCall<T> {
+        Cancellable start(ActionListener<T> listener);
+    }
+
+    /**
+     * 以异步方式发送请求并限时等待，超时后取消请求
+     * 低级客户端的超时只能按集群设置，单次请求的超时通过取消实现
+     */
+    private static <T> T awaitAsync(AsyncCall<T> call, long timeoutMillis) throws IOException {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Cancellable cancellable = call.start(ActionListener.wrap(future::complete, future::completeExceptionally));
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            cancellable.cancel();
+            throw new SocketTimeoutException("Request timed out after " + timeoutMillis + " ms");
+        } catch (InterruptedException e) {
+            cancellable.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 执行按id读取请求，启用请求合并时与进行中的相同请求共享响应
+     */
+    private GetResponse executeGet(EsIndexInfo esIndexInfo, GetRequest getRequest) throws IOException {
+        RequestOptions options = readOptions(esIndexInfo, null);
+        EsSingleFlight flight = singleFlight;
+        if (flight == null) {
+            return recordTraffic(esIndexInfo, getRequest, () -> executeRead(esIndexInfo, client -> client.get(getRequest, options)));
+        }
+        FetchSourceContext fetchSourceContext = getRequest.fetchSourceContext();
+        String key = "get|" + esIndexInfo.getClusterName() + "|" + getRequest.index() + "|" + getRequest.id()
+                + "|" + getRequest.routing()
+                + "|" + (fetchSourceContext == null ? "" : Arrays.toString(fetchSourceContext.includes())
+                + Arrays.toString(fetchSourceContext.excludes()));
+        return flight.execute(key, () -> recordTraffic(esIndexInfo, getRequest,
+                () -> executeRead(esIndexInfo, client -> client.get(getRequest, options))));
+    }
+
+    /**
+     * 读请求的请求选项
+     * 响应缓冲上限优先使用单次请求选项，否则使用集群（集群组取主集群）的配置
+     */
+    private RequestOptions readOptions(EsIndexInfo esIndexInfo, EsRequestOptions requestOptions) {
+        RequestOptions clusterOptions = esRestClient.getRequestOptions(esRestClient.resolvePrimary(esIndexInfo.getClusterName()));
+        if (requestOptions == null || (ObjectUtils.isEmpty(requestOptions.getResponseBufferLimitBytes())
+                && ObjectUtils.isEmpty(requestOptions.getHeaders()))) {
+            return clusterOptions;
+        }
+        return applyOptions(clusterOptions.toBuilder(), requestOptions).build();
+    }
+
+    /**
+     * 将单次请求选项中的请求头与响应缓冲上限应用到请求选项
+     */
+    private static RequestOptions.Builder applyOptions(RequestOptions.Builder builder, EsRequestOptions requestOptions) {
+        if (requestOptions == null) {
+            return builder;
+        }
+        if (!ObjectUtils.isEmpty(requestOptions.getHeaders())) {
+            requestOptions.getHeaders().forEach(builder::addHeader);
+        }
+        if (!ObjectUtils.isEmpty(requestOptions.getResponseBufferLimitBytes())) {
+            builder.setHttpAsyncResponseConsumerFactory(new HttpAsyncResponseConsumerFactory
+                    .HeapBufferedResponseConsumerFactory(requestOptions.getResponseBufferLimitBytes()));
+        }
+        return builder;
+    }
+
+    // ==================== 计数与存在性 ====================
+
+    /**
+     * 统计匹配查询的文档数
+     * 使用 _count 接口，不排序、不取回文档
+     *
+     * @param esIndexInfo 索引信息
+     * @param query       查询条件，为空时统计全部文档
+     * @return 文档数，失败时返回 -1
+     */
+    public long count(EsIndexInfo esIndexInfo, QueryBuilder query) {
+        return count(esIndexInfo, query, null);
+    }
+
+    /**
+     * 统计匹配查询的文档数，只查询路由对应的分片
+     *
+     * @param esIndexInfo 索引信息
+     * @param query       查询条件，为空时统计全部文档
+     * @param routing     路由，多个值以逗号分隔，为空时使用索引默认路由
+     * @return 文档数，失败时返回 -1
+     */
+    public long count(EsIndexInfo esIndexInfo, QueryBuilder query, String routing) {
+        try {
+            SearchSourceBuilder source = guardQuery(esIndexInfo.getIndexName(), new SearchSourceBuilder()
+                    .query(query == null ? QueryBuilders.matchAllQuery() : query));
+            CountRequest countRequest = new CountRequest(esIndexInfo.getIndexName()).query(source.query());
+            String resolvedRouting = ObjectUtils.isEmpty(routing) ? esIndexInfo.getRouting() : routing;
+            if (!ObjectUtils.isEmpty(resolvedRouting)) {
+                countRequest.routing(resolvedRouting);
+            }
+            RequestOptions options = readOptions(esIndexInfo, null);
+            return recordTraffic(esIndexInfo, countRequest,
+                    () -> executeRead(esIndexInfo, client -> client.count(countRequest, options))).getCount();
+        } catch (Exception e) {
+            log.error("Failed to count documents in index: {}", esIndexInfo.getIndexName(), e);
+            return -1;
+        }
+    }
+
+    /**
+     * 检查是否存在匹配查询的文档
+     * 每个分片找到一条匹配后即停止（terminate_after=1），且不统计精确总数
+     *
+     * @param esIndexInfo 索引信息
+     * @param query       查询条件
+     * @return 是否存在，失败时返回 false
+     */
+    public boolean existsByQuery(EsIndexInfo esIndexInfo, QueryBuilder query) {
+        return existsByQuery(esIndexInfo, query, null);
+    }
+
+    /**
+     * 检查路由对应的分片中是否存在匹配查询的文档
+     *
+     * @param esIndexInfo 索引信息
+     * @param query       查询条件
+     * @param routing     路由，多个值以逗号分隔，为空时使用索引默认路由
+     * @return 是否存在，失败时返回 false
+     */
+    public boolean existsByQuery(EsIndexInfo esIndexInfo, QueryBuilder query, String routing) {
+        try {
+            SearchRequest searchRequest = buildExistsRequest(esIndexInfo, query, routing);
+            RequestOptions options = readOptions(esIndexInfo, null);
+            SearchResponse response = recordTraffic(esIndexInfo, searchRequest,
+                    () -> executeRead(esIndexInfo, client -> client.search(searchRequest, options)));
+            return existsIn(response);
+        } catch (Exception e) {
+            log.error("Failed to check existence by query in index: {}", esIndexInfo.getIndexName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 批量统计，多个查询合并为一个 msearch 请求
+     *
+     * @param esIndexInfo 索引信息
+     * @param queries     查询条件列表
+     * @return 与查询一一对应的文档数，单个查询失败时对应位置为 -1，整体失败时返回 null
+     */
+    public List<Long> batchCount(EsIndexInfo esIndexInfo, List<QueryBuilder> queries) {
+        return batchCount(esIndexInfo, queries, null);
+    }
+
+    /**
+     * 批量统计，所有查询使用同一路由
+     *
+     * @param esIndexInfo 索引信息
+     * @param queries     查询条件列表
+     * @param routing     路由，多个值以逗号分隔，为空时使用索引默认路由
+     * @return 与查询一一对应的文档数，单个查询失败时对应位置为 -1，整体失败时返回 null
+     */
+    public List<Long> batchCount(EsIndexInfo esIndexInfo, List<QueryBuilder> queries, String routing) {
+        if (ObjectUtils.isEmpty(queries)) {
+            return Collections.emptyList();
+        }
+        try {
+            MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+            for (QueryBuilder query : queries) {
+                SearchSourceBuilder source = new SearchSourceBuilder()
+                        .query(query == null ? QueryBuilders.matchAllQuery() : query)
+                        .size(0)
+                        .trackTotalHits(true);
+                multiSearchRequest.add(buildLightweightRequest(esIndexInfo, source, routing));
+            }
+            MultiSearchResponse response = executeMultiSearch(esIndexInfo, multiSearchRequest);
+            List<Long> result = new ArrayList<>(queries.size());
+            for (MultiSearchResponse.Item item : response.getResponses()) {
+                if (item.isFailure()) {
+                    log.warn("Count in batch failed for index: {}", esIndexInfo.getIndexName(), item.getFailure());
+                    result.add(-1L);
+                } else {
+                    result.add(item.getResponse().getHits().getTotalHits().value);
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            log.error("Failed to batch count documents in index: {}", esIndexInfo.getIndexName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 批量检查存在性，多个查询合并为一个 msearch 请求
+     *
+     * @param esIndexInfo 索引信息
+     * @param queries     查询条件列表
+     * @return 与查询一一对应的结果，单个查询失败时对应位置为 false，整体失败时返回 null
+     */
+    public List<Boolean> batchExistsByQuery(EsIndexInfo esIndexInfo, List<QueryBuilder> queries) {
+        return batchExistsByQuery(esIndexInfo, queries, null);
+    }
+
+    /**
+     * 批量检查存在性，所有查询使用同一路由
+     *
+     * @param esIndexInfo 索引信息
+     * @param queries     查询条件列表
+     * @param routing     路由，多个值以逗号分隔，为空时使用索引默认路由
+     * @return 与查询一一对应的结果，单个查询失败时对应位置为 false，整体失败时返回 null
+     */
+    public List<Boolean> batchExistsByQuery(EsIndexInfo esIndexInfo, List<QueryBuilder> queries, String routing) {
+        if (ObjectUtils.isEmpty(queries)) {
+            return Collections.emptyList();
+        }
+        try {
+            MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+            for (QueryBuilder query : queries) {
+                multiSearchRequest.add(buildExistsRequest(esIndexInfo, query, routing));
+            }
+            MultiSearchResponse response = executeMultiSearch(esIndexInfo, multiSearchRequest);
+            List<Boolean> result = new ArrayList<>(queries.size());
+            for (MultiSearchResponse.Item item : response.getResponses()) {
+                if (item.isFailure()) {
+                    log.warn("Existence check in batch failed for index: {}", esIndexInfo.getIndexName(), item.getFailure());
+                    result.add(false);
+                } else {
+                    result.add(existsIn(item.getResponse()));
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            log.error("Failed to batch check existence by query in index: {}", esIndexInfo.getIndexName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 构建存在性检查请求
+     * 总数统计到 1 即停止：track_total_hits=false 时响应不含总数，无法在 size=0 下判断是否命中
+     */
+    private SearchRequest buildExistsRequest(EsIndexInfo esIndexInfo, QueryBuilder query, String routing) {
+        SearchSourceBuilder source = new SearchSourceBuilder()
+                .query(query == null ? QueryBuilders.matchAllQuery() : query)
+                .size(0)
+                .terminateAfter(1)
+                .trackTotalHitsUpTo(1);
+        return buildLightweightRequest(esIndexInfo, source, routing);
+    }
+
+    /**
+     * 构建只需要总数的搜索请求，不排序、不取回文档；发送前按索引的查询策略检查，
+     * routing 为空时使用索引默认路由
+     */
+    private SearchRequest buildLightweightRequest(EsIndexInfo esIndexInfo, SearchSourceBuilder source, String routing) {
+        SearchRequest searchRequest = new SearchRequest()
+                .indices(esIndexInfo.getIndexName())
+                .source(guardQuery(esIndexInfo.getIndexName(), source));
+        String resolvedRouting = ObjectUtils.isEmpty(routing) ? esIndexInfo.getRouting() : routing;
+        if (!ObjectUtils.isEmpty(resolvedRouting)) {
+            searchRequest.routing(resolvedRouting);
+        }
+        return searchRequest;
+    }
+
+    private static boolean existsIn(SearchResponse response) {
+        return response.getHits().getTotalHits() != null && response.getHits().getTotalHits().value > 0;
+    }
+
+    private MultiSearchResponse executeMultiSearch(EsIndexInfo esIndexInfo, MultiSearchRequest multiSearchRequest) throws IOException {
+        RequestOptions options = readOptions(esIndexInfo, null);
+        return executeRead(esIndexInfo, client -> client.msearch(multiSearchRequest, options));
+    }
+
+    // ==================== 输入提示 ====================
+
+    /**
+     * 输入提示，用于边输入边搜索
+     * 使用 completion 建议器或 search_as_you_type 字段，代替大字段上的 prefix 查询；
+     * 先读取前缀缓存，同一会话的新请求会取消该会话尚未完成的旧请求
+     *
+     * @param esIndexInfo      索引信息
+     * @param esSuggestRequest 提示请求
+     * @return 提示列表，多个调用方可能共享缓存中的同一列表，调用方不应修改；被同一会话的新请求取代时返回空列表，失败时返回 null
+     */
+    public List<EsSuggestion> suggest(EsIndexInfo esIndexInfo, EsSuggestRequest esSuggestRequest) {
+        try {
+            if (ObjectUtils.isEmpty(esSuggestRequest.getPrefix())) {
+                return Collections.emptyList();
+            }
+            EsSuggestCache cache = esSuggestRequest.isUseCache() ? suggestCache : null;
+            String cacheKey = null;
+            if (cache != null) {
+                cacheKey = suggestCacheKey(esIndexInfo, esSuggestRequest);
+                List<EsSuggestion> cached = cache.get(cacheKey);
+                if (cached != null) {
+                    // 命中缓存同样取代会话中的旧请求
+                    cancelSuggest(esIndexInfo, esSuggestRequest.getSessionId());
+                    return cached;
+                }
+            }
+
+            SearchRequest searchRequest = buildSuggestRequest(esIndexInfo, esSuggestRequest);
+            SearchResponse response = recordTraffic(esIndexInfo, searchRequest, () -> executeRead(esIndexInfo,
+                    client -> executeSuggest(client, esIndexInfo, esSuggestRequest, searchRequest)));
+            if (response == null) {
+                log.debug("Suggest of prefix: {} in session: {} superseded", esSuggestRequest.getPrefix(), esSuggestRequest.getSessionId());
+                return Collections.emptyList();
+            }
+            List<EsSuggestion> suggestions = Collections.unmodifiableList(parseSuggestions(esSuggestRequest, response));
+            if (cache != null) {
+                cache.put(cacheKey, suggestions);
+            }
+            return suggestions;
+        } catch (Exception e) {
+            log.error("Failed to suggest prefix: {} in index: {}", esSuggestRequest.getPrefix(), esIndexInfo.getIndexName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 取消会话中进行中的输入提示请求，如输入框失去焦点或被清空时
+     *
+     * @param esIndexInfo 索引信息，用于确定集群
+     * @param sessionId   会话id
+     */
+    public void cancelSuggest(EsIndexInfo esIndexInfo, String sessionId) {
+        if (ObjectUtils.isEmpty(sessionId)) {
+            return;
+        }
+        SuggestCall call = suggestSessions.remove(esIndexInfo.getClusterName() + "|" + sessionId);
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
+    /**
+     * 启用或关闭输入提示前缀缓存
+     *
+     * @param maxEntries 最大条目数，小于等于0时关闭
+     * @param ttlMillis  条目有效期（毫秒），小于等于0时关闭
+     */
+    public void setSuggestCache(int maxEntries, long ttlMillis) {
+        suggestCache = maxEntries > 0 && ttlMillis > 0 ? new EsSuggestCache(maxEntries, ttlMillis) : null;
+    }
+
+    /**
+     * 获取输入提示前缀缓存及其统计，未启用时返回 null
+     *
+     * @return 前缀缓存
+     */
+    public EsSuggestCache getSuggestCache() {
+        return suggestCache;
+    }
+
+    /**
+     * 进行中的输入提示请求
+     * 取消与发送可能并发发生，两边都检查对方的状态，保证请求一定被取消
+     */
+    private static final class SuggestCall {
+
+        private final CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+
+        private volatile Cancellable cancellable;
+
+        private void start(Cancellable cancellable) {
+            this.cancellable = cancellable;
+            if (future.isCancelled()) {
+                cancellable.cancel();
+            }
+        }
+
+        private void cancel() {
+            if (future.cancel(false)) {
+                Cancellable current = cancellable;
+                if (current != null) {
+                    current.cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * 发送输入提示请求
+     *
+     * @return 搜索响应，被同一会话的新请求取代时返回 null
+     */
+    private SearchResponse executeSuggest(RestHighLevelClient client, EsIndexInfo esIndexInfo,
+                                          EsSuggestRequest esSuggestRequest, SearchRequest searchRequest) throws IOException {
+        RequestOptions options = readOptions(esIndexInfo, null);
+        String sessionKey = ObjectUtils.isEmpty(esSuggestRequest.getSessionId())
+                ? null : esIndexInfo.getClusterName() + "|" + esSuggestRequest.getSessionId();
+        SuggestCall call = new SuggestCall();
+        if (sessionKey != null) {
+            SuggestCall previous = suggestSessions.put(sessionKey, call);
+            if (previous != null) {
+                previous.cancel();
+            }
+        }
+        try {
+            call.start(client.searchAsync(searchRequest, options,
+                    ActionListener.wrap(call.future::complete, call.future::completeExceptionally)));
+            Long timeoutMillis = esSuggestRequest.getTimeoutMillis();
+            return ObjectUtils.isEmpty(timeoutMillis) ? call.future.get() : call.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (CancellationException e) {
+            return null;
+        } catch (TimeoutException e) {
+            call.cancel();
+            throw new SocketTimeoutException("Suggest timed out after " + esSuggestRequest.getTimeoutMillis() + " ms");
+        } catch (InterruptedException e) {
+            call.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for suggestions");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            if (sessionKey != null) {
+                suggestSessions.remove(sessionKey, call);
+            }
+        }
+    }
+
+    /**
+     * 构建输入提示请求
+     * completion 使用 suggest 且不返回命中；search_as_you_type 在字段及其 _2gram、_3gram 子字段上执行 bool_prefix 查询，上下文作为 terms 过滤
+     */
+    private SearchRequest buildSuggestRequest(EsIndexInfo esIndexInfo, EsSuggestRequest esSuggestRequest) {
+        String field = esSuggestRequest.getField();
+        Map<String, List<String>> contexts = esSuggestRequest.getContexts();
+        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
+        if (esSuggestRequest.getType() == EsSuggestRequest.Type.SEARCH_AS_YOU_TYPE) {
+            BoolQueryBuilder query = QueryBuilders.boolQuery().must(QueryBuilders
+                    .multiMatchQuery(esSuggestRequest.getPrefix(), field, field + "._2gram", field + "._3gram")
+                    .type(MultiMatchQueryBuilder.Type.BOOL_PREFIX));
+            if (!ObjectUtils.isEmpty(contexts)) {
+                contexts.forEach((name, values) -> query.filter(QueryBuilders.termsQuery(name, values)));
+            }
+            // 提示文本取自字段本身
+            List<String> includes = new ArrayList<>();
+            includes.add(field);
+            if (!ObjectUtils.isEmpty(esSuggestRequest.getSourceFields())) {
+                includes.addAll(Arrays.asList(esSuggestRequest.getSourceFields()));
+            }
+            searchSourceBuilder.query(query)
+                    .size(esSuggestRequest.getSize())
+                    .trackTotalHits(false)
+                    .fetchSource(includes.toArray(new String[0]), null);
+        } else {
+            CompletionSuggestionBuilder completion = SuggestBuilders.completionSuggestion(field)
+                    .size(esSuggestRequest.getSize())
+                    .skipDuplicates(esSuggestRequest.isSkipDuplicates());
+            if (esSuggestRequest.isFuzzy()) {
+                completion.prefix(esSuggestRequest.getPrefix(), Fuzziness.AUTO);
+            } else {
+                completion.prefix(esSuggestRequest.getPrefix());
+            }
+            if (!ObjectUtils.isEmpty(contexts)) {
+                Map<String, List<? extends ToXContent>> queryContexts = new HashMap<>();
+                contexts.forEach((name, values) -> queryContexts.put(name, values.stream()
+                        .map(value -> CategoryQueryContext.builder().setCategory(value).build())
+                        .collect(Collectors.toList())));
+                completion.contexts(queryContexts);
+            }
+            searchSourceBuilder.size(0).suggest(new SuggestBuilder().addSuggestion(SUGGESTION_NAME, completion));
+            if (ObjectUtils.isEmpty(esSuggestRequest.getSourceFields())) {
+                searchSourceBuilder.fetchSource(false);
+            } else {
+                searchSourceBuilder.fetchSource(esSuggestRequest.getSourceFields(), null);
+            }
+        }
+
+        SearchRequest searchRequest = new SearchRequest(esIndexInfo.getIndexName()).source(searchSourceBuilder);
+        if (!ObjectUtils.isEmpty(esIndexInfo.getRouting())) {
+            searchRequest.routing(esIndexInfo.getRouting());
+        }
+        return searchRequest;
+    }
+
+    private static List<EsSuggestion> parseSuggestions(EsSuggestRequest esSuggestRequest, SearchResponse response) {
+        List<EsSuggestion> suggestions = new ArrayList<>();
+        if (esSuggestRequest.getType() == EsSuggestRequest.Type.SEARCH_AS_YOU_TYPE) {
+            for (SearchHit hit : response.getHits().getHits()) {
+                Map<String, Object> source = hit.getSourceAsMap();
+                Object text = source == null ? null : XContentMapValues.extractValue(esSuggestRequest.getField(), source);
+                suggestions.add(new EsSuggestion()
+                        .setText(text == null ? null : String.valueOf(text))
+                        .setIndex(hit.getIndex())
+                        .setId(hit.getId())
+                        .setScore(hit.getScore())
+                        .setSource(source));
+            }
+            return suggestions;
+        }
+
+        Suggest suggest = response.getSuggest();
+        if (suggest == null || suggest.getSuggestion(SUGGESTION_NAME) == null) {
+            return suggestions;
+        }
+        CompletionSuggestion completion = suggest.getSuggestion(SUGGESTION_NAME);
+        for (CompletionSuggestion.Entry entry : completion.getEntries()) {
+            for (CompletionSuggestion.Entry.Option option : entry.getOptions()) {
+                SearchHit hit = option.getHit();
+                EsSuggestion suggestion = new EsSuggestion()
+                        .setText(option.getText().string())
+                        .setScore(option.getScore());
+                if (hit != null) {
+                    suggestion.setIndex(hit.getIndex())
+                            .setId(hit.getId())
+                            .setSource(hit.hasSource() ? hit.getSourceAsMap() : null);
+                }
+                suggestions.add(suggestion);
+            }
+        }
+        return suggestions;
+    }
+
+    private static String suggestCacheKey(EsIndexInfo esIndexInfo, EsSuggestRequest esSuggestRequest) {
+        Map<String, List<String>> contexts = esSuggestRequest.getContexts();
+        return esIndexInfo.getClusterName() + "|" + esIndexInfo.getIndexName() + "|" + esIndexInfo.getRouting()
+                + "|" + esSuggestRequest.getType() + "|" + esSuggestRequest.getField()
+                + "|" + esSuggestRequest.getSize() + "|" + esSuggestRequest.isFuzzy() + "|" + esSuggestRequest.isSkipDuplicates()
+                + "|" + (contexts == null ? "" : new TreeMap<>(contexts))
+                + "|" + Arrays.toString(esSuggestRequest.getSourceFields())
+                + "|" + esSuggestRequest.getPrefix();
+    }
+
+    // ==================== 跨集群联合搜索 ====================
+
+    /**
+     * 跨集群联合搜索，各集群使用相同的超时并允许部分结果
+     *
+     * @param targets         各集群的索引信息
+     * @param esSearchRequest 搜索请求
+     * @param timeoutMillis   单集群超时（毫秒）
+     * @return 联合搜索结果，全部集群失败时返回 null
+     */
+    public EsFederatedSearchResult federatedSearch(List<EsIndexInfo> targets, EsSearchRequest esSearchRequest, long timeoutMillis) {
+        return federatedSearch(targets, esSearchRequest, timeoutMillis, null, true);
+    }
+
+    /**
+     * 跨集群联合搜索
+     * 同一请求并行发往各集群，每个集群取前 from + size 条，按排序值（未指定排序字段时按评分）归并为全局 top-k；
+     * 命中总数与简单聚合（terms、sum、value_count、min、max）合并，整体延迟取决于最慢的集群而不是各集群之和
+     *
+     * @param targets             各集群的索引信息，每个集群只能出现一次，各集群的索引名称可以不同
+     * @param esSearchRequest     搜索请求，不支持滚动
+     * @param timeoutMillis       单集群超时（毫秒），超时的请求被取消并计入 failures
+     * @param clusterTimeouts     按集群名称覆盖的超时，可为空
+     * @param allowPartialResults 是否允许部分结果，为 false 时任一集群失败即整体失败
+     * @return 联合搜索结果，全部集群失败或不允许部分结果而有集群失败时返回 null
+     */
+    public EsFederatedSearchResult federatedSearch(List<EsIndexInfo> targets, EsSearchRequest esSearchRequest, long timeoutMillis,
+                                                   Map<String, Long> clusterTimeouts, boolean allowPartialResults) {
+        try {
+            if (Boolean.TRUE.equals(esSearchRequest.getNeedScroll())) {
+                throw new RuntimeException("Federated search does not support scroll");
+            }
+            long start = System.currentTimeMillis();
+            int from = Math.max(0, esSearchRequest.getFrom());
+            int window = from + esSearchRequest.getSize();
+
+            Map<String, Future<SearchResponse>> futures = new LinkedHashMap<>();
+            Map<String, Long> deadlines = new HashMap<>();
+            ExecutorService executor = getFederatedExecutor();
+            for (EsIndexInfo target : targets) {
+                String clusterName = target.getClusterName();
+                if (futures.containsKey(clusterName)) {
+                    throw new RuntimeException("Cluster: " + clusterName + " appears more than once in federated search");
+                }
+                long timeout = clusterTimeouts == null ? timeoutMillis : clusterTimeouts.getOrDefault(clusterName, timeoutMillis);
+                EsRequestOptions requestOptions = new EsRequestOptions().setTimeoutMillis(timeout);
+                deadlines.put(clusterName, start + timeout);
+                futures.put(clusterName, executor.submit(() ->
+                        executeSearch(target, buildFederatedRequest(target, esSearchRequest, window), requestOptions)));
+            }
+
+            EsFederatedSearchResult result = new EsFederatedSearchResult();
+            collectFederatedResponses(futures, deadlines, result);
+            if (result.getResponses().isEmpty() || (!allowPartialResults && result.isPartial())) {
+                throw new RuntimeException("Federated search failed on clusters: " + result.getFailures().keySet());
+            }
+            mergeFederatedHits(result, federatedSortOrders(esSearchRequest), from, window);
+            mergeFederatedTotals(result);
+            mergeFederatedAggregations(result);
+            result.setTookMillis(System.currentTimeMillis() - start);
+            return result;
+        } catch (Exception e) {
+            log.error("Failed to federated search documents in clusters: {}",
+                    targets.stream().map(EsIndexInfo::getClusterName).collect(Collectors.toList()), e);
+            return null;
+        }
+    }
+
+    /**
+     * 构建发往单个集群的请求，分页改为取前 from + size 条，归并后再截取
+     */
+    private SearchRequest buildFederatedRequest(EsIndexInfo target, EsSearchRequest esSearchRequest, int window) {
+        SearchSourceBuilder searchSourceBuilder = guardQuery(target.getIndexName(),
+                buildSearchSourceBuilder(esSearchRequest).from(0).size(window));
+        return buildSearchRequest(target, esSearchRequest, searchSourceBuilder);
+    }
+
+    /**
+     * 各排序字段的方向，与发往各集群的请求中的排序一一对应，即命中 sortValues 中各值的方向
+     */
+    private List<SortOrder> federatedSortOrders(EsSearchRequest esSearchRequest) {
+        List<SortBuilder<?>> sorts = buildSearchSourceBuilder(esSearchRequest).sorts();
+        return sorts == null ? Collections.emptyList() : sorts.stream().map(SortBuilder::order).collect(Collectors.toList());
+    }
+
+    /**
+     * 按各集群的截止时间收取响应，失败与超时计入 failures
+     * 请求本身按超时取消，这里多等一小段时间收取取消的结果，仍未结束时中断执行线程
+     */
+    private static void collectFederatedResponses(Map<String, Future<SearchResponse>> futures, Map<String, Long> deadlines,
+                                                  EsFederatedSearchResult result) throws InterruptedIOException {
+        for (Map.Entry<String, Future<SearchResponse>> entry : futures.entrySet()) {
+            String clusterName = entry.getKey();
+            Future<SearchResponse> future = entry.getValue();
+            long wait = Math.max(0, deadlines.get(clusterName) - System.currentTimeMillis()) + FEDERATED_GRACE_MILLIS;
+            try {
+                result.getResponses().put(clusterName, future.get(wait, TimeUnit.MILLISECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                result.getFailures().put(clusterName, new SocketTimeoutException("Cluster: " + clusterName + " timed out"));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                result.getFailures().put(clusterName, cause instanceof Exception ? (Exception) cause : new IOException(cause));
+            } catch (InterruptedException e) {
+                futures.values().forEach(pending -> pending.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for federated search");
+            }
+        }
+        result.getFailures().forEach((clusterName, failure) ->
+                log.warn("Federated search on cluster: {} failed: {}", clusterName, failure.toString()));
+    }
+
+    /**
+     * 命中归并游标，指向某个集群响应中的当前命中
+     */
+    private static final class HitCursor {
+
+        private final String clusterName;
+
+        private final SearchHit[] hits;
+
+        private final int ordinal;
+
+        private int position;
+
+        private HitCursor(String clusterName, SearchHit[] hits, int ordinal) {
+            this.clusterName = clusterName;
+            this.hits = hits;
+            this.ordinal = ordinal;
+        }
+
+        private SearchHit current() {
+            return hits[position];
+        }
+    }
+
+    /**
+     * 多路归并各集群已排好序的命中，只取前 from + size 条
+     */
+    private static void mergeFederatedHits(EsFederatedSearchResult result, List<SortOrder> sortOrders, int from, int window) {
+        PriorityQueue<HitCursor> queue = new PriorityQueue<>((a, b) -> compareFederatedHits(a, b, sortOrders));
+        int ordinal = 0;
+        for (Map.Entry<String, SearchResponse> entry : result.getResponses().entrySet()) {
+            SearchHit[] hits = entry.getValue().getHits().getHits();
+            if (hits.length > 0) {
+                queue.add(new HitCursor(entry.getKey(), hits, ordinal));
+            }
+            ordinal++;
+        }
+        for (int taken = 0; taken < window && !queue.isEmpty(); taken++) {
+            HitCursor cursor = queue.poll();
+            if (taken >= from) {
+                result.getHits().add(new EsFederatedSearchResult.FederatedHit()
+                        .setClusterName(cursor.clusterName)
+                        .setHit(cursor.current()));
+            }
+            if (++cursor.position < cursor.hits.length) {
+                queue.add(cursor);
+            }
+        }
+    }
+
+    /**
+     * 按排序值逐个比较，每个值使用对应排序字段的方向，前一个相同时才比较下一个；没有排序值时按评分降序
+     */
+    private static int compareFederatedHits(HitCursor a, HitCursor b, List<SortOrder> sortOrders) {
+        Object[] aValues = a.current().getSortValues();
+        Object[] bValues = b.current().getSortValues();
+        int compare = 0;
+        if (aValues.length > 0 && bValues.length > 0) {
+            int length = Math.min(Math.min(aValues.length, bValues.length), sortOrders.size());
+            for (int i = 0; i < length && compare == 0; i++) {
+                compare = compareSortValues(aValues[i], bValues[i], sortOrders.get(i) == SortOrder.ASC ? 1 : -1);
+            }
+        } else {
+            compare = Float.compare(b.current().getScore(), a.current().getScore());
+        }
+        // 排序值相同时按集群顺序与集群内顺序，保证结果稳定
+        if (compare == 0) {
+            compare = a.ordinal != b.ordinal ? Integer.compare(a.ordinal, b.ordinal) : Integer.compare(a.position, b.position);
+        }
+        return compare;
+    }
+
+    /**
+     * 比较排序值，缺失值无论升降序都排在最后，与服务端默认行为一致
+     */
+    private static int compareSortValues(Object a, Object b, int direction) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        int compare;
+        if (a instanceof Number && b instanceof Number) {
+            compare = (a instanceof Long || a instanceof Integer) && (b instanceof Long || b instanceof Integer)
+                    ? Long.compare(((Number) a).longValue(), ((Number) b).longValue())
+                    : Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        } else if (a instanceof Boolean && b instanceof Boolean) {
+            compare = Boolean.compare((Boolean) a, (Boolean) b);
+        } else {
+            compare = a.toString().compareTo(b.toString());
+        }
+        return compare * direction;
+    }
+
+    private static void mergeFederatedTotals(EsFederatedSearchResult result) {
+        long total = 0;
+        boolean exact = true;
+        for (SearchResponse response : result.getResponses().values()) {
+            TotalHits totalHits = response.getHits().getTotalHits();
+            if (totalHits == null) {
+                exact = false;
+                continue;
+            }
+            total += totalHits.value;
+            exact &= totalHits.relation == TotalHits.Relation.EQUAL_TO;
+        }
+        result.setTotalHits(total).setTotalHitsExact(exact);
+    }
+
+    /**
+     * 合并简单聚合；各集群的 terms 只返回本集群的前 size 个桶，合并后的文档数与服务端跨分片合并一样是近似值
+     */
+    @SuppressWarnings("unchecked")
+    private static void mergeFederatedAggregations(EsFederatedSearchResult result) {
+        Map<String, Object> merged = result.getAggregations();
+        for (SearchResponse response : result.getResponses().values()) {
+            if (response.getAggregations() == null) {
+                continue;
+            }
+            for (Aggregation aggregation : response.getAggregations()) {
+                String name = aggregation.getName();
+                if (aggregation instanceof Terms) {
+                    Map<String, Long> counts = (Map<String, Long>) merged.computeIfAbsent(name, key -> new HashMap<String, Long>());
+                    for (Terms.Bucket bucket : ((Terms) aggregation).getBuckets()) {
+                        counts.merge(bucket.getKeyAsString(), bucket.getDocCount(), Long::sum);
+                    }
+                } else if (aggregation instanceof ValueCount) {
+                    merged.merge(name, ((ValueCount) aggregation).getValue(), (a, b) -> (Long) a + (Long) b);
+                } else if (aggregation instanceof Sum) {
+                    merged.merge(name, ((Sum) aggregation).getValue(), (a, b) -> (Double) a + (Double) b);
+                } else if (aggregation instanceof Min) {
+                    merged.merge(name, ((Min) aggregation).getValue(), (a, b) -> Math.min((Double) a, (Double) b));
+                } else if (aggregation instanceof Max) {
+                    merged.merge(name, ((Max) aggregation).getValue(), (a, b) -> Math.max((Double) a, (Double) b));
+                }
+            }
+        }
+        // terms 按文档数降序
+        merged.replaceAll((name, value) -> {
+            if (!(value instanceof Map)) {
+                return value;
+            }
+            Map<String, Long> sorted = new LinkedHashMap<>();
+            ((Map<String, Long>) value).entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+            return sorted;
+        });
+    }
+
+    /**
+     * 设置联合搜索的线程数上限，超出时集群请求排队等待，排队时间计入该集群的超时；需在首次联合搜索前设置
+     *
+     * @param federatedThreads 线程数上限，小于等于0时不限制
+     */
+    public void setFederatedThreads(int federatedThreads) {
+        this.federatedThreads = federatedThreads;
+    }
+
+    /**
+     * 获取联合搜索线程池，懒加载
+     */
+    private ExecutorService getFederatedExecutor() {
+        ExecutorService executor = federatedExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = federatedExecutor;
+                if (executor == null) {
+                    executor = EsExecutors.newTaskExecutor("es-federated", federatedThreads);
+                    federatedExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    // ==================== 流式搜索 ====================
+
+    /**
+     * 流式搜索
+     * 边接收边解析响应，每解析出一条命中即回调，不在内存中构建完整的 SearchResponse，
+     * 适用于 size 很大、单个响应可能超过响应缓冲上限的查询；不支持滚动查询与聚合结果
+     *
+     * @param esIndexInfo     索引信息
+     * @param esSearchRequest 搜索请求
+     * @param hitConsumer     命中回调，在调用线程中执行，回调较慢时会暂停读取连接
+     * @return 命中条数，失败时返回 -1
+     */
+    public long searchStream(EsIndexInfo esIndexInfo, EsSearchRequest esSearchRequest, Consumer<EsStreamHit> hitConsumer) {
+        return searchStream(esIndexInfo, esSearchRequest, null, hitConsumer);
+    }
+
+    /**
+     * 流式搜索，使用单次请求选项
+     *
+     * @param esIndexInfo     索引信息
+     * @param esSearchRequest 搜索请求
+     * @param requestOptions  请求选项，streamBufferBytes 控制内存中积压的字节数上限
+     * @param hitConsumer     命中回调
+     * @return 命中条数，失败时返回 -1
+     */
+    public long searchStream(EsIndexInfo esIndexInfo, EsSearchRequest esSearchRequest,
+                             EsRequestOptions requestOptions, Consumer<EsStreamHit> hitConsumer) {
+        try {
+            SearchSourceBuilder searchSourceBuilder = guardQuery(esIndexInfo.getIndexName(), buildSearchSourceBuilder(esSearchRequest));
+            Request request = new Request("POST", "/" + esIndexInfo.getIndexName() + "/_search");
+            String routing = ObjectUtils.isEmpty(esSearchRequest.getRouting()) ? esIndexInfo.getRouting() : esSearchRequest.getRouting();
+            if (!ObjectUtils.isEmpty(routing)) {
+                request.addParameter("routing", routing);
+            }
+            addSearchParameters(request, esSearchRequest);
+            request.setJsonEntity(Strings.toString(searchSourceBuilder));
+            int highWatermark = requestOptions == null || ObjectUtils.isEmpty(requestOptions.getStreamBufferBytes())
+                    ? EsStreamingResponseConsumer.DEFAULT_HIGH_WATERMARK : requestOptions.getStreamBufferBytes();
+            // 已回调的命中无法撤回，因此不在集群组成员间切换
+            RequestOptions.Builder options = applyOptions(COMMON_OPTIONS.toBuilder(), requestOptions);
+            return executeOnPrimary(esIndexInfo, client -> streamSearch(client, request, options, highWatermark, hitConsumer));
+        } catch (Exception e) {
+            log.error("Failed to stream search documents in index: {}", esIndexInfo.getIndexName(), e);
+            return -1;
+        }
+    }
+
+    private long streamSearch(RestHighLevelClient client, Request request, RequestOptions.Builder options,
+                              int highWatermark, Consumer<EsStreamHit> hitConsumer) throws IOException {
+        EsStreamingResponseConsumer consumer = new EsStreamingResponseConsumer(highWatermark);
+        AtomicBoolean consumerCreated = new AtomicBoolean(false);
+        // 只有第一次尝试使用流式消费者；客户端对 502/503/504 的重试使用普通消费者，此时调用方已按错误状态结束读取
+        options.setHttpAsyncResponseConsumerFactory(() -> consumerCreated.compareAndSet(false, true) ? consumer
+                : new HeapBufferedAsyncResponseConsumer(EsStreamingResponseConsumer.DEFAULT_HIGH_WATERMARK));
+        request.setOptions(options);
+        Cancellable cancellable = client.getLowLevelClient().performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+                consumer.abort(exception);
+            }
+        });
+        try {
+            HttpResponse response = consumer.awaitResponse();
+            int status = response.getStatusLine().getStatusCode();
+            if (status < 200 || status >= 300) {
+                throw new IOException("Stream search failed with status " + status + ": "
+                        + Streams.copyToString(new InputStreamReader(consumer.getContent(), StandardCharsets.UTF_8)));
+            }
+            try (XContentParser parser = XContentType.JSON.xContent().createParser(NamedXContentRegistry.EMPTY,
+                    DeprecationHandler.THROW_UNSUPPORTED_OPERATION, consumer.getContent())) {
+                return parseStreamHits(parser, hitConsumer);
+            }
+        } finally {
+            // 正常结束时请求已完成，取消无影响；回调异常或解析失败时中断连接
+            cancellable.cancel();
+        }
+    }
+
+    /**
+     * 将搜索请求中的 URL 参数添加到低级客户端请求
+     */
+    private static void addSearchParameters(Request request, EsSearchRequest esSearchRequest) {
+        if (!ObjectUtils.isEmpty(esSearchRequest.getPreference())) {
+            request.addParameter("preference", esSearchRequest.getPreference());
+        }
+        if (esSearchRequest.getRequestCache() != null) {
+            request.addParameter("request_cache", esSearchRequest.getRequestCache().toString());
+        }
+        if (esSearchRequest.getBatchedReduceSize() != null) {
+            request.addParameter("batched_reduce_size", esSearchRequest.getBatchedReduceSize().toString());
+        }
+        if (esSearchRequest.getMaxConcurrentShardRequests() != null) {
+            request.addParameter("max_concurrent_shard_requests", esSearchRequest.getMaxConcurrentShardRequests().toString());
+        }
+    }
+
+    /**
+     * 解析搜索响应中的 hits.hits，其余部分跳过
+     */
+    private static long parseStreamHits(XContentParser parser, Consumer<EsStreamHit> hitConsumer) throws IOException {
+        long count = 0;
+        if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+            throw new IOException("Unexpected search response");
+        }
+        while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+            String field = parser.currentName();
+            XContentParser.Token token = parser.nextToken();
+            if (!"hits".equals(field) || token != XContentParser.Token.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+                String hitsField = parser.currentName();
+                token = parser.nextToken();
+                if (!"hits".equals(hitsField) || token != XContentParser.Token.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == XContentParser.Token.START_OBJECT) {
+                    hitConsumer.accept(parseStreamHit(parser));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static EsStreamHit parseStreamHit(XContentParser parser) throws IOException {
+        EsStreamHit hit = new EsStreamHit();
+        while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+            String field = parser.currentName();
+            XContentParser.Token token = parser.nextToken();
+            if ("_index".equals(field)) {
+                hit.setIndex(parser.text());
+            } else if ("_id".equals(field)) {
+                hit.setId(parser.text());
+            } else if ("_score".equals(field) && token == XContentParser.Token.VALUE_NUMBER) {
+                hit.setScore(parser.floatValue());
+            } else if ("_source".equals(field) && token == XContentParser.Token.START_OBJECT) {
+                try (XContentBuilder builder = XContentFactory.jsonBuilder()) {
+                    builder.copyCurrentStructure(parser);
+                    hit.setSource(BytesReference.toBytes(BytesReference.bytes(builder)));
+                }
+            } else if ("fields".equals(field) && token == XContentParser.Token.START_OBJECT) {
+                Map<String, List<Object>> fields = new LinkedHashMap<>();
+                parser.map().forEach((name, value) -> fields.put(name, value instanceof List
+                        ? (List<Object>) value : Collections.singletonList(value)));
+                hit.setFields(fields);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return hit;
+    }
+
+    // ==================== 命中字段读取 ====================
+
+    /**
+     * 读取命中的字段值
+     * 依次从 docvalue_fields/stored_fields 返回的 fields 与 _source 中查找，
+     * 因此无论请求是否返回 _source 都可以用同一方式读取；字段名支持以点分隔的嵌套路径
+     *
+     * @param hit   命中
+     * @param field 字段名
+     * @return 字段值，多值字段返回第一个值，不存在时返回 null
+     */
+    public static Object getHitValue(SearchHit hit, String field) {
+        List<Object> values = getHitValues(hit, field);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * 读取命中的字段的全部值
+     *
+     * @param hit   命中
+     * @param field 字段名
+     * @return 字段值列表，不存在时返回空列表
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Object> getHitValues(SearchHit hit, String field) {
+        DocumentField documentField = hit.field(field);
+        if (documentField != null) {
+            return documentField.getValues();
+        }
+        if (!hit.hasSource()) {
+            return Collections.emptyList();
+        }
+        Object value = XContentMapValues.extractValue(field, hit.getSourceAsMap());
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        return value instanceof List ? (List<Object>) value : Collections.singletonList(value);
+    }
+
+    /**
+     * 读取命中的全部字段
+     * _source 与 fields 合并为一个 Map，fields 中的值覆盖 _source 中的同名顶层字段；多值字段只有一个值时展开为单值
+     *
+     * @param hit 命中
+     * @return 字段名到值的映射
+     */
+    public static Map<String, Object> getHitFields(SearchHit hit) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (hit.hasSource()) {
+            result.putAll(hit.getSourceAsMap());
+        }
+        hit.getFields().forEach((name, documentField) -> {
+            List<Object> values = documentField.getValues();
+            result.put(name, values.size() == 1 ? values.get(0) : values);
+        });
+        return result;
+    }
+
+    /**
+     * 读取文档内容
+     * 启用请求合并时响应可能被多个调用方共享，每个调用方各自解析一份，避免互相修改
+     */
+    private Map<String, Object> sourceOf(GetResponse response) {
+        if (singleFlight == null || response.isSourceEmpty()) {
+            return response.getSource();
+        }
+        return XContentHelper.convertToMap(response.getSourceAsBytesRef(), false, XContentType.JSON).v2();
+    }
+
+    /**
+     * 启用或关闭相同请求合并
+     * 启用后，同一时刻完全相同的 searchDocuments 与 getDocumentById 请求只发送一次并共享响应；
+     * 共享的 SearchResponse 应视为只读
+     *
+     * @param enabled 是否启用
+     */
+    public void setSingleFlightEnabled(boolean enabled) {
+        if (enabled && singleFlight == null) {
+            singleFlight = new EsSingleFlight();
+        } else if (!enabled) {
+            singleFlight = null;
+        }
+    }
+
+    /**
+     * 获取请求合并及其统计，未启用时返回 null
+     *
+     * @return 请求合并
+     */
+    public EsSingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    // ==================== 写入合并 ====================
+
+    /**
+     * 启用或关闭写入合并
+     * 启用后 updateDocument（不含脚本、upsert 与条件更新）与 deleteDocument 先进入缓冲并立即返回 true，
+     * 窗口内同一文档的多次局部更新合并为一次（对象字段递归合并，其余字段后写覆盖），删除覆盖之前的更新，
+     * 每隔 windowMillis 或缓冲文档数达到 maxPending 时按索引通过批量请求写入，写入在单独的线程上按提交顺序执行。
+     * 写入因此变为异步：缓冲中的修改在写入前对读取不可见，写入失败只记录日志（配置暂存时转入暂存）。
+     * 其他写接口（插入、脚本等更新、批量与 *WithResult 接口）执行前先写入涉及文档缓冲中的操作，
+     * 并等待已提交的写入完成，保证同一文档的写入顺序
+     *
+     * @param windowMillis 合并窗口（毫秒），小于等于 0 时关闭并写入缓冲中的操作
+     * @param maxPending   缓冲文档数上限
+     */
+    public void setWriteCoalescing(long windowMillis, int maxPending) {
+        Future<?> flushed;
+        synchronized (coalesceLock) {
+            ScheduledFuture<?> future = coalesceFlushFuture;
+            if (future != null) {
+                future.cancel(false);
+                coalesceFlushFuture = null;
+            }
+            EsWriteCoalescer previous = writeCoalescer;
+            writeCoalescer = windowMillis > 0 ? new EsWriteCoalescer(windowMillis, Math.max(1, maxPending)) : null;
+            if (previous != null) {
+                submitCoalesced(previous, previous.drain());
+            }
+            flushed = lastCoalescedFlush;
+            if (windowMillis > 0) {
+                coalesceFlushFuture = getTaskScheduler().scheduleWithFixedDelay(
+                        this::submitCoalescedFlush, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        awaitCoalescedFlush(flushed);
+    }
+
+    /**
+     * 获取写入合并及其统计，未启用时返回 null
+     *
+     * @return 写入合并
+     */
+    public EsWriteCoalescer getWriteCoalescer() {
+        return writeCoalescer;
+    }
+
+    /**
+     * 立即写入缓冲中的全部操作，写入完成后返回
+     */
+    public void flushCoalescedWrites() {
+        awaitCoalescedFlush(submitCoalescedFlush());
+    }
+
+    /**
+     * 取出缓冲中的全部操作并提交到写入线程，不等待写入完成
+     *
+     * @return 最近一次提交的写入，没有时返回 null
+     */
+    private Future<?> submitCoalescedFlush() {
+        synchronized (coalesceLock) {
+            coalesceFlushRequested.set(false);
+            EsWriteCoalescer coalescer = writeCoalescer;
+            if (coalescer != null) {
+                submitCoalesced(coalescer, coalescer.drain());
+            }
+            return lastCoalescedFlush;
+        }
+    }
+
+    /**
+     * 缓冲达到上限时提前写入，由调度线程取出并提交，同一时刻最多提交一次
+     */
+    private void requestCoalescedFlush() {
+        if (coalesceFlushRequested.compareAndSet(false, true)) {
+            getTaskScheduler().execute(this::submitCoalescedFlush);
+        }
+    }
+
+    /**
+     * 不经缓冲的写入执行前调用：写入这些文档缓冲中的操作，并等待已提交的写入全部完成
+     */
+    private void flushPendingDocs(EsIndexInfo esIndexInfo, List<EsDocData> esDocDataList) {
+        if (writeCoalescer == null && lastCoalescedFlush == null) {
+            return;
+        }
+        Map<String, String> routingByDocId = new LinkedHashMap<>();
+        esDocDataList.stream().filter(esDocData -> !ObjectUtils.isEmpty(esDocData.getDocId()))
+                .forEach(esDocData -> routingByDocId.put(esDocData.getDocId(), resolveRouting(esIndexInfo, esDocData)));
+        flushPendingWrites(esIndexInfo, routingByDocId);
+    }
+
+    /**
+     * 同 {@link #flushPendingDocs(EsIndexInfo, List)}，按文档 id 指定
+     */
+    private void flushPendingIds(EsIndexInfo esIndexInfo, List<String> docIdList) {
+        if (writeCoalescer == null && lastCoalescedFlush == null) {
+            return;
+        }
+        Map<String, String> routingByDocId = new LinkedHashMap<>();
+        docIdList.stream().filter(docId -> !ObjectUtils.isEmpty(docId))
+                .forEach(docId -> routingByDocId.put(docId, resolveRouting(esIndexInfo, docId)));
+        flushPendingWrites(esIndexInfo, routingByDocId);
+    }
+
+    private void flushPendingWrites(EsIndexInfo esIndexInfo, Map<String, String> routingByDocId) {
+        Future<?> inFlight;
+        synchronized (coalesceLock) {
+            EsWriteCoalescer coalescer = writeCoalescer;
+            if (coalescer != null) {
+                List<EsWriteCoalescer.PendingWrite> writes = new ArrayList<>();
+                routingByDocId.forEach((docId, routing) -> {
+                    EsWriteCoalescer.PendingWrite write = coalescer.remove(esIndexInfo, docId, routing);
+                    if (write != null) {
+                        writes.add(write);
+                    }
+                });
+                submitCoalesced(coalescer, writes);
+            }
+            // 写入线程按提交顺序执行，等待最近一次提交即等待此前取出的全部操作
+            inFlight = lastCoalescedFlush;
+        }
+        awaitCoalescedFlush(inFlight);
+    }
+
+    /**
+     * 提交到写入线程，调用方持有 coalesceLock，保证取出顺序与写入顺序一致
+     */
+    private void submitCoalesced(EsWriteCoalescer coalescer, List<EsWriteCoalescer.PendingWrite> writes) {
+        if (writes.isEmpty()) {
+            return;
+        }
+        if (coalesceSender == null) {
+            coalesceSender = Executors.newSingleThreadExecutor(EsExecutors.threadFactory("es-write-coalescer"));
+        }
+        lastCoalescedFlush = coalesceSender.submit(() -> writeCoalesced(coalescer, writes));
+    }
+
+    /**
+     * 等待写入完成，写入本身的失败已在 writeCoalesced 中记录
+     */
+    private static void awaitCoalescedFlush(Future<?> future) {
+        if (future == null || future.isDone()) {
+            return;
+        }
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Coalesced write failed", e.getCause());
+        }
+    }
+
+    /**
+     * 按 集群|索引 分组，每组通过一次批量请求写入
+     */
+    private void writeCoalesced(EsWriteCoalescer coalescer, List<EsWriteCoalescer.PendingWrite> writes) {
+        Map<String, List<EsWriteCoalescer.PendingWrite>> groups = writes.stream().collect(Collectors.groupingBy(
+                write -> write.getEsIndexInfo().getClusterName() + "|" + write.getEsIndexInfo().getIndexName(),
+                LinkedHashMap::new, Collectors.toList()));
+        groups.values().forEach(group -> {
+            EsIndexInfo esIndexInfo = group.get(0).getEsIndexInfo();
+            BulkRequest bulkRequest = new BulkRequest();
+            List<EsSpoolRecord> records = new ArrayList<>(group.size());
+            for (EsWriteCoalescer.PendingWrite write : group) {
+                if (write.isDelete()) {
+                    bulkRequest.add(new DeleteRequest()
+                            .index(esIndexInfo.getIndexName())
+                            .id(write.getDocId())
+                            .routing(write.getRouting()));
+                    records.add(EsSpoolRecord.delete(esIndexInfo.getIndexName(), write.getDocId())
+                            .setRouting(write.getRouting()));
+                } else {
+                    // 合并后的更新可能与其他实例的写入交错，冲突时由服务端重试
+                    bulkRequest.add(new UpdateRequest()
+                            .index(esIndexInfo.getIndexName())
+                            .id(write.getDocId())
+                            .routing(write.getRouting())
+                            .doc(write.getData())
+                            .retryOnConflict(3));
+                    records.add(EsSpoolRecord.update(esIndexInfo.getIndexName(), write.getDocId(), write.getData())
+                            .setRouting(write.getRouting()));
+                }
+            }
+            int failed = 0;
+            if (!spoolIfBacklogged(esIndexInfo, records)) {
+                try {
+                    BulkResponse bulkResponse = executeBulk(esIndexInfo, bulkRequest);
+                    if (bulkResponse.hasFailures() && !spoolRejectedItems(esIndexInfo, records, bulkResponse)) {
+                        failed = (int) Arrays.stream(bulkResponse.getItems()).filter(BulkItemResponse::isFailed).count();
+                        log.error("Coalesced write has failures: {}", bulkResponse.buildFailureMessage());
+                    }
+                } catch (Exception e) {
+                    if (!spoolOnFailure(esIndexInfo, records, e)) {
+                        failed = group.size();
+                        log.error("Failed to write {} coalesced operations to index: {}", group.size(), esIndexInfo.getIndexName(), e);
+                    }
+                }
+            }
+            coalescer.onFlushed(group.size(), failed);
+        });
+    }
+
+    // ==================== 查询防护 ====================
+
+    /**
+     * 注册查询防护策略
+     * searchDocuments、searchTimeSeries、searchStream、federatedSearch、count、existsByQuery、
+     * batchCount 与 batchExistsByQuery 发送前按策略检查查询，拒绝时这些方法记录错误并返回失败值，
+     * 改写时发送改写后的副本，调用方传入的查询对象不会被修改
+     *
+     * @param indexPattern 索引名称或通配符，如 logs-*；精确匹配优先
+     * @param policy       策略
+     */
+    public void registerQueryPolicy(String indexPattern, EsQueryPolicy policy) {
+        queryPolicies.put(indexPattern, policy);
+    }
+
+    /**
+     * 移除查询防护策略
+     *
+     * @param indexPattern 索引名称或通配符
+     */
+    public void removeQueryPolicy(String indexPattern) {
+        queryPolicies.remove(indexPattern);
+    }
+
+    /**
+     * 按索引的查询防护策略分析搜索请求，不改写、不发送，可用于提前校验用户输入的查询
+     *
+     * @param esIndexInfo     索引信息
+     * @param esSearchRequest 搜索请求
+     * @return 分析结果，索引未配置策略时返回 null
+     */
+    public EsQueryAnalysis analyzeQuery(EsIndexInfo esIndexInfo, EsSearchRequest esSearchRequest) {
+        EsQueryPolicy policy = findQueryPolicy(esIndexInfo.getIndexName());
+        if (policy == null) {
+            return null;
+        }
+        return EsQueryAnalyzer.inspect(buildSearchSourceBuilder(esSearchRequest), policy);
+    }
+
+    /**
+     * 发送前检查查询，违反策略且需要拒绝时抛出异常
+     *
+     * @return 需要发送的搜索源：执行了改写时为改写后的副本，否则为传入的搜索源（不会被修改）
+     */
+    private SearchSourceBuilder guardQuery(String indexName, SearchSourceBuilder searchSourceBuilder) {
+        EsQueryPolicy policy = findQueryPolicy(indexName);
+        if (policy == null) {
+            return searchSourceBuilder;
+        }
+        EsQueryAnalysis analysis = EsQueryAnalyzer.analyze(searchSourceBuilder, policy);
+        if (analysis.isRejected()) {
+            throw new RuntimeException("Query rejected by policy for index " + indexName + ": " + analysis.getViolations());
+        }
+        if (!analysis.isSafe()) {
+            log.warn("Query on index {} violates policy, cost {}: {}, rewrites: {}",
+                    indexName, String.format("%.1f", analysis.getCost()), analysis.getViolations(), analysis.getRewrites());
+        }
+        return analysis.getRewrittenSource() == null ? searchSourceBuilder : analysis.getRewrittenSource();
+    }
+
+    /**
+     * 查找索引对应的策略，多个索引时取第一个有策略的索引
+     */
+    private EsQueryPolicy findQueryPolicy(String indexName) {
+        if (queryPolicies.isEmpty() || ObjectUtils.isEmpty(indexName)) {
+            return null;
+        }
+        for (String index : indexName.split(",")) {
+            EsQueryPolicy policy = queryPolicies.get(index);
+            if (policy != null) {
+                return policy;
+            }
+            for (Map.Entry<String, EsQueryPolicy> entry : queryPolicies.entrySet()) {
+                if (Regex.simpleMatch(entry.getKey(), index)) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 构建搜索源构建器
+     */
+    private SearchSourceBuilder buildSearchSourceBuilder(EsSearchRequest esSearchRequest) {
+        /*  SearchSourceBuilder类是用于构建搜索请求的一部分，具体来说，SearchSourceBuilder的作用包括：
+            设置查询条件：可以定义各种类型的查询，如match查询、term查询、range查询等。
             设置过滤条件：可以定义过滤条件，用于限定搜索结果。
             设置排序规则：可以指定按照某个字段进行升序或降序排序。
             设置分页参数：可以指定从搜索结果中的哪个位置开始获取数据以及获取多少条数据。
@@ -380,57 +2544,1171 @@ public class EsTemplate {
          */
         SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
 
-        // 设置查询条件
-        if (esSearchRequest.getBq() != null) {
-            searchSourceBuilder.query(esSearchRequest.getBq());
+        // 设置查询条件
+        if (esSearchRequest.getBq() != null) {
+            searchSourceBuilder.query(esSearchRequest.getBq());
+        }
+
+        // 设置返回字段
+        if (Boolean.FALSE.equals(esSearchRequest.getFetchSource())) {
+            searchSourceBuilder.fetchSource(false);
+        } else if (esSearchRequest.getFields() != null || esSearchRequest.getExcludes() != null) {
+            searchSourceBuilder.fetchSource(esSearchRequest.getFields(), esSearchRequest.getExcludes());
+        }
+        if (!ObjectUtils.isEmpty(esSearchRequest.getDocValueFields())) {
+            for (String field : esSearchRequest.getDocValueFields()) {
+                searchSourceBuilder.docValueField(field);
+            }
+        }
+        if (!ObjectUtils.isEmpty(esSearchRequest.getStoredFields())) {
+            searchSourceBuilder.storedFields(Arrays.asList(esSearchRequest.getStoredFields()));
+        }
+
+        // 设置分页
+        searchSourceBuilder.from(esSearchRequest.getFrom());
+        searchSourceBuilder.size(esSearchRequest.getSize());
+
+        // 设置服务端超时与提前终止
+        if (!ObjectUtils.isEmpty(esSearchRequest.getTimeoutMillis())) {
+            searchSourceBuilder.timeout(TimeValue.timeValueMillis(esSearchRequest.getTimeoutMillis()));
+        }
+        if (!ObjectUtils.isEmpty(esSearchRequest.getTerminateAfter()) && esSearchRequest.getTerminateAfter() > 0) {
+            searchSourceBuilder.terminateAfter(esSearchRequest.getTerminateAfter());
+        }
+
+        // 设置聚合
+        if (!ObjectUtils.isEmpty(esSearchRequest.getAggregations())) {
+            esSearchRequest.getAggregations().forEach(searchSourceBuilder::aggregation);
+        }
+
+        // 设置高亮
+        if (esSearchRequest.getHighlightBuilder() != null) {
+            searchSourceBuilder.highlighter(esSearchRequest.getHighlightBuilder());
+        }
+
+        // 设置排序
+        if (!ObjectUtils.isEmpty(esSearchRequest.getSortName())) {
+            searchSourceBuilder.sort(esSearchRequest.getSortName(), esSearchRequest.getSortOrder());
+        }else{
+            // 默认按评分排序
+            searchSourceBuilder.sort(new ScoreSortBuilder().order(SortOrder.DESC));
+        }
+        return searchSourceBuilder;
+    }
+
+    /**
+     * 构建搜索请求
+     */
+    private SearchRequest buildSearchRequest(EsIndexInfo esIndexInfo, EsSearchRequest esSearchRequest,
+                                             SearchSourceBuilder searchSourceBuilder) {
+        /*  searchType 是用于指定搜索操作类型的参数
+            1:query_then_fetch：首先执行查询操作，然后获取匹配的文档，适用于大多数搜索场景。默认
+            2:dfs_query_then_fetch：在分布式环境中使用分布式频率（DFS）来执行查询，适用于特定的分布式搜索场景。
+            3:count：仅返回匹配的文档数量，而不返回实际的文档内容。
+            4:scan：用于旧版本的滚动搜索，已经在较新的版本中废弃。*/
+        SearchRequest searchRequest = new SearchRequest()
+                .indices(esIndexInfo.getIndexName())
+                .searchType(SearchType.DEFAULT)
+                .source(searchSourceBuilder); // // source(SearchSourceBuilder source)：设置搜索的源，可以包括查询条件、排序规则、分页设置等，对应着dsl最外层的大括号。
+
+        // 设置路由，只查询路由键所在的分片
+        String routing = ObjectUtils.isEmpty(esSearchRequest.getRouting()) ? esIndexInfo.getRouting() : esSearchRequest.getRouting();
+        if (!ObjectUtils.isEmpty(routing)) {
+            searchRequest.routing(routing);
+        }
+
+        // 设置分片偏好、请求缓存与分片并发
+        if (!ObjectUtils.isEmpty(esSearchRequest.getPreference())) {
+            searchRequest.preference(esSearchRequest.getPreference());
+        }
+        if (esSearchRequest.getRequestCache() != null) {
+            searchRequest.requestCache(esSearchRequest.getRequestCache());
+        }
+        if (esSearchRequest.getBatchedReduceSize() != null) {
+            searchRequest.setBatchedReduceSize(esSearchRequest.getBatchedReduceSize());
+        }
+        if (esSearchRequest.getMaxConcurrentShardRequests() != null) {
+            searchRequest.setMaxConcurrentShardRequests(esSearchRequest.getMaxConcurrentShardRequests());
+        }
+
+        // 设置滚动搜索
+        if (esSearchRequest.getNeedScroll() != null && esSearchRequest.getNeedScroll()) {
+            Scroll scroll = new Scroll(TimeValue.timeValueMinutes(esSearchRequest.getMinutes()));
+            searchRequest.scroll(scroll);
+        }
+
+        return searchRequest;
+    }
+
+    // ==================== 时序索引 ====================
+
+    /**
+     * 按文档时间写入对应的时序索引
+     *
+     * @param timeSeriesIndex 时序索引定义
+     * @param esDocData       文档数据，时间取自 timestampField 字段，缺失时使用当前时间
+     * @return 是否成功
+     */
+    public boolean insertTimeSeriesDocument(EsTimeSeriesIndex timeSeriesIndex, EsDocData esDocData) {
+        String indexName = timeSeriesRouter.resolveWriteIndex(timeSeriesIndex, esDocData);
+        return insertDocument(toIndexInfo(timeSeriesIndex, indexName), esDocData);
+    }
+
+    /**
+     * 按文档时间批量写入对应的时序索引
+     * 同一时间段的文档合并为一个批量请求，通常只有跨越时间段边界时才会产生多个请求
+     *
+     * @param timeSeriesIndex 时序索引定义
+     * @param esDocDataList   文档数据列表
+     * @return 是否全部成功
+     */
+    public boolean batchInsertTimeSeriesDocuments(EsTimeSeriesIndex timeSeriesIndex, List<EsDocData> esDocDataList) {
+        if (ObjectUtils.isEmpty(esDocDataList)) {
+            log.warn("Document list is empty, skipping batch insert");
+            return true;
+        }
+        Map<String, List<EsDocData>> docsByIndex = new LinkedHashMap<>();
+        esDocDataList.forEach(esDocData -> docsByIndex
+                .computeIfAbsent(timeSeriesRouter.resolveWriteIndex(timeSeriesIndex, esDocData), k -> new ArrayList<>())
+                .add(esDocData));
+
+        boolean success = true;
+        for (Map.Entry<String, List<EsDocData>> entry : docsByIndex.entrySet()) {
+            success &= batchInsertDocuments(toIndexInfo(timeSeriesIndex, entry.getKey()), entry.getValue());
+        }
+        return success;
+    }
+
+    /**
+     * 搜索时序索引
+     * 根据查询中时间字段的范围只搜索有交集的索引，未限定时间范围时搜索全部 {prefix}-* 索引；
+     * 时间范围为空（起点晚于终点或多个范围没有交集）时不发送请求，直接返回无结果的响应，
+     * 请求带有聚合时仍搜索 {prefix}-*，保证响应中聚合的结构完整
+     *
+     * @param timeSeriesIndex 时序索引定义
+     * @param esSearchRequest 搜索请求
+     * @return 搜索响应
+     */
+    public SearchResponse searchTimeSeries(EsTimeSeriesIndex timeSeriesIndex, EsSearchRequest esSearchRequest) {
+        List<String> indices = resolveTimeSeriesIndices(timeSeriesIndex, esSearchRequest.getBq());
+        try {
+            SearchSourceBuilder searchSourceBuilder = buildSearchSourceBuilder(esSearchRequest);
+            if (indices.isEmpty()) {
+                // 空列表传给 indices 会搜索集群中的全部索引
+                if (searchSourceBuilder.aggregations() == null) {
+                    log.debug("Time range of query on {} is empty, skipping search", timeSeriesIndex.getPrefix());
+                    return new SearchResponse(InternalSearchResponse.empty(), null, 0, 0, 0, 0,
+                            ShardSearchFailure.EMPTY_ARRAY, SearchResponse.Clusters.EMPTY);
+                }
+                indices = Collections.singletonList(timeSeriesIndex.getPrefix() + "-*");
+            }
+            EsIndexInfo esIndexInfo = toIndexInfo(timeSeriesIndex, String.join(",", indices));
+            SearchRequest searchRequest = buildSearchRequest(esIndexInfo, esSearchRequest, guardQuery(esIndexInfo.getIndexName(), searchSourceBuilder))
+                    .indices(indices.toArray(new String[0]))
+                    // 时间段内可能没有写入过数据，缺失的索引直接忽略
+                    .indicesOptions(IndicesOptions.lenientExpandOpen());
+            log.debug("Searching time series indices: {}", indices);
+            return executeSearch(esIndexInfo, searchRequest, null);
+        } catch (Exception e) {
+            log.error("Failed to search time series indices: {}", indices, e);
+            return null;
+        }
+    }
+
+    /**
+     * 计算查询需要搜索的时序索引
+     *
+     * @param timeSeriesIndex 时序索引定义
+     * @param query           查询条件
+     * @return 索引名称或通配符列表
+     */
+    public List<String> resolveTimeSeriesIndices(EsTimeSeriesIndex timeSeriesIndex, QueryBuilder query) {
+        return timeSeriesRouter.resolveSearchIndices(timeSeriesIndex, query);
+    }
+
+    private static EsIndexInfo toIndexInfo(EsTimeSeriesIndex timeSeriesIndex, String indexName) {
+        return new EsIndexInfo()
+                .setClusterName(timeSeriesIndex.getClusterName())
+                .setIndexName(indexName);
+    }
+
+    // ==================== 索引操作 ====================
+
+    /**
+     * 创建索引
+     *
+     * @param esIndexInfo 索引信息
+     * @param settings    索引设置，如 number_of_shards、number_of_replicas，可为空
+     * @param mappings    索引映射（包含 properties 的映射体），可为空
+     * @return 是否成功
+     */
+    public boolean createIndex(EsIndexInfo esIndexInfo, Map<String, Object> settings, Map<String, Object> mappings) {
+        try {
+            CreateIndexRequest createIndexRequest = new CreateIndexRequest(esIndexInfo.getIndexName());
+            if (!ObjectUtils.isEmpty(settings)) {
+                createIndexRequest.settings(settings);
+            }
+            if (!ObjectUtils.isEmpty(mappings)) {
+                createIndexRequest.mapping(mappings);
+            }
+            executeAdmin(esIndexInfo, client -> client.indices().create(createIndexRequest, COMMON_OPTIONS));
+            log.info("Successfully created index: {}", esIndexInfo.getIndexName());
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to create index: {}", esIndexInfo.getIndexName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 删除索引
+     *
+     * @param esIndexInfo 索引信息
+     * @return 是否成功
+     */
+    public boolean deleteIndex(EsIndexInfo esIndexInfo) {
+        try {
+            DeleteIndexRequest deleteIndexRequest = new DeleteIndexRequest(esIndexInfo.getIndexName());
+            executeAdmin(esIndexInfo, client -> client.indices().delete(deleteIndexRequest, COMMON_OPTIONS));
+            log.info("Successfully deleted index: {}", esIndexInfo.getIndexName());
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to delete index: {}", esIndexInfo.getIndexName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 检查索引是否存在
+     *
+     * @param esIndexInfo 索引信息
+     * @return 是否存在
+     */
+    public boolean indexExists(EsIndexInfo esIndexInfo) {
+        try {
+            GetIndexRequest getIndexRequest = new GetIndexRequest(esIndexInfo.getIndexName());
+            return executeRead(esIndexInfo, client -> client.indices().exists(getIndexRequest, COMMON_OPTIONS));
+        } catch (Exception e) {
+            log.error("Failed to check existence of index: {}", esIndexInfo.getIndexName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 更新索引设置（动态设置），如 refresh_interval、number_of_replicas
+     *
+     * @param esIndexInfo 索引信息
+     * @param settings    需要更新的设置
+     * @return 是否成功
+     */
+    public boolean updateIndexSettings(EsIndexInfo esIndexInfo, Map<String, Object> settings) {
+        try {
+            UpdateSettingsRequest updateSettingsRequest = new UpdateSettingsRequest(esIndexInfo.getIndexName())
+                    .settings(settings);
+            executeAdmin(esIndexInfo, client -> client.indices().putSettings(updateSettingsRequest, COMMON_OPTIONS));
+            log.info("Successfully updated settings {} of index: {}", settings, esIndexInfo.getIndexName());
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to update settings of index: {}", esIndexInfo.getIndexName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 获取索引的单个设置值
+     *
+     * @param esIndexInfo 索引信息
+     * @param settingName 设置名称，如 index.refresh_interval
+     * @return 设置值，未设置或失败时返回 null
+     */
+    public String getIndexSetting(EsIndexInfo esIndexInfo, String settingName) {
+        try {
+            GetSettingsRequest getSettingsRequest = new GetSettingsRequest()
+                    .indices(esIndexInfo.getIndexName())
+                    .names(settingName)
+                    .includeDefaults(true);
+            GetSettingsResponse response = executeRead(esIndexInfo, client -> client.indices().getSettings(getSettingsRequest, COMMON_OPTIONS));
+            return response.getSetting(esIndexInfo.getIndexName(), settingName);
+        } catch (Exception e) {
+            log.error("Failed to get setting: {} of index: {}", settingName, esIndexInfo.getIndexName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 刷新索引，使写入的文档立即可被搜索
+     *
+     * @param esIndexInfo 索引信息
+     * @return 是否成功
+     */
+    public boolean refreshIndex(EsIndexInfo esIndexInfo) {
+        try {
+            RefreshRequest refreshRequest = new RefreshRequest(esIndexInfo.getIndexName());
+            executeAdmin(esIndexInfo, client -> client.indices().refresh(refreshRequest, COMMON_OPTIONS));
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to refresh index: {}", esIndexInfo.getIndexName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 段合并，适用于不再写入的索引
+     *
+     * @param esIndexInfo     索引信息
+     * @param maxNumSegments 合并后每个分片的最大段数
+     * @return 是否成功
+     */
+    public boolean forceMerge(EsIndexInfo esIndexInfo, int maxNumSegments) {
+        try {
+            ForceMergeRequest forceMergeRequest = new ForceMergeRequest(esIndexInfo.getIndexName())
+                    .maxNumSegments(maxNumSegments);
+            executeAdmin(esIndexInfo, client -> client.indices().forcemerge(forceMergeRequest, COMMON_OPTIONS));
+            log.info("Successfully force merged index: {} to {} segments", esIndexInfo.getIndexName(), maxNumSegments);
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to force merge index: {}", esIndexInfo.getIndexName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 为索引添加别名
+     *
+     * @param esIndexInfo 索引信息
+     * @param alias       别名
+     * @return 是否成功
+     */
+    public boolean addAlias(EsIndexInfo esIndexInfo, String alias) {
+        try {
+            IndicesAliasesRequest aliasesRequest = new IndicesAliasesRequest()
+                    .addAliasAction(IndicesAliasesRequest.AliasActions.add().index(esIndexInfo.getIndexName()).alias(alias));
+            executeAdmin(esIndexInfo, client -> client.indices().updateAliases(aliasesRequest, COMMON_OPTIONS));
+            log.info("Successfully added alias: {} to index: {}", alias, esIndexInfo.getIndexName());
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to add alias: {} to index: {}", alias, esIndexInfo.getIndexName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 移除索引的别名
+     *
+     * @param esIndexInfo 索引信息
+     * @param alias       别名
+     * @return 是否成功
+     */
+    public boolean removeAlias(EsIndexInfo esIndexInfo, String alias) {
+        try {
+            IndicesAliasesRequest aliasesRequest = new IndicesAliasesRequest()
+                    .addAliasAction(IndicesAliasesRequest.AliasActions.remove().index(esIndexInfo.getIndexName()).alias(alias));
+            executeAdmin(esIndexInfo, client -> client.indices().updateAliases(aliasesRequest, COMMON_OPTIONS));
+            log.info("Successfully removed alias: {} from index: {}", alias, esIndexInfo.getIndexName());
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to remove alias: {} from index: {}", alias, esIndexInfo.getIndexName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 获取别名当前指向的索引
+     *
+     * @param esIndexInfo 索引信息，indexName 为别名
+     * @return 索引名称集合，别名不存在时为空集合，失败时返回 null
+     */
+    public Set<String> getIndicesByAlias(EsIndexInfo esIndexInfo) {
+        try {
+            return executeRead(esIndexInfo, client -> getIndicesByAlias(client, esIndexInfo.getIndexName()));
+        } catch (Exception e) {
+            log.error("Failed to get indices of alias: {}", esIndexInfo.getIndexName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 原子切换别名：在一次请求中将别名从当前指向的全部索引移除，并指向新索引
+     *
+     * @param esIndexInfo 索引信息，indexName 为别名
+     * @param newIndex    别名要指向的新索引
+     * @return 切换前别名指向的索引，失败时返回 null
+     */
+    public Set<String> swapAlias(EsIndexInfo esIndexInfo, String newIndex) {
+        String alias = esIndexInfo.getIndexName();
+        try {
+            // 集群组内各成员的旧索引可能不同，因此在每个成员上分别查询并切换
+            Set<String> oldIndices = executeAdmin(esIndexInfo, client -> {
+                Set<String> indices = getIndicesByAlias(client, alias);
+                IndicesAliasesRequest aliasesRequest = new IndicesAliasesRequest();
+                for (String oldIndex : indices) {
+                    if (!oldIndex.equals(newIndex)) {
+                        aliasesRequest.addAliasAction(IndicesAliasesRequest.AliasActions.remove().index(oldIndex).alias(alias));
+                    }
+                }
+                aliasesRequest.addAliasAction(IndicesAliasesRequest.AliasActions.add().index(newIndex).alias(alias));
+                client.indices().updateAliases(aliasesRequest, COMMON_OPTIONS);
+                return indices;
+            });
+            log.info("Successfully swapped alias: {} from {} to {}", alias, oldIndices, newIndex);
+            return oldIndices;
+        } catch (Exception e) {
+            log.error("Failed to swap alias: {} to index: {}", alias, newIndex, e);
+            return null;
+        }
+    }
+
+    /**
+     * 查询别名指向的索引
+     */
+    private Set<String> getIndicesByAlias(RestHighLevelClient client, String alias) throws IOException {
+        GetAliasesResponse response = client.indices().getAlias(new GetAliasesRequest(alias), COMMON_OPTIONS);
+        if (response.status() == RestStatus.NOT_FOUND) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(response.getAliases().keySet());
+    }
+
+    /**
+     * 开启批量装载会话
+     * 创建新索引（关闭刷新、副本数为 0）用于全量写入，提交时恢复设置、段合并并原子切换别名
+     *
+     * @param aliasInfo    索引信息，indexName 为业务使用的别名
+     * @param newIndexName 新索引名称
+     * @param settings     新索引的最终设置，提交时恢复其中的 refresh_interval 与 number_of_replicas，可为空
+     * @param mappings     新索引映射，可为空
+     * @return 批量装载会话，创建索引失败时返回 null
+     */
+    public EsBulkLoadSession beginBulkLoad(EsIndexInfo aliasInfo, String newIndexName,
+                                           Map<String, Object> settings, Map<String, Object> mappings) {
+        EsBulkLoadSession session = new EsBulkLoadSession(this, aliasInfo, newIndexName, settings);
+        if (!createIndex(session.getTargetInfo(), EsBulkLoadSession.buildLoadSettings(settings), mappings)) {
+            return null;
+        }
+        log.info("Began bulk load into index: {} for alias: {}", newIndexName, aliasInfo.getIndexName());
+        return session;
+    }
+
+    /**
+     * 注册索引的路由键提取器
+     * 文档未指定路由时，按提取器从文档中计算路由键（如从 data 中取租户id）；
+     * 删除与按id读取时提取器收到的文档只包含 docId
+     *
+     * @param indexName 索引名称
+     * @param extractor 路由键提取器，返回 null 表示不使用路由
+     */
+    public void registerRoutingExtractor(String indexName, Function<EsDocData, String> extractor) {
+        routingExtractors.put(indexName, extractor);
+    }
+
+    /**
+     * 移除索引的路由键提取器
+     *
+     * @param indexName 索引名称
+     */
+    public void removeRoutingExtractor(String indexName) {
+        routingExtractors.remove(indexName);
+    }
+
+    /**
+     * 解析文档的路由键：文档路由 → 索引的提取器 → 索引默认路由
+     */
+    private String resolveRouting(EsIndexInfo esIndexInfo, EsDocData esDocData) {
+        if (!ObjectUtils.isEmpty(esDocData.getRouting())) {
+            return esDocData.getRouting();
+        }
+        Function<EsDocData, String> extractor = routingExtractors.get(esIndexInfo.getIndexName());
+        if (extractor != null) {
+            String routing = extractor.apply(esDocData);
+            if (!ObjectUtils.isEmpty(routing)) {
+                return routing;
+            }
+        }
+        return ObjectUtils.isEmpty(esIndexInfo.getRouting()) ? null : esIndexInfo.getRouting();
+    }
+
+    private String resolveRouting(EsIndexInfo esIndexInfo, String docId) {
+        return resolveRouting(esIndexInfo, new EsDocData().setDocId(docId));
+    }
+
+    /**
+     * 获取集群的写入暂存及其指标，集群组或未启用暂存时返回 null
+     *
+     * @param clusterName 集群名称
+     * @return 写入暂存
+     */
+    public EsWriteSpool getWriteSpool(String clusterName) {
+        return esRestClient.getSpool(clusterName);
+    }
+
+    /**
+     * 暂存中已有积压时，新写入直接追加到暂存末尾，保证与积压的写操作按顺序重放
+     * 脚本、upsert 与条件写入不可暂存（records 为 null），始终直接发送
+     *
+     * @return 是否已暂存
+     */
+    private boolean spoolIfBacklogged(EsIndexInfo esIndexInfo, List<EsSpoolRecord> records) {
+        EsWriteSpool spool = esRestClient.getSpool(esIndexInfo.getClusterName());
+        if (spool == null || records == null || !spool.hasBacklog()) {
+            return false;
+        }
+        if (spool.append(records)) {
+            log.debug("Spooled {} write operations behind backlog of cluster: {}", records.size(), esIndexInfo.getClusterName());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 写入因集群不可用失败时暂存写操作
+     *
+     * @return 是否已暂存
+     */
+    private boolean spoolOnFailure(EsIndexInfo esIndexInfo, List<EsSpoolRecord> records, Exception e) {
+        EsWriteSpool spool = esRestClient.getSpool(esIndexInfo.getClusterName());
+        if (spool == null || records == null || !EsWriteSpool.isRetryable(e) || !spool.append(records)) {
+            return false;
+        }
+        log.warn("Cluster: {} unavailable, spooled {} write operations: {}",
+                esIndexInfo.getClusterName(), records.size(), e.getMessage());
+        return true;
+    }
+
+    /**
+     * 暂存批量响应中被拒绝（429）的条目
+     *
+     * @return 失败条目是否全部为拒绝且已暂存
+     */
+    private boolean spoolRejectedItems(EsIndexInfo esIndexInfo, List<EsSpoolRecord> records, BulkResponse bulkResponse) {
+        EsWriteSpool spool = esRestClient.getSpool(esIndexInfo.getClusterName());
+        if (spool == null || records == null) {
+            return false;
+        }
+        List<EsSpoolRecord> rejected = new ArrayList<>();
+        for (BulkItemResponse item : bulkResponse.getItems()) {
+            if (!item.isFailed()) {
+                continue;
+            }
+            if (item.status() != RestStatus.TOO_MANY_REQUESTS) {
+                return false;
+            }
+            rejected.add(records.get(item.getItemId()));
+        }
+        if (!spool.append(rejected)) {
+            return false;
         }
+        log.warn("Spooled {} rejected bulk items of cluster: {}", rejected.size(), esIndexInfo.getClusterName());
+        return true;
+    }
 
-        // 设置返回字段
-        if (esSearchRequest.getFields() != null) {
-            searchSourceBuilder.fetchSource(esSearchRequest.getFields(), null);
+    /**
+     * 执行写请求
+     * 普通集群直接写入；集群组先同步写入主集群，其余成员按配置同步写入或提交到异步镜像积压队列
+     *
+     * @param esIndexInfo 索引信息
+     * @param callback    客户端回调
+     * @return 主集群的执行结果
+     */
+    private <T> T executeWrite(EsIndexInfo esIndexInfo, EsClientCallback<T> callback) throws IOException {
+        EsClusterGroup group = esRestClient.getClusterGroup(esIndexInfo.getClusterName());
+        if (ObjectUtils.isEmpty(group)) {
+            return callback.doWithClient(esRestClient.getClient(esIndexInfo.getClusterName()));
         }
 
-        // 设置分页
-        searchSourceBuilder.from(esSearchRequest.getFrom());
-        searchSourceBuilder.size(esSearchRequest.getSize());
+        T result = callback.doWithClient(esRestClient.getClient(group.getPrimary()));
+        List<String> members = group.getMembers();
+        for (String member : members.subList(1, members.size())) {
+            if (group.isAsyncMirror()) {
+                group.submitMirror(member, callback, esRestClient);
+                continue;
+            }
+            try {
+                callback.doWithClient(esRestClient.getClient(member));
+            } catch (Exception e) {
+                // 主集群已写入，抛出会让调用方返回失败或重复暂存，与异步镜像一样只计数
+                group.onMirrorFailure(member, e);
+            }
+        }
+        return result;
+    }
 
-        // 设置高亮
-        if (esSearchRequest.getHighlightBuilder() != null) {
-            searchSourceBuilder.highlighter(esSearchRequest.getHighlightBuilder());
+    // ==================== 按查询删除/更新 ====================
+
+    /**
+     * 按查询删除文档（同步执行，调用方阻塞至完成）
+     *
+     * @param esIndexInfo      索引信息
+     * @param esByQueryRequest 按查询删除请求
+     * @return 删除的文档数量
+     */
+    public long deleteByQuery(EsIndexInfo esIndexInfo, EsByQueryRequest esByQueryRequest) {
+        try {
+            DeleteByQueryRequest deleteByQueryRequest = buildDeleteByQueryRequest(esIndexInfo, esByQueryRequest);
+            BulkByScrollResponse response = executeWrite(esIndexInfo, client -> client.deleteByQuery(deleteByQueryRequest, COMMON_OPTIONS));
+            log.info("Successfully deleted {} documents by query from index: {}", response.getDeleted(), esIndexInfo.getIndexName());
+            return response.getDeleted();
+        } catch (Exception e) {
+            log.error("Failed to delete documents by query from index: {}", esIndexInfo.getIndexName(), e);
+            return 0;
         }
+    }
 
-        // 设置排序
-        if (!ObjectUtils.isEmpty(esSearchRequest.getSortName())) {
-            searchSourceBuilder.sort(esSearchRequest.getSortName(), esSearchRequest.getSortOrder());
-        }else{
-            // 默认按评分排序
-            searchSourceBuilder.sort(new ScoreSortBuilder().order(SortOrder.DESC));
+    /**
+     * 以后台任务方式按查询删除文档（wait_for_completion=false），立即返回任务句柄
+     *
+     * @param esIndexInfo      索引信息
+     * @param esByQueryRequest 按查询删除请求
+     * @return 任务句柄，可查询进度、调整限速或取消；提交失败时返回 null
+     */
+    public EsTaskHandle submitDeleteByQuery(EsIndexInfo esIndexInfo, EsByQueryRequest esByQueryRequest) {
+        try {
+            DeleteByQueryRequest deleteByQueryRequest = buildDeleteByQueryRequest(esIndexInfo, esByQueryRequest);
+            EsTaskHandle handle = submitServerTask(esIndexInfo, "_delete_by_query",
+                    client -> client.submitDeleteByQueryTask(deleteByQueryRequest, COMMON_OPTIONS).getTask());
+            log.info("Submitted delete by query task: {} on index: {}", handle.getTaskId(), esIndexInfo.getIndexName());
+            return startTracking(handle, esByQueryRequest);
+        } catch (Exception e) {
+            log.error("Failed to submit delete by query task on index: {}", esIndexInfo.getIndexName(), e);
+            return null;
         }
-        return searchSourceBuilder;
     }
 
     /**
-     * 构建搜索请求
+     * 按查询更新文档（同步执行，调用方阻塞至完成）
+     *
+     * @param esIndexInfo      索引信息
+     * @param esByQueryRequest 按查询更新请求
+     * @return 更新的文档数量
      */
-    private SearchRequest buildSearchRequest(EsIndexInfo esIndexInfo, EsSearchRequest esSearchRequest,
-                                             SearchSourceBuilder searchSourceBuilder) {
-        /*  searchType 是用于指定搜索操作类型的参数
-            1:query_then_fetch：首先执行查询操作，然后获取匹配的文档，适用于大多数搜索场景。默认
-            2:dfs_query_then_fetch：在分布式环境中使用分布式频率（DFS）来执行查询，适用于特定的分布式搜索场景。
-            3:count：仅返回匹配的文档数量，而不返回实际的文档内容。
-            4:scan：用于旧版本的滚动搜索，已经在较新的版本中废弃。*/
-        SearchRequest searchRequest = new SearchRequest()
-                .indices(esIndexInfo.getIndexName())
-                .searchType(SearchType.DEFAULT)
-                .source(searchSourceBuilder); // // source(SearchSourceBuilder source)：设置搜索的源，可以包括查询条件、排序规则、分页设置等，对应着dsl最外层的大括号。
+    public long updateByQuery(EsIndexInfo esIndexInfo, EsByQueryRequest esByQueryRequest) {
+        try {
+            UpdateByQueryRequest updateByQueryRequest = buildUpdateByQueryRequest(esIndexInfo, esByQueryRequest);
+            BulkByScrollResponse response = executeWrite(esIndexInfo, client -> client.updateByQuery(updateByQueryRequest, COMMON_OPTIONS));
+            log.info("Successfully updated {} documents by query in index: {}", response.getUpdated(), esIndexInfo.getIndexName());
+            return response.getUpdated();
+        } catch (Exception e) {
+            log.error("Failed to update documents by query in index: {}", esIndexInfo.getIndexName(), e);
+            return 0;
+        }
+    }
 
-        // 设置滚动搜索
-        if (esSearchRequest.getNeedScroll() != null && esSearchRequest.getNeedScroll()) {
-            Scroll scroll = new Scroll(TimeValue.timeValueMinutes(esSearchRequest.getMinutes()));
-            searchRequest.scroll(scroll);
+    /**
+     * 以后台任务方式按查询更新文档（wait_for_completion=false），立即返回任务句柄
+     *
+     * @param esIndexInfo      索引信息
+     * @param esByQueryRequest 按查询更新请求
+     * @return 任务句柄，可查询进度、调整限速或取消；提交失败时返回 null
+     */
+    public EsTaskHandle submitUpdateByQuery(EsIndexInfo esIndexInfo, EsByQueryRequest esByQueryRequest) {
+        try {
+            UpdateByQueryRequest updateByQueryRequest = buildUpdateByQueryRequest(esIndexInfo, esByQueryRequest);
+            // 7.5 的高级客户端没有提交 update by query 任务的方法，这里使用低级客户端
+            Request request = new Request("POST", "/" + esIndexInfo.getIndexName() + "/_update_by_query");
+            request.addParameter("wait_for_completion", "false");
+            request.addParameter("slices", esByQueryRequest.getSlices() <= 0 ? "auto" : String.valueOf(esByQueryRequest.getSlices()));
+            request.addParameter("requests_per_second", esByQueryRequest.getRequestsPerSecond() > 0
+                    ? String.valueOf(esByQueryRequest.getRequestsPerSecond()) : "-1");
+            request.addParameter("scroll_size", String.valueOf(esByQueryRequest.getBatchSize()));
+            request.addParameter("refresh", String.valueOf(esByQueryRequest.isRefresh()));
+            if (esByQueryRequest.isProceedOnConflicts()) {
+                request.addParameter("conflicts", "proceed");
+            }
+            if (esByQueryRequest.getMaxDocs() > 0) {
+                request.addParameter("max_docs", String.valueOf(esByQueryRequest.getMaxDocs()));
+            }
+            if (!ObjectUtils.isEmpty(esIndexInfo.getRouting())) {
+                request.addParameter("routing", esIndexInfo.getRouting());
+            }
+            request.setJsonEntity(Strings.toString(updateByQueryRequest));
+
+            EsTaskHandle handle = submitServerTask(esIndexInfo, "_update_by_query", client -> String.valueOf(
+                    EsServerTaskHandle.readMap(client.getLowLevelClient().performRequest(request)).get("task")));
+            log.info("Submitted update by query task: {} on index: {}", handle.getTaskId(), esIndexInfo.getIndexName());
+            return startTracking(handle, esByQueryRequest);
+        } catch (Exception e) {
+            log.error("Failed to submit update by query task on index: {}", esIndexInfo.getIndexName(), e);
+            return null;
         }
+    }
 
-        return searchRequest;
+    /**
+     * 提交服务端后台任务
+     * 集群组在每个成员上各启动一个任务，返回跟踪全部成员任务的 {@link EsGroupTaskHandle}；
+     * 异步镜像的成员经镜像队列提交，与之前的镜像写保持顺序
+     *
+     * @param endpoint 任务对应的端点，用于调整限速
+     * @param submit   提交任务并返回任务id
+     */
+    private EsTaskHandle submitServerTask(EsIndexInfo esIndexInfo, String endpoint, EsClientCallback<String> submit) throws IOException {
+        EsClusterGroup group = esRestClient.getClusterGroup(esIndexInfo.getClusterName());
+        if (ObjectUtils.isEmpty(group)) {
+            RestHighLevelClient client = esRestClient.getClient(esIndexInfo.getClusterName());
+            return new EsServerTaskHandle(client.getLowLevelClient(), submit.doWithClient(client), endpoint);
+        }
+
+        RestHighLevelClient primaryClient = esRestClient.getClient(group.getPrimary());
+        EsGroupTaskHandle handle = new EsGroupTaskHandle(group.getPrimary(),
+                new EsServerTaskHandle(primaryClient.getLowLevelClient(), submit.doWithClient(primaryClient), endpoint));
+        List<String> members = group.getMembers();
+        for (String member : members.subList(1, members.size())) {
+            handle.expectMember(member);
+            EsClientCallback<Void> mirror = client -> {
+                try {
+                    handle.onMemberSubmitted(member, new EsServerTaskHandle(client.getLowLevelClient(), submit.doWithClient(client), endpoint));
+                    return null;
+                } catch (IOException | RuntimeException e) {
+                    handle.onMemberFailed(member, e);
+                    throw e;
+                }
+            };
+            if (group.isAsyncMirror()) {
+                if (!group.submitMirror(member, mirror, esRestClient)) {
+                    handle.onMemberFailed(member, new RuntimeException("Mirror backlog is full"));
+                }
+                continue;
+            }
+            try {
+                mirror.doWithClient(esRestClient.getClient(member));
+            } catch (Exception e) {
+                group.onMirrorFailure(member, e);
+            }
+        }
+        return handle;
+    }
+
+    /**
+     * 构建按查询删除请求
+     */
+    private DeleteByQueryRequest buildDeleteByQueryRequest(EsIndexInfo esIndexInfo, EsByQueryRequest esByQueryRequest) {
+        DeleteByQueryRequest deleteByQueryRequest = new DeleteByQueryRequest(esIndexInfo.getIndexName())
+                .setQuery(esByQueryRequest.getQuery() == null ? QueryBuilders.matchAllQuery() : esByQueryRequest.getQuery())
+                .setBatchSize(esByQueryRequest.getBatchSize())
+                .setSlices(esByQueryRequest.getSlices() <= 0 ? AbstractBulkByScrollRequest.AUTO_SLICES : esByQueryRequest.getSlices())
+                .setRequestsPerSecond(esByQueryRequest.getRequestsPerSecond() > 0
+                        ? esByQueryRequest.getRequestsPerSecond() : Float.POSITIVE_INFINITY)
+                .setRefresh(esByQueryRequest.isRefresh());
+        if (esByQueryRequest.isProceedOnConflicts()) {
+            deleteByQueryRequest.setConflicts("proceed");
+        }
+        if (esByQueryRequest.getMaxDocs() > 0) {
+            deleteByQueryRequest.setMaxDocs(esByQueryRequest.getMaxDocs());
+        }
+        if (!ObjectUtils.isEmpty(esIndexInfo.getRouting())) {
+            deleteByQueryRequest.setRouting(esIndexInfo.getRouting());
+        }
+        return deleteByQueryRequest;
+    }
+
+    /**
+     * 构建按查询更新请求
+     */
+    private UpdateByQueryRequest buildUpdateByQueryRequest(EsIndexInfo esIndexInfo, EsByQueryRequest esByQueryRequest) {
+        UpdateByQueryRequest updateByQueryRequest = new UpdateByQueryRequest(esIndexInfo.getIndexName())
+                .setQuery(esByQueryRequest.getQuery() == null ? QueryBuilders.matchAllQuery() : esByQueryRequest.getQuery())
+                .setBatchSize(esByQueryRequest.getBatchSize())
+                .setSlices(esByQueryRequest.getSlices() <= 0 ? AbstractBulkByScrollRequest.AUTO_SLICES : esByQueryRequest.getSlices())
+                .setRequestsPerSecond(esByQueryRequest.getRequestsPerSecond() > 0
+                        ? esByQueryRequest.getRequestsPerSecond() : Float.POSITIVE_INFINITY)
+                .setRefresh(esByQueryRequest.isRefresh());
+        if (esByQueryRequest.isProceedOnConflicts()) {
+            updateByQueryRequest.setConflicts("proceed");
+        }
+        if (esByQueryRequest.getMaxDocs() > 0) {
+            updateByQueryRequest.setMaxDocs(esByQueryRequest.getMaxDocs());
+        }
+        if (!ObjectUtils.isEmpty(esIndexInfo.getRouting())) {
+            updateByQueryRequest.setRouting(esIndexInfo.getRouting());
+        }
+        if (!ObjectUtils.isEmpty(esByQueryRequest.getScript())) {
+            Map<String, Object> params = esByQueryRequest.getScriptParams() == null
+                    ? Collections.emptyMap() : esByQueryRequest.getScriptParams();
+            updateByQueryRequest.setScript(new Script(ScriptType.INLINE, Script.DEFAULT_SCRIPT_LANG,
+                    esByQueryRequest.getScript(), params));
+        }
+        return updateByQueryRequest;
+    }
+
+    /**
+     * 按请求配置启动进度回调
+     */
+    private EsTaskHandle startTracking(EsTaskHandle handle, EsByQueryRequest esByQueryRequest) {
+        if (esByQueryRequest.getProgressListener() != null) {
+            watchProgress(handle, esByQueryRequest.getProgressIntervalMillis(), esByQueryRequest.getProgressListener());
+        }
+        return handle;
+    }
+
+    // ==================== 索引重建 ====================
+
+    /**
+     * 索引重建
+     * <p>
+     * 服务端模式提交 _reindex 后台任务（支持切片与限速，跨集群时使用 reindex from remote，
+     * 需在目标集群配置 reindex.remote.whitelist）；客户端模式按切片滚动读取源索引，经转换函数处理后
+     * 流水线批量写入目标索引。配置断点文件后，以相同请求再次调用即可在崩溃后恢复；
+     * 断点记录的执行模式、源与目标索引、切片数或查询条件与本次请求不同时启动失败。
+     * </p>
+     *
+     * @param esReindexRequest 重建请求
+     * @return 任务句柄，可查询进度、调整限速或取消；启动失败时返回 null
+     */
+    public EsTaskHandle reindex(EsReindexRequest esReindexRequest) {
+        try {
+            EsReindexCheckpoint checkpoint = new EsReindexCheckpoint(esReindexRequest.getCheckpointFile());
+            checkpoint.bind(esReindexRequest);
+            EsTaskHandle handle = esReindexRequest.isServerSide()
+                    ? submitServerReindex(esReindexRequest, checkpoint)
+                    : startClientReindex(esReindexRequest, checkpoint);
+            if (esReindexRequest.getProgressListener() != null) {
+                watchProgress(handle, esReindexRequest.getProgressIntervalMillis(), esReindexRequest.getProgressListener());
+            }
+            return handle;
+        } catch (Exception e) {
+            log.error("Failed to start reindex from index: {} to index: {}",
+                    esReindexRequest.getSource().getIndexName(), esReindexRequest.getTarget().getIndexName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 提交服务端 _reindex 任务，断点中存在未失败的任务时直接恢复跟踪该任务
+     */
+    private EsTaskHandle submitServerReindex(EsReindexRequest esReindexRequest, EsReindexCheckpoint checkpoint) throws IOException {
+        String sourceCluster = esRestClient.resolvePrimary(esReindexRequest.getSource().getClusterName());
+        String targetCluster = esRestClient.resolvePrimary(esReindexRequest.getTarget().getClusterName());
+        RestHighLevelClient targetClient = esRestClient.getClient(targetCluster);
+
+        String resumedTaskId = checkpoint.getTaskId();
+        if (!ObjectUtils.isEmpty(resumedTaskId)) {
+            EsServerTaskHandle handle = new EsServerTaskHandle(targetClient.getLowLevelClient(), resumedTaskId, "_reindex");
+            EsTaskProgress progress = handle.getProgress();
+            if (progress != null && (progress.getState() == EsTaskProgress.State.RUNNING
+                    || progress.getState() == EsTaskProgress.State.COMPLETED)) {
+                log.info("Resumed reindex task: {} in state: {}", resumedTaskId, progress.getState());
+                return handle;
+            }
+            log.warn("Previous reindex task: {} cannot be resumed, resubmitting", resumedTaskId);
+        }
+
+        ReindexRequest reindexRequest = new ReindexRequest()
+                .setSourceIndices(esReindexRequest.getSource().getIndexName())
+                .setDestIndex(esReindexRequest.getTarget().getIndexName())
+                .setSourceBatchSize(esReindexRequest.getBatchSize())
+                .setRequestsPerSecond(esReindexRequest.getRequestsPerSecond() > 0
+                        ? esReindexRequest.getRequestsPerSecond() : Float.POSITIVE_INFINITY);
+        if (esReindexRequest.isProceedOnConflicts()) {
+            reindexRequest.setConflicts("proceed");
+        }
+        if (esReindexRequest.getQuery() != null) {
+            reindexRequest.setSourceQuery(esReindexRequest.getQuery());
+        }
+        if (sourceCluster.equals(targetCluster)) {
+            reindexRequest.setSlices(esReindexRequest.getSlices() <= 0 ? ReindexRequest.AUTO_SLICES : esReindexRequest.getSlices());
+        } else {
+            // reindex from remote 不支持切片
+            reindexRequest.setRemoteInfo(buildRemoteInfo(sourceCluster, esReindexRequest.getQuery()));
+        }
+
+        TaskSubmissionResponse response = targetClient.submitReindexTask(reindexRequest, COMMON_OPTIONS);
+        checkpoint.setTaskId(response.getTask());
+        log.info("Submitted reindex task: {} from {}/{} to {}/{}", response.getTask(),
+                sourceCluster, esReindexRequest.getSource().getIndexName(),
+                targetCluster, esReindexRequest.getTarget().getIndexName());
+        return new EsServerTaskHandle(targetClient.getLowLevelClient(), response.getTask(), "_reindex");
+    }
+
+    /**
+     * 根据源集群配置构建 reindex from remote 信息
+     */
+    private RemoteInfo buildRemoteInfo(String sourceCluster, QueryBuilder query) {
+        EsConfigProperties.EsClusterConfig sourceConfig = esRestClient.getClusterConfig(sourceCluster);
+        HttpHost host = HttpHost.create("http://" + sourceConfig.getHosts().get(0).trim());
+        String queryJson = (query == null ? QueryBuilders.matchAllQuery() : query).toString();
+        return new RemoteInfo(host.getSchemeName(), host.getHostName(), host.getPort(), null,
+                new BytesArray(queryJson), sourceConfig.getUsername(), sourceConfig.getPassword(),
+                Collections.emptyMap(),
+                TimeValue.timeValueMillis(sourceConfig.getSocketTimeout()),
+                TimeValue.timeValueMillis(sourceConfig.getConnectTimeout()));
+    }
+
+    /**
+     * 启动客户端重建任务
+     */
+    private EsTaskHandle startClientReindex(EsReindexRequest esReindexRequest, EsReindexCheckpoint checkpoint) {
+        String sourceCluster = esRestClient.resolvePrimary(esReindexRequest.getSource().getClusterName());
+        EsClientReindexTask task = new EsClientReindexTask(this, esRestClient.getClient(sourceCluster),
+                esReindexRequest, checkpoint);
+        task.start();
+        log.info("Started client-side reindex task: {} from {}/{} to {}/{}", task.getTaskId(),
+                sourceCluster, esReindexRequest.getSource().getIndexName(),
+                esReindexRequest.getTarget().getClusterName(), esReindexRequest.getTarget().getIndexName());
+        return task;
+    }
+
+    /**
+     * 定时查询任务进度并回调，任务结束后停止
+     */
+    private void watchProgress(EsTaskHandle handle, long intervalMillis, Consumer<EsTaskProgress> listener) {
+        AtomicReference<ScheduledFuture<?>> futureRef = new AtomicReference<>();
+        futureRef.set(getTaskScheduler().scheduleWithFixedDelay(() -> {
+            EsTaskProgress progress = handle.getProgress();
+            if (progress == null) {
+                return;
+            }
+            try {
+                listener.accept(progress);
+            } catch (Exception e) {
+                log.warn("Progress listener of task: {} failed", handle.getTaskId(), e);
+            }
+            if (progress.isFinished()) {
+                futureRef.get().cancel(false);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * 获取后台调度线程池（懒加载）
+     */
+    private ScheduledExecutorService getTaskScheduler() {
+        ScheduledExecutorService scheduler = taskScheduler;
+        if (scheduler == null) {
+            synchronized (this) {
+                scheduler = taskScheduler;
+                if (scheduler == null) {
+                    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "es-template-scheduler");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    taskScheduler = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * 执行索引管理请求
+     * 集群组内按顺序同步作用于全部成员，保证索引结构在各成员间一致
+     *
+     * @param esIndexInfo 索引信息
+     * @param callback    客户端回调
+     * @return 主集群的执行结果
+     */
+    private <T> T executeAdmin(EsIndexInfo esIndexInfo, EsClientCallback<T> callback) throws IOException {
+        EsClusterGroup group = esRestClient.getClusterGroup(esIndexInfo.getClusterName());
+        if (ObjectUtils.isEmpty(group)) {
+            return callback.doWithClient(esRestClient.getClient(esIndexInfo.getClusterName()));
+        }
+
+        T result = null;
+        for (String member : group.getMembers()) {
+            T memberResult = callback.doWithClient(esRestClient.getClient(member));
+            if (member.equals(group.getPrimary())) {
+                result = memberResult;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 执行读请求
+     * 普通集群直接读取；集群组按读路由策略选择成员，成员不可用时切换到下一个成员
+     *
+     * @param esIndexInfo 索引信息
+     * @param callback    客户端回调
+     * @return 执行结果
+     */
+    private <T> T executeRead(EsIndexInfo esIndexInfo, EsClientCallback<T> callback) throws IOException {
+        EsClusterGroup group = esRestClient.getClusterGroup(esIndexInfo.getClusterName());
+        if (ObjectUtils.isEmpty(group)) {
+            return callback.doWithClient(esRestClient.getClient(esIndexInfo.getClusterName()));
+        }
+
+        IOException lastException = null;
+        for (String member : group.readOrder()) {
+            long start = System.currentTimeMillis();
+            group.onRequestStart(member);
+            try {
+                T result = callback.doWithClient(esRestClient.getClient(member));
+                group.onRequestSuccess(member, System.currentTimeMillis() - start);
+                return result;
+            } catch (ElasticsearchStatusException e) {
+                // 4xx 为请求本身的问题，切换成员无意义
+                if (e.status().getStatus() < 500 && e.status() != RestStatus.TOO_MANY_REQUESTS) {
+                    group.onRequestSuccess(member, System.currentTimeMillis() - start);
+                    throw e;
+                }
+                group.onRequestFailure(member);
+                lastException = new IOException(e);
+                log.warn("Read from cluster: {} of group: {} failed, trying next member", member, group.getGroupName(), e);
+            } catch (IOException | RuntimeException e) {
+                group.onRequestFailure(member);
+                lastException = e instanceof IOException ? (IOException) e : new IOException(e);
+                log.warn("Read from cluster: {} of group: {} failed, trying next member", member, group.getGroupName(), e);
+            }
+        }
+        throw lastException;
+    }
+
+    /**
+     * 在主集群上执行请求，集群组固定使用主集群
+     */
+    private <T> T executeOnPrimary(EsIndexInfo esIndexInfo, EsClientCallback<T> callback) throws IOException {
+        return callback.doWithClient(esRestClient.getClient(esRestClient.resolvePrimary(esIndexInfo.getClusterName())));
+    }
+
+    // ==================== 导出与导入 ====================
+
+    /**
+     * 导出索引到本地段文件，用于环境数据准备与备份
+     * 文件为 bulk 格式的 NDJSON（可 gzip 压缩），每个切片一组文件，文件名为 {索引}-{切片}-{序号}.ndjson[.gz]；
+     * 集群组从主集群导出
+     *
+     * @param esIndexInfo 索引信息
+     * @param directory   输出目录，不存在时创建
+     * @param options     导出选项，为空时使用默认值
+     * @return 导出结果，失败时返回 null
+     */
+    public EsDumpResult exportIndex(EsIndexInfo esIndexInfo, Path directory, EsDumpOptions options) {
+        try {
+            String clusterName = esRestClient.resolvePrimary(esIndexInfo.getClusterName());
+            EsDumpResult result = new EsDumpExporter(esRestClient.getClient(clusterName), esRestClient.getRequestOptions(clusterName),
+                    esIndexInfo.getIndexName(), directory, options == null ? new EsDumpOptions() : options).run();
+            log.info("Exported {} documents of index: {} to {} files in {} ms",
+                    result.getDocs(), esIndexInfo.getIndexName(), result.getFiles(), result.getTookMillis());
+            return result;
+        } catch (Exception e) {
+            log.error("Failed to export index: {} to {}", esIndexInfo.getIndexName(), directory, e);
+            return null;
+        }
+    }
+
+    /**
+     * 从本地段文件导入索引
+     * 段文件按字节直接作为 bulk 请求体发送，不解析文档，多个文件并行；集群组依次导入全部成员。
+     * 大量导入前建议先用 {@link #beginBulkLoad} 关闭刷新与副本
+     *
+     * @param esIndexInfo 目标索引信息，文档写入该索引（与导出时的索引名称无关）
+     * @param directory   段文件所在目录
+     * @param options     导入选项，为空时使用默认值
+     * @return 主集群的导入结果，失败时返回 null
+     */
+    public EsDumpResult importIndex(EsIndexInfo esIndexInfo, Path directory, EsDumpOptions options) {
+        try {
+            List<Path> files = EsDumpImporter.listSegments(directory);
+            EsDumpOptions dumpOptions = options == null ? new EsDumpOptions() : options;
+            EsDumpResult result = executeAdmin(esIndexInfo, client -> new EsDumpImporter(client.getLowLevelClient(), COMMON_OPTIONS,
+                    esIndexInfo.getIndexName(), files, dumpOptions).run());
+            log.info("Imported {} documents from {} files into index: {} in {} ms, {} failed",
+                    result.getDocs(), result.getFiles(), esIndexInfo.getIndexName(), result.getTookMillis(), result.getFailedDocs());
+            return result;
+        } catch (Exception e) {
+            log.error("Failed to import index: {} from {}", esIndexInfo.getIndexName(), directory, e);
+            return null;
+        }
+    }
+
+    // ==================== 请求录制 ====================
+
+    /**
+     * 开始录制请求，已在录制时先停止之前的录制
+     * 录制搜索、按id读取、计数与写入请求（不含滚动查询与后台任务），用于 {@link EsTrafficReplayer} 离线回放压测
+     *
+     * @param file       录制文件（gzip 压缩的 NDJSON），已存在时覆盖
+     * @param sampleRate 采样率，0~1
+     * @return 是否成功开始
+     */
+    public boolean startTrafficRecording(Path file, double sampleRate) {
+        try {
+            EsTrafficRecorder recorder = new EsTrafficRecorder(file, sampleRate);
+            EsTrafficRecorder previous = trafficRecorder;
+            trafficRecorder = recorder;
+            if (previous != null) {
+                previous.close();
+            }
+            log.info("Started traffic recording to: {}, sample rate: {}", file, recorder.getSampleRate());
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to start traffic recording to: {}", file, e);
+            return false;
+        }
+    }
+
+    /**
+     * 停止录制，写完已采样的记录后关闭文件
+     */
+    public void stopTrafficRecording() {
+        EsTrafficRecorder recorder = trafficRecorder;
+        trafficRecorder = null;
+        if (recorder != null) {
+            recorder.close();
+        }
+    }
+
+    /**
+     * 关闭时写入合并缓冲中的操作，关闭内部线程池，并停止录制，避免录制文件末尾的压缩数据丢失
+     * 批量写入与联合搜索线程池中进行中的任务继续执行完毕，调度线程上的进度回调等定时任务直接停止
+     */
+    @PreDestroy
+    public void destroy() {
+        setWriteCoalescing(0, 0);
+        synchronized (coalesceLock) {
+            if (coalesceSender != null) {
+                coalesceSender.shutdown();
+            }
+        }
+        synchronized (this) {
+            if (bulkExecutor != null) {
+                bulkExecutor.shutdown();
+            }
+            if (federatedExecutor != null) {
+                federatedExecutor.shutdown();
+            }
+            if (taskScheduler != null) {
+                taskScheduler.shutdownNow();
+            }
+        }
+        stopTrafficRecording();
+    }
+
+    /**
+     * 获取当前的请求录制，未开启时返回 null
+     *
+     * @return 请求录制
+     */
+    public EsTrafficRecorder getTrafficRecorder() {
+        return trafficRecorder;
+    }
+
+    /**
+     * 执行请求，开启录制且被采样时记录请求内容与耗时
+     */
+    private <T> T recordTraffic(EsIndexInfo esIndexInfo, ActionRequest request, EsSingleFlight.Call<T> call) throws IOException {
+        EsTrafficRecorder recorder = trafficRecorder;
+        if (recorder == null || !recorder.sample()) {
+            return call.call();
+        }
+        long start = System.currentTimeMillis();
+        boolean success = false;
+        try {
+            T result = call.call();
+            success = true;
+            return result;
+        } finally {
+            try {
+                EsTrafficRecord record = EsTrafficRecord.from(request);
+                if (record != null) {
+                    recorder.record(record
+                            .setCluster(esIndexInfo.getClusterName())
+                            .setStartMillis(start)
+                            .setTookMillis(System.currentTimeMillis() - start)
+                            .setSuccess(success));
+                }
+            } catch (Exception e) {
+                log.debug("Failed to record request to index: {}", esIndexInfo.getIndexName(), e);
+            }
+        }
     }
 
     /**
@@ -442,10 +3720,19 @@ public class EsTemplate {
         return esRestClient.getClusterNames();
     }
 
+    /**
+     * 获取所有集群组名称
+     *
+     * @return 集群组名称列表
+     */
+    public List<String> getClusterGroupNames() {
+        return esRestClient.getClusterGroupNames();
+    }
+
     /**
      * 检查集群连接状态
      *
-     * @param clusterName 集群名称
+     * @param clusterName 集群名称或集群组名称
      * @return 是否连接
      */
     public boolean isClusterConnected(String clusterName) {
@@ -0,0 +1,344 @@
+package com.zsq.winter.es.service;
+
+import com.zsq.winter.es.client.EsRestClient;
+import com.zsq.winter.es.entity.EsDocData;
+import com.zsq.winter.es.entity.EsTimeSeriesIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.common.time.DateFormatter;
+import org.elasticsearch.common.time.DateFormatters;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 时序索引路由
+ * <p>
+ * 写入时根据文档时间计算目标索引，并在启用大小上限时按 _stats 结果滚动到下一代索引；
+ * 搜索时从查询的 must/filter 子句中提取时间字段的范围，只返回与该范围有交集的索引。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+@Slf4j
+class EsTimeSeriesRouter {
+
+    /**
+     * 未指定 format 时解析时间字符串使用的格式，与 date 字段的默认格式一致
+     */
+    private static final DateFormatter DEFAULT_FORMATTER = DateFormatter.forPattern("strict_date_optional_time||epoch_millis");
+
+    /**
+     * 滚动状态超过该数量时清理长时间未写入的时间段
+     */
+    private static final int MAX_TRACKED_PERIODS = 256;
+
+    private final EsRestClient esRestClient;
+
+    /**
+     * 每个时间段的当前代数，键为 集群|基础索引名
+     */
+    private final Map<String, Generation> generations = new ConcurrentHashMap<>();
+
+    EsTimeSeriesRouter(EsRestClient esRestClient) {
+        this.esRestClient = esRestClient;
+    }
+
+    /**
+     * 计算文档的写入索引
+     */
+    String resolveWriteIndex(EsTimeSeriesIndex timeSeriesIndex, EsDocData esDocData) {
+        long timestamp = extractTimestamp(timeSeriesIndex, esDocData);
+        String baseIndex = baseIndexName(timeSeriesIndex, timestamp);
+        if (!timeSeriesIndex.isRolloverEnabled()) {
+            return baseIndex;
+        }
+
+        String key = timeSeriesIndex.getClusterName() + "|" + baseIndex;
+        Generation generation = generations.computeIfAbsent(key, k -> new Generation());
+        long now = System.currentTimeMillis();
+        if (now - generation.lastCheckMillis >= timeSeriesIndex.getRolloverCheckIntervalMs()) {
+            // 检查涉及网络 I/O，使用 ReentrantLock 而非 synchronized，避免虚拟线程被固定
+            generation.lock.lock();
+            try {
+                if (now - generation.lastCheckMillis >= timeSeriesIndex.getRolloverCheckIntervalMs()) {
+                    checkRollover(timeSeriesIndex, baseIndex, generation);
+                    generation.lastCheckMillis = now;
+                }
+            } finally {
+                generation.lock.unlock();
+            }
+        }
+        if (generations.size() > MAX_TRACKED_PERIODS) {
+            generations.values().removeIf(g -> now - g.lastCheckMillis > ChronoUnit.DAYS.getDuration().toMillis());
+        }
+        return indexName(baseIndex, generation.current);
+    }
+
+    /**
+     * 计算查询需要搜索的索引
+     *
+     * @return 索引名称或通配符列表；时间范围为空（起点晚于终点或多个范围没有交集）时返回空列表
+     */
+    List<String> resolveSearchIndices(EsTimeSeriesIndex timeSeriesIndex, QueryBuilder query) {
+        List<String> indices = new ArrayList<>();
+        long[] range = query == null ? null : extractRange(timeSeriesIndex, query);
+        if (range == null) {
+            indices.add(timeSeriesIndex.getPrefix() + "-*");
+            return indices;
+        }
+        if (range[0] > range[1]) {
+            return indices;
+        }
+
+        ZoneId zoneId = ZoneId.of(timeSeriesIndex.getZoneId());
+        ChronoUnit unit = unitOf(timeSeriesIndex.getGranularity());
+        ZonedDateTime period = truncate(Instant.ofEpochMilli(range[0]).atZone(zoneId), unit);
+        ZonedDateTime end = Instant.ofEpochMilli(range[1]).atZone(zoneId);
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(timeSeriesIndex.getGranularity().getPattern());
+        while (!period.isAfter(end)) {
+            if (indices.size() >= timeSeriesIndex.getMaxSearchPeriods()) {
+                indices.clear();
+                indices.add(timeSeriesIndex.getPrefix() + "-*");
+                return indices;
+            }
+            String baseIndex = timeSeriesIndex.getPrefix() + "-" + formatter.format(period);
+            // 滚动出的后续代索引以基础索引名为前缀
+            indices.add(timeSeriesIndex.isRolloverEnabled() ? baseIndex + "*" : baseIndex);
+            period = period.plus(1, unit);
+        }
+        return indices;
+    }
+
+    /**
+     * 检查当前代索引是否超过上限
+     */
+    @SuppressWarnings("unchecked")
+    private void checkRollover(EsTimeSeriesIndex timeSeriesIndex, String baseIndex, Generation generation) {
+        try {
+            RestClient lowLevelClient = esRestClient.getClient(esRestClient.resolvePrimary(timeSeriesIndex.getClusterName()))
+                    .getLowLevelClient();
+            Request request = new Request("GET", "/" + baseIndex + "*/_stats/docs,store");
+            Map<String, Object> body = EsServerTaskHandle.readMap(lowLevelClient.performRequest(request));
+            Map<String, Object> indices = (Map<String, Object>) body.get("indices");
+            if (indices == null || indices.isEmpty()) {
+                generation.current = 1;
+                return;
+            }
+
+            int latest = 0;
+            Map<String, Object> latestStats = null;
+            for (Map.Entry<String, Object> entry : indices.entrySet()) {
+                int number = generationOf(baseIndex, entry.getKey());
+                if (number > latest) {
+                    latest = number;
+                    latestStats = (Map<String, Object>) ((Map<String, Object>) entry.getValue()).get("primaries");
+                }
+            }
+            if (latest == 0) {
+                generation.current = 1;
+                return;
+            }
+            long docs = nestedLong(latestStats, "docs", "count");
+            long bytes = nestedLong(latestStats, "store", "size_in_bytes");
+            boolean full = (timeSeriesIndex.getMaxDocsPerIndex() > 0 && docs >= timeSeriesIndex.getMaxDocsPerIndex())
+                    || (timeSeriesIndex.getMaxSizeBytesPerIndex() > 0 && bytes >= timeSeriesIndex.getMaxSizeBytesPerIndex());
+            generation.current = full ? latest + 1 : latest;
+            if (full) {
+                log.info("Time series index {} reached its size cap ({} docs, {} bytes), rolling over to {}",
+                        indexName(baseIndex, latest), docs, bytes, indexName(baseIndex, generation.current));
+            }
+        } catch (Exception e) {
+            // 检查失败时继续写入当前代索引，下个检查周期重试
+            log.warn("Failed to check rollover of time series index: {}", baseIndex, e);
+        }
+    }
+
+    /**
+     * 从查询中提取时间字段的范围（毫秒，闭区间）
+     *
+     * @return 无法确定范围时返回 null
+     */
+    private long[] extractRange(EsTimeSeriesIndex timeSeriesIndex, QueryBuilder query) {
+        long[] range = new long[]{Long.MIN_VALUE, Long.MAX_VALUE};
+        if (!collectRange(timeSeriesIndex, query, range)) {
+            return null;
+        }
+        if (range[0] == Long.MIN_VALUE || range[1] == Long.MAX_VALUE) {
+            // 只有单侧边界时，无边界一侧无法列举时间段
+            return range[0] == Long.MIN_VALUE ? null : new long[]{range[0], Math.max(range[0], System.currentTimeMillis())};
+        }
+        return range;
+    }
+
+    /**
+     * 递归收集 must/filter 子句中的时间范围，多个范围取交集
+     *
+     * @return 是否找到时间范围
+     */
+    private boolean collectRange(EsTimeSeriesIndex timeSeriesIndex, QueryBuilder query, long[] range) {
+        if (query instanceof RangeQueryBuilder) {
+            RangeQueryBuilder rangeQuery = (RangeQueryBuilder) query;
+            if (!timeSeriesIndex.getTimestampField().equals(rangeQuery.fieldName())) {
+                return false;
+            }
+            ZoneId zoneId = rangeQuery.timeZone() == null ? ZoneId.of("UTC") : ZoneId.of(rangeQuery.timeZone());
+            DateFormatter formatter = rangeQuery.format() == null ? null : DateFormatter.forPattern(rangeQuery.format());
+            Long from = toMillis(rangeQuery.from(), formatter, zoneId, false);
+            Long to = toMillis(rangeQuery.to(), formatter, zoneId, true);
+            if ((rangeQuery.from() != null && from == null) || (rangeQuery.to() != null && to == null)) {
+                return false;
+            }
+            if (from != null) {
+                range[0] = Math.max(range[0], from);
+            }
+            if (to != null) {
+                range[1] = Math.min(range[1], to);
+            }
+            return from != null || to != null;
+        }
+        if (query instanceof ConstantScoreQueryBuilder) {
+            return collectRange(timeSeriesIndex, ((ConstantScoreQueryBuilder) query).innerQuery(), range);
+        }
+        if (query instanceof BoolQueryBuilder) {
+            BoolQueryBuilder boolQuery = (BoolQueryBuilder) query;
+            boolean found = false;
+            List<QueryBuilder> clauses = new ArrayList<>(boolQuery.must());
+            clauses.addAll(boolQuery.filter());
+            for (QueryBuilder clause : clauses) {
+                found |= collectRange(timeSeriesIndex, clause, range);
+            }
+            return found;
+        }
+        return false;
+    }
+
+    /**
+     * 将范围边界转换为毫秒，支持数字、日期对象、日期字符串与 now-1h 之类的日期表达式
+     *
+     * @param formatter 范围查询指定的格式，未指定时为 null：数字按毫秒时间戳处理，字符串按 date 字段的默认格式解析；
+     *                  指定时数字也按该格式解析，与服务端一致（如 epoch_second）
+     * @return 无法解析时返回 null
+     */
+    private static Long toMillis(Object value, DateFormatter formatter, ZoneId zoneId, boolean roundUp) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number && formatter == null) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        if (value instanceof Instant) {
+            return ((Instant) value).toEpochMilli();
+        }
+        if (value instanceof ZonedDateTime) {
+            return ((ZonedDateTime) value).toInstant().toEpochMilli();
+        }
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).atZone(zoneId).toInstant().toEpochMilli();
+        }
+        try {
+            return (formatter == null ? DEFAULT_FORMATTER : formatter).toDateMathParser()
+                    .parse(value.toString(), System::currentTimeMillis, roundUp, zoneId).toEpochMilli();
+        } catch (Exception e) {
+            log.debug("Unable to parse time range bound: {}", value, e);
+            return null;
+        }
+    }
+
+    /**
+     * 提取文档时间，缺失或无法解析时使用当前时间
+     */
+    private static long extractTimestamp(EsTimeSeriesIndex timeSeriesIndex, EsDocData esDocData) {
+        Object value = esDocData.getData() == null ? null : esDocData.getData().get(timeSeriesIndex.getTimestampField());
+        if (value instanceof TemporalAccessor && !(value instanceof Instant)
+                && !(value instanceof ZonedDateTime) && !(value instanceof LocalDateTime)) {
+            value = DateFormatters.from((TemporalAccessor) value).toInstant();
+        }
+        Long timestamp = toMillis(value, null, ZoneId.of(timeSeriesIndex.getZoneId()), false);
+        if (timestamp == null) {
+            log.debug("Document {} has no valid {}, using current time", esDocData.getDocId(), timeSeriesIndex.getTimestampField());
+            return System.currentTimeMillis();
+        }
+        return timestamp;
+    }
+
+    private static String baseIndexName(EsTimeSeriesIndex timeSeriesIndex, long timestamp) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern(timeSeriesIndex.getGranularity().getPattern());
+        return timeSeriesIndex.getPrefix() + "-" + formatter.format(
+                Instant.ofEpochMilli(timestamp).atZone(ZoneId.of(timeSeriesIndex.getZoneId())));
+    }
+
+    private static String indexName(String baseIndex, int generation) {
+        return generation <= 1 ? baseIndex : String.format("%s-%06d", baseIndex, generation);
+    }
+
+    /**
+     * 从索引名称解析代数，不属于该时间段时返回 0
+     */
+    private static int generationOf(String baseIndex, String indexName) {
+        if (indexName.equals(baseIndex)) {
+            return 1;
+        }
+        String suffix = indexName.startsWith(baseIndex + "-") ? indexName.substring(baseIndex.length() + 1) : "";
+        if (suffix.isEmpty() || !suffix.chars().allMatch(Character::isDigit)) {
+            return 0;
+        }
+        return Integer.parseInt(suffix);
+    }
+
+    private static ChronoUnit unitOf(EsTimeSeriesIndex.Granularity granularity) {
+        switch (granularity) {
+            case HOUR:
+                return ChronoUnit.HOURS;
+            case MONTH:
+                return ChronoUnit.MONTHS;
+            default:
+                return ChronoUnit.DAYS;
+        }
+    }
+
+    private static ZonedDateTime truncate(ZonedDateTime time, ChronoUnit unit) {
+        if (unit == ChronoUnit.MONTHS) {
+            return time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+        }
+        return time.truncatedTo(unit);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long nestedLong(Map<String, Object> stats, String section, String field) {
+        Object sectionValue = stats == null ? null : stats.get(section);
+        Object value = sectionValue instanceof Map ? ((Map<String, Object>) sectionValue).get(field) : null;
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    /**
+     * 时间段的滚动状态
+     */
+    private static class Generation {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private volatile int current = 1;
+
+        private volatile long lastCheckMillis = 0;
+    }
+}
@@ -0,0 +1,209 @@
+package com.zsq.winter.es.service;
+
+import com.zsq.winter.es.entity.EsIndexInfo;
+import org.elasticsearch.common.xcontent.XContentHelper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 写入合并缓冲
+ * <p>
+ * 按 集群|索引|路由|文档id 缓存待写入的局部更新与删除，窗口内同一文档的多次局部更新按服务端 doc 更新的规则合并
+ * （对象字段递归合并，其余字段后写覆盖），删除覆盖之前的更新；删除之后的局部更新在服务端本会因文档不存在而失败，因此丢弃。
+ * 缓冲中的写入由 {@link EsTemplate} 定时取出并通过一次批量请求写入。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+public class EsWriteCoalescer {
+
+    /**
+     * 待写入操作
+     */
+    static final class PendingWrite {
+
+        private final EsIndexInfo esIndexInfo;
+
+        private final String docId;
+
+        private final String routing;
+
+        /**
+         * 局部更新内容，为 null 表示删除
+         */
+        private Map<String, Object> data;
+
+        private PendingWrite(EsIndexInfo esIndexInfo, String docId, String routing, Map<String, Object> data) {
+            this.esIndexInfo = esIndexInfo;
+            this.docId = docId;
+            this.routing = routing;
+            this.data = data;
+        }
+
+        EsIndexInfo getEsIndexInfo() {
+            return esIndexInfo;
+        }
+
+        String getDocId() {
+            return docId;
+        }
+
+        String getRouting() {
+            return routing;
+        }
+
+        Map<String, Object> getData() {
+            return data;
+        }
+
+        boolean isDelete() {
+            return data == null;
+        }
+    }
+
+    private final ConcurrentHashMap<String, PendingWrite> pending = new ConcurrentHashMap<>();
+
+    private final long windowMillis;
+
+    private final int maxPending;
+
+    private final LongAdder receivedCount = new LongAdder();
+
+    private final LongAdder coalescedCount = new LongAdder();
+
+    private final LongAdder flushedCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    EsWriteCoalescer(long windowMillis, int maxPending) {
+        this.windowMillis = windowMillis;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * 缓存局部更新
+     *
+     * @return 缓冲中的文档数是否已达到上限，达到时应立即写入
+     */
+    boolean update(EsIndexInfo esIndexInfo, String docId, String routing, Map<String, Object> data) {
+        receivedCount.increment();
+        pending.compute(key(esIndexInfo, docId, routing), (key, existing) -> {
+            if (existing == null) {
+                return new PendingWrite(esIndexInfo, docId, routing, copy(data));
+            }
+            coalescedCount.increment();
+            if (!existing.isDelete()) {
+                XContentHelper.update(existing.data, copy(data), false);
+            }
+            return existing;
+        });
+        return pending.size() >= maxPending;
+    }
+
+    /**
+     * 缓存删除，覆盖之前的更新
+     *
+     * @return 缓冲中的文档数是否已达到上限，达到时应立即写入
+     */
+    boolean delete(EsIndexInfo esIndexInfo, String docId, String routing) {
+        receivedCount.increment();
+        pending.compute(key(esIndexInfo, docId, routing), (key, existing) -> {
+            if (existing == null) {
+                return new PendingWrite(esIndexInfo, docId, routing, null);
+            }
+            coalescedCount.increment();
+            existing.data = null;
+            return existing;
+        });
+        return pending.size() >= maxPending;
+    }
+
+    /**
+     * 取出单个文档的待写入操作，用于不经缓冲的写入之前保证顺序
+     */
+    PendingWrite remove(EsIndexInfo esIndexInfo, String docId, String routing) {
+        return pending.isEmpty() ? null : pending.remove(key(esIndexInfo, docId, routing));
+    }
+
+    /**
+     * 取出全部待写入操作
+     */
+    List<PendingWrite> drain() {
+        List<PendingWrite> writes = new ArrayList<>();
+        for (String key : pending.keySet()) {
+            PendingWrite write = pending.remove(key);
+            if (write != null) {
+                writes.add(write);
+            }
+        }
+        return writes;
+    }
+
+    void onFlushed(int count, int failed) {
+        flushedCount.add(count - failed);
+        failedCount.add(failed);
+    }
+
+    private static String key(EsIndexInfo esIndexInfo, String docId, String routing) {
+        return esIndexInfo.getClusterName() + "|" + esIndexInfo.getIndexName() + "|" + (routing == null ? "" : routing) + "|" + docId;
+    }
+
+    /**
+     * 复制调用方的数据，合并时会修改其中的对象字段
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> copy(Map<String, Object> data) {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        if (data != null) {
+            data.forEach((field, value) -> copy.put(field, value instanceof Map ? copy((Map<String, Object>) value) : value));
+        }
+        return copy;
+    }
+
+    /**
+     * 合并窗口（毫秒）
+     */
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * 缓冲中的文档数
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * 收到的写入次数
+     */
+    public long getReceivedCount() {
+        return receivedCount.sum();
+    }
+
+    /**
+     * 被合并、未单独发送的写入次数
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    /**
+     * 已成功写入的合并后操作数
+     */
+    public long getFlushedCount() {
+        return flushedCount.sum();
+    }
+
+    /**
+     * 写入失败的合并后操作数
+     */
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+}
@@ -0,0 +1,114 @@
+package com.zsq.winter.es.spool;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * 暂存的写操作记录
+ *
+ * @author dadandiaoming
+ */
+@Data
+@Accessors(chain = true)
+public class EsSpoolRecord {
+
+    /**
+     * 操作类型
+     */
+    public enum Op {
+        /**
+         * 索引（全量写入）
+         */
+        INDEX,
+        /**
+         * 局部更新
+         */
+        UPDATE,
+        /**
+         * 删除
+         */
+        DELETE
+    }
+
+    private Op op;
+
+    private String index;
+
+    private String id;
+
+    private String routing;
+
+    private Map<String, Object> source;
+
+    public static EsSpoolRecord index(String index, String id, Map<String, Object> source) {
+        return new EsSpoolRecord().setOp(Op.INDEX).setIndex(index).setId(id).setSource(source);
+    }
+
+    public static EsSpoolRecord update(String index, String id, Map<String, Object> source) {
+        return new EsSpoolRecord().setOp(Op.UPDATE).setIndex(index).setId(id).setSource(source);
+    }
+
+    public static EsSpoolRecord delete(String index, String id) {
+        return new EsSpoolRecord().setOp(Op.DELETE).setIndex(index).setId(id);
+    }
+
+    /**
+     * 转换为写请求
+     */
+    public DocWriteRequest<?> toWriteRequest() {
+        switch (op) {
+            case INDEX:
+                return new IndexRequest(index).id(id).routing(routing).source(source);
+            case UPDATE:
+                return new UpdateRequest().index(index).id(id).routing(routing).doc(source);
+            default:
+                return new DeleteRequest().index(index).id(id).routing(routing);
+        }
+    }
+
+    /**
+     * 序列化为 JSON
+     */
+    byte[] toBytes() throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder()
+                .startObject()
+                .field("op", op.name())
+                .field("index", index)
+                .field("id", id);
+        if (routing != null) {
+            builder.field("routing", routing);
+        }
+        if (source != null) {
+            builder.field("source", source);
+        }
+        builder.endObject();
+        return BytesReference.toBytes(BytesReference.bytes(builder));
+    }
+
+    /**
+     * 从 JSON 反序列化
+     */
+    @SuppressWarnings("unchecked")
+    static EsSpoolRecord fromBytes(byte[] bytes) {
+        Map<String, Object> map = XContentHelper.convertToMap(new BytesArray(bytes), false, XContentType.JSON).v2();
+        return new EsSpoolRecord()
+                .setOp(Op.valueOf((String) map.get("op")))
+                .setIndex((String) map.get("index"))
+                .setId((String) map.get("id"))
+                .setRouting((String) map.get("routing"))
+                .setSource((Map<String, Object>) map.get("source"));
+    }
+}
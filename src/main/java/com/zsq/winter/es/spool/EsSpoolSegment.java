@@ -0,0 +1,162 @@
+package com.zsq.winter.es.spool;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 暂存段文件
+ * <p>
+ * 固定大小、内存映射的追加日志。每条记录的格式为 [长度(int)][CRC32(int)][内容]，
+ * 长度为 0 表示已写入数据的末尾。打开时从头扫描，遇到校验失败的记录（写入中途崩溃）即视为末尾。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+@Slf4j
+class EsSpoolSegment {
+
+    /**
+     * 记录头长度：长度 + CRC32
+     */
+    static final int HEADER_SIZE = 8;
+
+    private final long sequence;
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final int capacity;
+
+    /**
+     * 写入位置，追加时在写锁内更新；读取方只读取该位置之前的数据
+     */
+    private volatile int writePosition;
+
+    private EsSpoolSegment(long sequence, Path path, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.sequence = sequence;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+    }
+
+    /**
+     * 打开或创建段文件，并扫描确定写入位置
+     */
+    static EsSpoolSegment open(Path path, long sequence, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        EsSpoolSegment segment = new EsSpoolSegment(sequence, path, channel, buffer, capacity);
+        segment.writePosition = segment.scanEnd();
+        return segment;
+    }
+
+    /**
+     * 扫描已写入数据的末尾
+     */
+    private int scanEnd() {
+        int position = 0;
+        while (true) {
+            byte[] payload = readAt(position, capacity);
+            if (payload == null) {
+                return position;
+            }
+            position += HEADER_SIZE + payload.length;
+        }
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @return 空间不足时返回 false
+     */
+    boolean append(byte[] payload) {
+        int position = writePosition;
+        if (position + HEADER_SIZE + payload.length > capacity) {
+            return false;
+        }
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload, 0, payload.length);
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + HEADER_SIZE);
+        view.put(payload);
+        buffer.putInt(position + 4, (int) crc32.getValue());
+        // 最后写入长度，保证读取方看到长度时内容已完整
+        buffer.putInt(position, payload.length);
+        writePosition = position + HEADER_SIZE + payload.length;
+        return true;
+    }
+
+    /**
+     * 读取指定位置的记录
+     *
+     * @return 记录内容，到达末尾时返回 null
+     */
+    byte[] read(int position) {
+        return readAt(position, writePosition);
+    }
+
+    private byte[] readAt(int position, int limit) {
+        if (position + HEADER_SIZE > limit) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + HEADER_SIZE + length > limit) {
+            return null;
+        }
+        int checksum = buffer.getInt(position + 4);
+        byte[] payload = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + HEADER_SIZE);
+        view.get(payload);
+        CRC32 crc32 = new CRC32();
+        crc32.update(payload, 0, payload.length);
+        if ((int) crc32.getValue() != checksum) {
+            log.warn("Corrupted spool record at {}:{}, treating it as end of segment", path, position);
+            return null;
+        }
+        return payload;
+    }
+
+    /**
+     * 刷盘
+     */
+    void force() {
+        buffer.force();
+    }
+
+    void close() {
+        try {
+            force();
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close spool segment: {}", path, e);
+        }
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    int getWritePosition() {
+        return writePosition;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,483 @@
+package com.zsq.winter.es.spool;
+
+import com.zsq.winter.es.client.EsRestClient;
+import com.zsq.winter.es.entity.EsConfigProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 集群写入暂存
+ * <p>
+ * 集群不可用或拒绝写入时，写操作被追加到本地磁盘上由内存映射段文件组成的预写日志；
+ * 后台线程定期检查积压，集群恢复后按追加顺序以 bulk 批量重放，并记录重放位置。
+ * 已完全重放的段文件会被删除（压缩），磁盘占用受 maxDiskBytes 限制。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+@Slf4j
+public class EsWriteSpool {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final String clusterName;
+
+    private final EsConfigProperties.EsSpoolConfig config;
+
+    private final EsRestClient esRestClient;
+
+    private final Path directory;
+
+    /**
+     * 段文件，按序号排列
+     */
+    private final TreeMap<Long, EsSpoolSegment> segments = new TreeMap<>();
+
+    /**
+     * 追加与段切换使用的锁
+     */
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    /**
+     * 重放锁，保证同一时间只有一个重放过程
+     */
+    private final ReentrantLock replayLock = new ReentrantLock();
+
+    /**
+     * 重放位置：段序号与段内偏移
+     */
+    private volatile long readSequence;
+
+    private volatile int readPosition;
+
+    private final AtomicLong backlogRecords = new AtomicLong();
+
+    private final AtomicLong appendedRecords = new AtomicLong();
+
+    private final AtomicLong replayedRecords = new AtomicLong();
+
+    private final AtomicLong rejectedRecords = new AtomicLong();
+
+    private final AtomicLong droppedRecords = new AtomicLong();
+
+    private ScheduledExecutorService replayScheduler;
+
+    public EsWriteSpool(String clusterName, EsConfigProperties.EsSpoolConfig config, EsRestClient esRestClient) {
+        this.clusterName = clusterName;
+        this.config = config;
+        this.esRestClient = esRestClient;
+        this.directory = Paths.get(config.getDirectory(), clusterName);
+    }
+
+    /**
+     * 打开已有段文件、恢复重放位置并启动后台重放
+     */
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                long sequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                segments.put(sequence, EsSpoolSegment.open(path, sequence, (int) Files.size(path)));
+            }
+        }
+        loadCheckpoint();
+        if (segments.isEmpty()) {
+            rollSegment(readSequence);
+        }
+        backlogRecords.set(countBacklog());
+        if (backlogRecords.get() > 0) {
+            log.info("Spool of cluster: {} recovered {} pending records", clusterName, backlogRecords.get());
+        }
+
+        replayScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "es-spool-replay-" + clusterName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        replayScheduler.scheduleWithFixedDelay(this::replaySafely,
+                config.getReplayIntervalMs(), config.getReplayIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 是否存在未重放的记录；存在积压时新的写入也应进入暂存以保证顺序
+     */
+    public boolean hasBacklog() {
+        return backlogRecords.get() > 0;
+    }
+
+    /**
+     * 追加记录
+     *
+     * @param records 写操作记录
+     * @return 是否已全部暂存；超出磁盘上限时返回 false
+     */
+    public boolean append(List<EsSpoolRecord> records) {
+        List<byte[]> payloads = new ArrayList<>(records.size());
+        try {
+            for (EsSpoolRecord record : records) {
+                payloads.add(record.toBytes());
+            }
+        } catch (IOException e) {
+            log.error("Failed to serialize spool records of cluster: {}", clusterName, e);
+            return false;
+        }
+
+        appendLock.lock();
+        try {
+            // 写入前按实际布局校验整批记录：单条不超过段大小，切换段时计入旧段末尾无法使用的空间，
+            // 任一条不满足时整批拒绝，不写入任何记录
+            String rejection = checkCapacity(payloads);
+            if (rejection != null) {
+                rejectedRecords.addAndGet(payloads.size());
+                log.error("Spool of cluster: {} rejected {} records: {}", clusterName, payloads.size(), rejection);
+                return false;
+            }
+            for (byte[] payload : payloads) {
+                EsSpoolSegment segment = segments.lastEntry().getValue();
+                if (!segment.append(payload)) {
+                    segment.force();
+                    rollSegment(segment.getSequence() + 1).append(payload);
+                }
+                backlogRecords.incrementAndGet();
+                appendedRecords.incrementAndGet();
+            }
+            if (Boolean.TRUE.equals(config.getSyncOnAppend())) {
+                segments.lastEntry().getValue().force();
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("Failed to append to spool of cluster: {}", clusterName, e);
+            return false;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * 按追加时的段切换规则模拟整批记录的写入位置
+     *
+     * @return 无法全部暂存的原因，可以全部暂存时返回 null
+     */
+    private String checkCapacity(List<byte[]> payloads) {
+        EsSpoolSegment current = segments.lastEntry().getValue();
+        long position = current.getWritePosition();
+        long capacity = current.getCapacity();
+        long segmentCount = segments.size();
+        for (byte[] payload : payloads) {
+            long size = EsSpoolSegment.HEADER_SIZE + payload.length;
+            if (size > config.getSegmentSizeBytes()) {
+                return "record of " + payload.length + " bytes exceeds segment size of " + config.getSegmentSizeBytes() + " bytes";
+            }
+            if (position + size > capacity) {
+                segmentCount++;
+                if (segmentCount * config.getSegmentSizeBytes() > config.getMaxDiskBytes()) {
+                    return "disk quota of " + config.getMaxDiskBytes() + " bytes exceeded";
+                }
+                position = 0;
+                capacity = config.getSegmentSizeBytes();
+            }
+            position += size;
+        }
+        return null;
+    }
+
+    private EsSpoolSegment rollSegment(long sequence) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+        EsSpoolSegment segment = EsSpoolSegment.open(path, sequence, config.getSegmentSizeBytes());
+        segments.put(sequence, segment);
+        return segment;
+    }
+
+    private void replaySafely() {
+        try {
+            while (hasBacklog() && replayOnce()) {
+                // 持续重放直到积压清空或集群再次不可用
+            }
+        } catch (Exception e) {
+            log.error("Failed to replay spool of cluster: {}", clusterName, e);
+        }
+    }
+
+    /**
+     * 重放一批记录
+     *
+     * @return 本次是否有进展
+     */
+    public boolean replayOnce() {
+        if (!replayLock.tryLock()) {
+            return false;
+        }
+        try {
+            List<EsSpoolRecord> records = new ArrayList<>();
+            List<long[]> positions = new ArrayList<>();
+            long sequence = readSequence;
+            int position = readPosition;
+            while (records.size() < config.getReplayBatchSize()) {
+                EsSpoolSegment segment = getSegment(sequence);
+                byte[] payload = segment == null ? null : segment.read(position);
+                if (payload == null) {
+                    Long next = nextSequence(sequence);
+                    if (next == null) {
+                        break;
+                    }
+                    sequence = next;
+                    position = 0;
+                    continue;
+                }
+                records.add(EsSpoolRecord.fromBytes(payload));
+                position += EsSpoolSegment.HEADER_SIZE + payload.length;
+                positions.add(new long[]{sequence, position});
+            }
+            if (records.isEmpty()) {
+                return false;
+            }
+
+            BulkRequest bulkRequest = new BulkRequest();
+            records.forEach(record -> bulkRequest.add(record.toWriteRequest()));
+            BulkResponse bulkResponse;
+            try {
+                bulkResponse = esRestClient.getClient(clusterName).bulk(bulkRequest, RequestOptions.DEFAULT);
+            } catch (Exception e) {
+                if (isRetryable(e)) {
+                    log.debug("Cluster: {} is still unavailable, {} records pending in spool", clusterName, backlogRecords.get());
+                    return false;
+                }
+                throw e;
+            }
+
+            // 重放到第一个被拒绝（429）的记录为止，其余失败视为不可重试并丢弃
+            int replayed = records.size();
+            BulkItemResponse[] items = bulkResponse.getItems();
+            for (int i = 0; i < items.length; i++) {
+                if (!items[i].isFailed()) {
+                    continue;
+                }
+                if (items[i].status() == RestStatus.TOO_MANY_REQUESTS) {
+                    replayed = i;
+                    break;
+                }
+                droppedRecords.incrementAndGet();
+                log.error("Dropped spooled {} of document: {} in index: {}, reason: {}",
+                        records.get(i).getOp(), items[i].getId(), items[i].getIndex(), items[i].getFailureMessage());
+            }
+            if (replayed == 0) {
+                return false;
+            }
+            long[] last = positions.get(replayed - 1);
+            advance(last[0], (int) last[1]);
+            backlogRecords.addAndGet(-replayed);
+            replayedRecords.addAndGet(replayed);
+            log.debug("Replayed {} spooled records to cluster: {}", replayed, clusterName);
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to replay spool of cluster: {}", clusterName, e);
+            return false;
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    /**
+     * 推进重放位置，删除已完全重放的段文件
+     */
+    private void advance(long sequence, int position) throws IOException {
+        readSequence = sequence;
+        readPosition = position;
+        saveCheckpoint();
+
+        appendLock.lock();
+        try {
+            while (segments.size() > 1 && segments.firstKey() < sequence) {
+                EsSpoolSegment segment = segments.pollFirstEntry().getValue();
+                segment.close();
+                Files.deleteIfExists(segment.getPath());
+                log.debug("Compacted spool segment: {}", segment.getPath());
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private EsSpoolSegment getSegment(long sequence) {
+        appendLock.lock();
+        try {
+            return segments.get(sequence);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private Long nextSequence(long sequence) {
+        appendLock.lock();
+        try {
+            return segments.higherKey(sequence);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private long countBacklog() {
+        long count = 0;
+        for (EsSpoolSegment segment : segments.tailMap(readSequence, true).values()) {
+            int position = segment.getSequence() == readSequence ? readPosition : 0;
+            byte[] payload;
+            while ((payload = segment.read(position)) != null) {
+                count++;
+                position += EsSpoolSegment.HEADER_SIZE + payload.length;
+            }
+        }
+        return count;
+    }
+
+    private void loadCheckpoint() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(checkpoint)) {
+            String[] parts = new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8).trim().split(" ");
+            readSequence = Long.parseLong(parts[0]);
+            readPosition = Integer.parseInt(parts[1]);
+        } else {
+            readSequence = segments.isEmpty() ? 0 : segments.firstKey();
+            readPosition = 0;
+        }
+    }
+
+    private void saveCheckpoint() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        Path tmp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.write(tmp, (readSequence + " " + readPosition).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 是否为可通过暂存重试的失败：连接异常、超时，或集群返回 429/502/503/504
+     */
+    public static boolean isRetryable(Throwable e) {
+        if (e instanceof ElasticsearchStatusException) {
+            return isRetryableStatus(((ElasticsearchStatusException) e).status().getStatus());
+        }
+        if (e instanceof ResponseException) {
+            return isRetryableStatus(((ResponseException) e).getResponse().getStatusLine().getStatusCode());
+        }
+        return e instanceof IOException;
+    }
+
+    private static boolean isRetryableStatus(int status) {
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * 关闭：停止重放并刷盘
+     */
+    public void close() {
+        if (replayScheduler != null) {
+            replayScheduler.shutdownNow();
+        }
+        appendLock.lock();
+        try {
+            segments.values().forEach(EsSpoolSegment::close);
+            segments.clear();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public String getClusterName() {
+        return clusterName;
+    }
+
+    /**
+     * 积压记录数
+     */
+    public long getBacklogRecords() {
+        return backlogRecords.get();
+    }
+
+    /**
+     * 积压字节数（近似值）
+     */
+    public long getBacklogBytes() {
+        appendLock.lock();
+        try {
+            long bytes = 0;
+            for (EsSpoolSegment segment : segments.tailMap(readSequence, true).values()) {
+                bytes += segment.getWritePosition() - (segment.getSequence() == readSequence ? readPosition : 0);
+            }
+            return bytes;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * 段文件占用的磁盘字节数
+     */
+    public long getDiskBytes() {
+        appendLock.lock();
+        try {
+            return segments.values().stream().mapToLong(EsSpoolSegment::getCapacity).sum();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * 段文件数
+     */
+    public int getSegmentCount() {
+        appendLock.lock();
+        try {
+            return segments.size();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public long getAppendedRecords() {
+        return appendedRecords.get();
+    }
+
+    public long getReplayedRecords() {
+        return replayedRecords.get();
+    }
+
+    /**
+     * 因磁盘上限被拒绝暂存的记录数
+     */
+    public long getRejectedRecords() {
+        return rejectedRecords.get();
+    }
+
+    /**
+     * 重放时因不可重试错误被丢弃的记录数
+     */
+    public long getDroppedRecords() {
+        return droppedRecords.get();
+    }
+}
@@ -0,0 +1,65 @@
+package com.zsq.winter.es.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starter 内部并行任务使用的线程工厂与执行器
+ * <p>
+ * Java 8 版本使用守护平台线程；在 JDK 21 及以上运行时，多版本 jar 中 META-INF/versions/21 下的同名类
+ * 改为每个任务一个虚拟线程，批量分发、切片滚动、多集群调用等阻塞 I/O 不再占用平台线程。
+ * 两个版本的公开方法必须保持一致。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+public final class EsExecutors {
+
+    private EsExecutors() {
+    }
+
+    /**
+     * 是否使用虚拟线程
+     */
+    public static boolean isVirtual() {
+        return false;
+    }
+
+    /**
+     * 创建线程工厂，线程名为 {namePrefix}-{序号}
+     *
+     * @param namePrefix 线程名前缀
+     * @return 线程工厂
+     */
+    public static ThreadFactory threadFactory(String namePrefix) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 创建并行任务执行器
+     *
+     * @param namePrefix 线程名前缀
+     * @param maxThreads 最大线程数，≤0 时按需创建线程；虚拟线程模式下为同时执行的任务数上限
+     * @return 执行器
+     */
+    public static ExecutorService newTaskExecutor(String namePrefix, int maxThreads) {
+        if (maxThreads <= 0) {
+            return Executors.newCachedThreadPool(threadFactory(namePrefix));
+        }
+        // 空闲线程超时后回收，与按需创建的线程池一致，不常驻
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory(namePrefix));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
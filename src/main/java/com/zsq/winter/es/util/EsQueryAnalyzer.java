@@ -0,0 +1,440 @@
+package com.zsq.winter.es.util;
+
+import com.zsq.winter.es.entity.EsQueryAnalysis;
+import com.zsq.winter.es.entity.EsQueryPolicy;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.Fuzziness;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.BoostingQueryBuilder;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.index.query.DisMaxQueryBuilder;
+import org.elasticsearch.index.query.FuzzyQueryBuilder;
+import org.elasticsearch.index.query.MatchQueryBuilder;
+import org.elasticsearch.index.query.NestedQueryBuilder;
+import org.elasticsearch.index.query.PrefixQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.QueryStringQueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.query.RegexpQueryBuilder;
+import org.elasticsearch.index.query.ScriptQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+import org.elasticsearch.index.query.WildcardQueryBuilder;
+import org.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder;
+import org.elasticsearch.search.SearchModule;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 查询分析器
+ * <p>
+ * 遍历搜索请求的查询树（包括 post_filter）、分页参数与聚合，估算相对成本并按 {@link EsQueryPolicy} 检查：
+ * 前导通配符、过长或以 .* 开头的正则、过大的模糊距离、过多的 terms 值与 bool 子句、过深的分页、过多的聚合桶与聚合层数。
+ * 改写模式下改写的是搜索源的副本（序列化后重新读取），调用方的查询对象不会被修改；无法改写的违规项使请求被拒绝，
+ * 此时不返回改写结果。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+public class EsQueryAnalyzer {
+
+    /**
+     * query_string 中以通配符开头的词项
+     */
+    private static final Pattern LEADING_WILDCARD_TERM = Pattern.compile("(^|[\\s:(\\[])[*?]");
+
+    /**
+     * 无法确定桶数的聚合（如 histogram）按该值估算成本
+     */
+    private static final int DEFAULT_AGG_BUCKETS = 100;
+
+    private final EsQueryPolicy policy;
+
+    private final boolean rewrite;
+
+    private final EsQueryAnalysis analysis = new EsQueryAnalysis();
+
+    private int boolClauses;
+
+    private boolean unrewritable;
+
+    private EsQueryAnalyzer(EsQueryPolicy policy, boolean rewrite) {
+        this.policy = policy;
+        this.rewrite = rewrite;
+    }
+
+    /**
+     * 按策略分析搜索请求，不修改 source
+     * 策略为改写模式时在副本上改写，执行了改写且未被拒绝时通过 {@link EsQueryAnalysis#getRewrittenSource()} 返回副本
+     *
+     * @param source 搜索源
+     * @param policy 策略
+     * @return 分析结果
+     */
+    public static EsQueryAnalysis analyze(SearchSourceBuilder source, EsQueryPolicy policy) {
+        if (policy.getAction() != EsQueryPolicy.Action.REWRITE) {
+            return analyze(source, policy, false);
+        }
+        SearchSourceBuilder copy = copy(source);
+        EsQueryAnalysis analysis = analyze(copy, policy, true);
+        if (!analysis.isRejected() && !analysis.getRewrites().isEmpty()) {
+            analysis.setRewrittenSource(copy);
+        }
+        return analysis;
+    }
+
+    /**
+     * 深拷贝搜索源，查询、聚合等子对象都是新的实例
+     */
+    private static SearchSourceBuilder copy(SearchSourceBuilder source) {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            source.writeTo(out);
+            try (StreamInput in = new NamedWriteableAwareStreamInput(out.bytes().streamInput(), RegistryHolder.REGISTRY)) {
+                return new SearchSourceBuilder(in);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to copy search source for rewriting", e);
+        }
+    }
+
+    /**
+     * 只分析不改写，用于提前检查用户输入的查询
+     *
+     * @param source 搜索源
+     * @param policy 策略
+     * @return 分析结果，rejected 表示按策略的处理方式会被拒绝
+     */
+    public static EsQueryAnalysis inspect(SearchSourceBuilder source, EsQueryPolicy policy) {
+        EsQueryAnalysis analysis = analyze(source, policy, false);
+        if (policy.getAction() == EsQueryPolicy.Action.REWRITE) {
+            // 只分析时不知道哪些可以改写，保守地按拒绝处理
+            analysis.setRejected(!analysis.isSafe());
+        }
+        return analysis;
+    }
+
+    private static EsQueryAnalysis analyze(SearchSourceBuilder source, EsQueryPolicy policy, boolean rewrite) {
+        EsQueryAnalyzer analyzer = new EsQueryAnalyzer(policy, rewrite);
+        analyzer.analyzeSource(source);
+        EsQueryAnalysis analysis = analyzer.analysis;
+        switch (policy.getAction()) {
+            case REJECT:
+                analysis.setRejected(!analysis.isSafe());
+                break;
+            case REWRITE:
+                analysis.setRejected(analyzer.unrewritable);
+                break;
+            default:
+                analysis.setRejected(false);
+        }
+        return analysis;
+    }
+
+    private void analyzeSource(SearchSourceBuilder source) {
+        QueryBuilder query = walk(source.query(), 1);
+        if (query != source.query()) {
+            source.query(query);
+        }
+        QueryBuilder postFilter = walk(source.postFilter(), 1);
+        if (postFilter != source.postFilter()) {
+            source.postFilter(postFilter);
+        }
+        if (boolClauses > policy.getMaxBoolClauses()) {
+            violation("bool clauses " + boolClauses + " exceed " + policy.getMaxBoolClauses(), false);
+        }
+
+        analyzePaging(source);
+
+        AggregatorFactories.Builder aggregations = source.aggregations();
+        if (aggregations != null) {
+            walkAggregations(aggregations.getAggregatorFactories(), 1, 1);
+        }
+
+        if (policy.getMaxCost() > 0 && analysis.getCost() > policy.getMaxCost()) {
+            violation(String.format("estimated cost %.1f exceeds %.1f", analysis.getCost(), policy.getMaxCost()), false);
+        }
+    }
+
+    private void analyzePaging(SearchSourceBuilder source) {
+        int from = Math.max(0, source.from());
+        int size = source.size() < 0 ? 10 : source.size();
+        int window = from + size;
+        cost(window / 100.0);
+        if (window <= policy.getMaxResultWindow()) {
+            return;
+        }
+        // 收回 from 会返回另一页的结果，改变查询语义，因此总是拒绝
+        violation("from + size " + window + " exceeds " + policy.getMaxResultWindow(), false);
+    }
+
+    /**
+     * 遍历查询树，返回改写后的节点（未改写时返回原节点）
+     */
+    private QueryBuilder walk(QueryBuilder query, double multiplier) {
+        if (query == null) {
+            return null;
+        }
+        if (query instanceof BoolQueryBuilder) {
+            BoolQueryBuilder bool = (BoolQueryBuilder) query;
+            cost(multiplier);
+            walkClauses(bool.must(), multiplier);
+            walkClauses(bool.filter(), multiplier);
+            walkClauses(bool.should(), multiplier);
+            walkClauses(bool.mustNot(), multiplier);
+            return query;
+        }
+        if (query instanceof ConstantScoreQueryBuilder) {
+            ConstantScoreQueryBuilder constantScore = (ConstantScoreQueryBuilder) query;
+            QueryBuilder inner = walk(constantScore.innerQuery(), multiplier);
+            if (inner == constantScore.innerQuery()) {
+                return query;
+            }
+            return new ConstantScoreQueryBuilder(inner).boost(constantScore.boost()).queryName(constantScore.queryName());
+        }
+        if (query instanceof DisMaxQueryBuilder) {
+            walkClauses(((DisMaxQueryBuilder) query).innerQueries(), multiplier);
+            return query;
+        }
+        if (query instanceof BoostingQueryBuilder) {
+            BoostingQueryBuilder boosting = (BoostingQueryBuilder) query;
+            QueryBuilder positive = walk(boosting.positiveQuery(), multiplier);
+            QueryBuilder negative = walk(boosting.negativeQuery(), multiplier);
+            if (positive == boosting.positiveQuery() && negative == boosting.negativeQuery()) {
+                return query;
+            }
+            return new BoostingQueryBuilder(positive, negative).negativeBoost(boosting.negativeBoost())
+                    .boost(boosting.boost()).queryName(boosting.queryName());
+        }
+        if (query instanceof NestedQueryBuilder) {
+            // nested 查询需要关联父子文档，成本按子查询加倍
+            return walkUnrebuildable(query, ((NestedQueryBuilder) query).query(), multiplier * 2);
+        }
+        if (query instanceof FunctionScoreQueryBuilder) {
+            FunctionScoreQueryBuilder functionScore = (FunctionScoreQueryBuilder) query;
+            cost(multiplier * 5 * functionScore.filterFunctionBuilders().length);
+            return walkUnrebuildable(query, functionScore.query(), multiplier);
+        }
+        return walkLeaf(query, multiplier);
+    }
+
+    private void walkClauses(List<QueryBuilder> clauses, double multiplier) {
+        boolClauses += clauses.size();
+        for (int i = 0; i < clauses.size(); i++) {
+            QueryBuilder clause = clauses.get(i);
+            QueryBuilder rewritten = walk(clause, multiplier);
+            if (rewritten != clause) {
+                clauses.set(i, rewritten);
+            }
+        }
+    }
+
+    /**
+     * 遍历无法重建的复合查询，子查询需要改写时按无法改写处理
+     */
+    private QueryBuilder walkUnrebuildable(QueryBuilder query, QueryBuilder inner, double multiplier) {
+        QueryBuilder rewritten = walk(inner, multiplier);
+        if (rewritten != inner) {
+            violation("cannot rewrite query inside " + query.getName(), false);
+        }
+        return query;
+    }
+
+    private QueryBuilder walkLeaf(QueryBuilder query, double multiplier) {
+        if (query instanceof TermQueryBuilder) {
+            cost(multiplier);
+        } else if (query instanceof TermsQueryBuilder) {
+            TermsQueryBuilder terms = (TermsQueryBuilder) query;
+            int count = terms.values() == null ? 0 : terms.values().size();
+            cost(multiplier * (1 + count * 0.01 + (terms.termsLookup() == null ? 0 : 5)));
+            if (count > policy.getMaxTermsCount()) {
+                violation("terms on " + terms.fieldName() + " has " + count + " values, exceeds " + policy.getMaxTermsCount(), false);
+            }
+        } else if (query instanceof RangeQueryBuilder) {
+            cost(multiplier * 2);
+        } else if (query instanceof WildcardQueryBuilder) {
+            return walkWildcard((WildcardQueryBuilder) query, multiplier);
+        } else if (query instanceof PrefixQueryBuilder) {
+            String value = ((PrefixQueryBuilder) query).value();
+            cost(multiplier * (5 + 20.0 / Math.max(1, value.length())));
+        } else if (query instanceof RegexpQueryBuilder) {
+            walkRegexp((RegexpQueryBuilder) query, multiplier);
+        } else if (query instanceof FuzzyQueryBuilder) {
+            walkFuzzy((FuzzyQueryBuilder) query, multiplier);
+        } else if (query instanceof MatchQueryBuilder) {
+            walkMatch((MatchQueryBuilder) query, multiplier);
+        } else if (query instanceof QueryStringQueryBuilder) {
+            walkQueryString((QueryStringQueryBuilder) query, multiplier);
+        } else if (query instanceof ScriptQueryBuilder) {
+            cost(multiplier * 50);
+        } else {
+            cost(multiplier * 2);
+        }
+        return query;
+    }
+
+    private QueryBuilder walkWildcard(WildcardQueryBuilder wildcard, double multiplier) {
+        String value = wildcard.value();
+        boolean leading = value.startsWith("*") || value.startsWith("?");
+        cost(multiplier * (leading ? 100 : 10));
+        if (!leading || policy.isAllowLeadingWildcard()) {
+            return wildcard;
+        }
+        // 只有 * 时等价于字段存在，可以改写；去掉前导通配符会改变匹配结果（*foo* 变为 foo*），只能拒绝
+        boolean matchesAll = value.replace("*", "").isEmpty();
+        violation("leading wildcard on " + wildcard.fieldName() + ": " + value, matchesAll);
+        if (!rewrite || !matchesAll) {
+            return wildcard;
+        }
+        analysis.getRewrites().add("wildcard " + value + " on " + wildcard.fieldName() + " -> exists");
+        return QueryBuilders.existsQuery(wildcard.fieldName()).boost(wildcard.boost()).queryName(wildcard.queryName());
+    }
+
+    private void walkRegexp(RegexpQueryBuilder regexp, double multiplier) {
+        String value = regexp.value();
+        cost(multiplier * 50);
+        if (!policy.isAllowLeadingWildcard() && (value.startsWith(".*") || value.startsWith(".+"))) {
+            violation("regexp on " + regexp.fieldName() + " starts with unbounded pattern: " + value, false);
+        }
+        if (policy.getMaxRegexpLength() > 0 && value.length() > policy.getMaxRegexpLength()) {
+            violation("regexp on " + regexp.fieldName() + " is " + value.length() + " chars, exceeds " + policy.getMaxRegexpLength(), false);
+        }
+    }
+
+    private void walkFuzzy(FuzzyQueryBuilder fuzzy, double multiplier) {
+        String value = String.valueOf(fuzzy.value());
+        int edits = fuzzy.fuzziness().asDistance(value);
+        cost(multiplier * 10 * (edits + 1));
+        if (edits > policy.getMaxFuzziness()) {
+            violation("fuzziness " + edits + " on " + fuzzy.fieldName() + " exceeds " + policy.getMaxFuzziness(), true);
+            if (rewrite) {
+                fuzzy.fuzziness(Fuzziness.fromEdits(policy.getMaxFuzziness()));
+                analysis.getRewrites().add("fuzziness on " + fuzzy.fieldName() + " -> " + policy.getMaxFuzziness());
+            }
+        }
+        if (edits > 0 && fuzzy.prefixLength() < policy.getMinFuzzyPrefixLength()) {
+            violation("fuzzy prefix length " + fuzzy.prefixLength() + " on " + fuzzy.fieldName()
+                    + " is below " + policy.getMinFuzzyPrefixLength(), true);
+            if (rewrite) {
+                fuzzy.prefixLength(policy.getMinFuzzyPrefixLength());
+                analysis.getRewrites().add("fuzzy prefix length on " + fuzzy.fieldName() + " -> " + policy.getMinFuzzyPrefixLength());
+            }
+        }
+    }
+
+    private void walkMatch(MatchQueryBuilder match, double multiplier) {
+        Fuzziness fuzziness = match.fuzziness();
+        if (fuzziness == null) {
+            cost(multiplier * 2);
+            return;
+        }
+        int edits = fuzziness.asDistance(String.valueOf(match.value()));
+        cost(multiplier * (2 + 10 * edits));
+        if (edits > policy.getMaxFuzziness()) {
+            violation("fuzziness " + edits + " on " + match.fieldName() + " exceeds " + policy.getMaxFuzziness(), true);
+            if (rewrite) {
+                match.fuzziness(Fuzziness.fromEdits(policy.getMaxFuzziness()));
+                analysis.getRewrites().add("fuzziness on " + match.fieldName() + " -> " + policy.getMaxFuzziness());
+            }
+        }
+        if (edits > 0 && match.prefixLength() < policy.getMinFuzzyPrefixLength()) {
+            violation("fuzzy prefix length " + match.prefixLength() + " on " + match.fieldName()
+                    + " is below " + policy.getMinFuzzyPrefixLength(), true);
+            if (rewrite) {
+                match.prefixLength(policy.getMinFuzzyPrefixLength());
+                analysis.getRewrites().add("fuzzy prefix length on " + match.fieldName() + " -> " + policy.getMinFuzzyPrefixLength());
+            }
+        }
+    }
+
+    private void walkQueryString(QueryStringQueryBuilder queryString, double multiplier) {
+        cost(multiplier * 10);
+        if (policy.isAllowLeadingWildcard() || Boolean.FALSE.equals(queryString.allowLeadingWildcard())
+                || !LEADING_WILDCARD_TERM.matcher(queryString.queryString()).find()) {
+            return;
+        }
+        cost(multiplier * 100);
+        violation("leading wildcard in query_string: " + queryString.queryString(), true);
+        if (rewrite) {
+            // 关闭后由服务端拒绝前导通配符，而不是展开全部词项
+            queryString.allowLeadingWildcard(false);
+            analysis.getRewrites().add("query_string allow_leading_wildcard -> false");
+        }
+    }
+
+    /**
+     * 遍历聚合树
+     *
+     * @param buckets 上层聚合桶数的乘积
+     */
+    private void walkAggregations(Collection<AggregationBuilder> aggregations, int depth, long buckets) {
+        if (aggregations.isEmpty()) {
+            return;
+        }
+        if (depth > policy.getMaxAggDepth()) {
+            violation("aggregations nested " + depth + " levels deep, exceeds " + policy.getMaxAggDepth(), false);
+        }
+        for (AggregationBuilder aggregation : aggregations) {
+            long size = DEFAULT_AGG_BUCKETS;
+            if (aggregation instanceof TermsAggregationBuilder) {
+                TermsAggregationBuilder terms = (TermsAggregationBuilder) aggregation;
+                size = terms.size();
+                if (size > policy.getMaxAggBuckets()) {
+                    violation("terms aggregation " + terms.getName() + " size " + size + " exceeds " + policy.getMaxAggBuckets(), true);
+                    if (rewrite) {
+                        terms.size(policy.getMaxAggBuckets());
+                        analysis.getRewrites().add("terms aggregation " + terms.getName() + " size -> " + policy.getMaxAggBuckets());
+                        size = policy.getMaxAggBuckets();
+                    }
+                }
+            } else if (aggregation instanceof CompositeAggregationBuilder) {
+                CompositeAggregationBuilder composite = (CompositeAggregationBuilder) aggregation;
+                size = composite.size();
+                if (size > policy.getMaxAggBuckets()) {
+                    violation("composite aggregation " + composite.getName() + " size " + size + " exceeds " + policy.getMaxAggBuckets(), true);
+                    if (rewrite) {
+                        composite.size(policy.getMaxAggBuckets());
+                        analysis.getRewrites().add("composite aggregation " + composite.getName() + " size -> " + policy.getMaxAggBuckets());
+                        size = policy.getMaxAggBuckets();
+                    }
+                }
+            }
+            long total = buckets * Math.max(1, size);
+            cost(total / 100.0);
+            walkAggregations(aggregation.getSubAggregations(), depth + 1, total);
+        }
+    }
+
+    private void cost(double value) {
+        analysis.setCost(analysis.getCost() + value);
+    }
+
+    private void violation(String message, boolean canRewrite) {
+        analysis.getViolations().add(message);
+        if (!canRewrite) {
+            unrewritable = true;
+        }
+    }
+
+    /**
+     * 反序列化查询与聚合所需的注册表，首次改写时创建
+     */
+    private static class RegistryHolder {
+
+        private static final NamedWriteableRegistry REGISTRY = new NamedWriteableRegistry(
+                new SearchModule(Settings.EMPTY, false, Collections.emptyList()).getNamedWriteables());
+    }
+}
@@ -127,6 +127,7 @@ public class QueryBuilderUtils {
      * <p>
      * <p><b>工作原理：</b>基于编辑距离（Levenshtein Distance）允许一定数量的字符误差（插入/删除/替换）进行近似匹配。</p>
      * <p><b>使用场景：</b>用户拼写错误容错、名称近似匹配、纠错搜索。</p>
+     * <p><b>注意：</b>编辑距离越大、前缀越短，需要展开的词项越多；可通过 {@link com.zsq.winter.es.entity.EsQueryPolicy} 限制。</p>
      * <p><b>示例：</b></p>
      * <pre>
      * // "fuxzy" 也可匹配到 "fuzzy"
@@ -146,6 +147,7 @@ public class QueryBuilderUtils {
      * <p>
      * <p><b>工作原理：</b>基于 Lucene 正则语法对未分词字段执行正则匹配，常用于 keyword 字段；性能取决于模式复杂度。</p>
      * <p><b>使用场景：</b>需要复杂模式匹配的场景，如代码/标识符/路径的规则校验。</p>
+     * <p><b>注意：</b>以 .* 开头的模式需要遍历字段的全部词项，不要直接使用用户输入。</p>
      * <p><b>示例：</b></p>
      * <pre>
      * // 匹配以 log-开头，结尾为数字的 keyword，如 log-001
@@ -165,6 +167,7 @@ public class QueryBuilderUtils {
      * <p>
      * <p><b>工作原理：</b>基于通配符模式匹配，'*' 表示任意长度字符，'?' 表示单个字符；在大数据量时可能较慢。</p>
      * <p><b>使用场景：</b>keyword 字段的模式匹配、后缀未知的轻度模糊检索。</p>
+     * <p><b>注意：</b>以 * 或 ? 开头的模式需要遍历字段的全部词项；拼接用户输入时先用 {@link #escapeWildcard(String)} 转义。</p>
      * <p><b>示例：</b></p>
      * <pre>
      * // 匹配以 "error-" 开头的 keyword：如 error-1, error-abc
@@ -179,11 +182,38 @@ public class QueryBuilderUtils {
         return QueryBuilders.wildcardQuery(field, value);
     }
 
+    /**
+     * 转义通配符表达式中的特殊字符（\、* 与 ?），用于把用户输入拼接到通配符查询中。
+     * <p><b>示例：</b></p>
+     * <pre>
+     * // 用户输入 "a*b" 只匹配字面值 a*b 开头的 keyword
+     * QueryBuilder qb = QueryBuilderUtils.wildcardQuery("tag.keyword", QueryBuilderUtils.escapeWildcard(input) + "*");
+     * </pre>
+     *
+     * @param value 原始文本
+     * @return 转义后的文本
+     */
+    public static String escapeWildcard(String value) {
+        if (value == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '*' || c == '?') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
     /**
      * 创建前缀查询（Prefix Query）。
      * <p>
      * <p><b>工作原理：</b>匹配以给定前缀开头的字符串，通常用于未分词字段；性能优于大范围 wildcard。</p>
-     * <p><b>使用场景：</b>前缀自动补全、按编号/编码前缀分组检索。</p>
+     * <p><b>使用场景：</b>按编号/编码前缀分组检索、小字段上的前缀匹配。</p>
+     * <p><b>注意：</b>大字段上需要展开大量词项，边输入边搜索请使用 {@link com.zsq.winter.es.service.EsTemplate#suggest}。</p>
      * <p><b>示例：</b></p>
      * <pre>
      * // 匹配 code 以 "ABC" 开头
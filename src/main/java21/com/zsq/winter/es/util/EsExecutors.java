@@ -0,0 +1,134 @@
+package com.zsq.winter.es.util;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starter 内部并行任务使用的线程工厂与执行器（JDK 21 版本）
+ * <p>
+ * 默认使用虚拟线程，每个任务一个线程；设置系统属性 winter-es.virtual-threads=false 时回退为守护平台线程。
+ * 与 src/main/java 下的 Java 8 版本保持相同的公开方法。
+ * </p>
+ *
+ * @author dadandiaoming
+ */
+public final class EsExecutors {
+
+    private static final boolean VIRTUAL = Boolean.parseBoolean(System.getProperty("winter-es.virtual-threads", "true"));
+
+    private EsExecutors() {
+    }
+
+    /**
+     * 是否使用虚拟线程
+     */
+    public static boolean isVirtual() {
+        return VIRTUAL;
+    }
+
+    /**
+     * 创建线程工厂，线程名为 {namePrefix}-{序号}
+     *
+     * @param namePrefix 线程名前缀
+     * @return 线程工厂
+     */
+    public static ThreadFactory threadFactory(String namePrefix) {
+        if (VIRTUAL) {
+            return Thread.ofVirtual().name(namePrefix + "-", 1).factory();
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 创建并行任务执行器
+     *
+     * @param namePrefix 线程名前缀
+     * @param maxThreads 最大线程数，≤0 时按需创建线程；虚拟线程模式下为同时执行的任务数上限
+     * @return 执行器
+     */
+    public static ExecutorService newTaskExecutor(String namePrefix, int maxThreads) {
+        if (VIRTUAL) {
+            ExecutorService executor = Executors.newThreadPerTaskExecutor(threadFactory(namePrefix));
+            return maxThreads <= 0 ? executor : new BoundedExecutor(executor, maxThreads);
+        }
+        if (maxThreads <= 0) {
+            return Executors.newCachedThreadPool(threadFactory(namePrefix));
+        }
+        // 空闲线程超时后回收，与按需创建的线程池一致，不常驻
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory(namePrefix));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 限制同时执行任务数的执行器
+     * 每个任务仍有自己的虚拟线程，但在信号量上等待许可后才执行，等待中的虚拟线程不占用平台线程
+     */
+    private static final class BoundedExecutor extends AbstractExecutorService {
+
+        private final ExecutorService delegate;
+
+        private final Semaphore permits;
+
+        private BoundedExecutor(ExecutorService delegate, int maxConcurrent) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(maxConcurrent);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}